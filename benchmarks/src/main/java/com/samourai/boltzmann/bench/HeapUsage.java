@@ -0,0 +1,34 @@
+package com.samourai.boltzmann.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+
+/** Peak heap usage, from the peak usage of the heap memory pools. */
+public class HeapUsage {
+
+  /** Resets the peak usage of the heap pools, to measure the peak of a next run. */
+  public static void resetPeak() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+  }
+
+  /**
+   * @return sum of the peak usages of the heap pools since the last reset (in bytes). Pools peak at
+   *     different times, so this is an upper bound of the actual peak.
+   */
+  public static long getPeakBytes() {
+    long peakBytes = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      MemoryUsage peak = pool.getPeakUsage();
+      if (pool.getType() == MemoryType.HEAP && peak != null) {
+        peakBytes += peak.getUsed();
+      }
+    }
+    return peakBytes;
+  }
+}
@@ -0,0 +1,235 @@
+package com.samourai.boltzmann.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.samourai.boltzmann.Boltzmann;
+import com.samourai.boltzmann.beans.BoltzmannResult;
+import com.samourai.boltzmann.beans.BoltzmannSettings;
+import com.samourai.boltzmann.beans.Txos;
+import com.samourai.boltzmann.fetch.OxtFetch;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays a directory of transactions (json files in the format of fetchTx resources) through
+ * Boltzmann.process(), with a given concurrency. Reports throughput, latencies and peak heap, and
+ * fails when results differ from a golden file or throughput drops below a saved baseline.
+ */
+public class ReplayHarness {
+  private static final ObjectMapper objectMapper =
+      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+  private static final double ENTROPY_EPSILON = 1e-9;
+
+  /** min ratio of the baseline throughput */
+  public static final double TOLERANCE_DEFAULT = 0.8;
+
+  private final BoltzmannSettings settings;
+  private final int concurrency;
+
+  public ReplayHarness(BoltzmannSettings settings, int concurrency) {
+    this.settings = settings;
+    this.concurrency = concurrency;
+  }
+
+  /** @return json files of a directory, by name */
+  public static List<File> listTxFiles(File dir) {
+    File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
+    if (files == null) {
+      throw new IllegalArgumentException("Not a directory: " + dir);
+    }
+    Arrays.sort(files);
+    return Arrays.asList(files);
+  }
+
+  /** @return results in the order of files */
+  public List<ReplayResult> replay(List<File> files) throws Exception {
+    final OxtFetch oxtFetch = new OxtFetch();
+    ExecutorService executorService = Executors.newFixedThreadPool(concurrency);
+    try {
+      List<Future<ReplayResult>> futures = new ArrayList<Future<ReplayResult>>();
+      for (final File file : files) {
+        final String txid = file.getName().substring(0, file.getName().length() - ".json".length());
+        final Txos txos = oxtFetch.read(file);
+        futures.add(
+            executorService.submit(
+                new Callable<ReplayResult>() {
+                  @Override
+                  public ReplayResult call() {
+                    long startNanos = System.nanoTime();
+                    BoltzmannResult result = new Boltzmann(settings).process(txos);
+                    long latencyMillis = (System.nanoTime() - startNanos) / 1000000;
+                    return new ReplayResult(txid, latencyMillis, result);
+                  }
+                }));
+      }
+      List<ReplayResult> results = new ArrayList<ReplayResult>();
+      for (Future<ReplayResult> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  /** @return differences between results and the golden file */
+  public static List<String> compareGolden(List<ReplayResult> results, File goldenFile)
+      throws Exception {
+    JsonNode golden = objectMapper.readTree(goldenFile);
+    JsonNode actual = objectMapper.valueToTree(toGolden(results));
+    List<String> diffs = new ArrayList<String>();
+    Iterator<Map.Entry<String, JsonNode>> it = golden.fields();
+    while (it.hasNext()) {
+      Map.Entry<String, JsonNode> expected = it.next();
+      JsonNode result = actual.get(expected.getKey());
+      if (result == null) {
+        diffs.add(expected.getKey() + ": missing");
+        continue;
+      }
+      for (String field : new String[] {"nbCmbn", "nbDL", "matLnkCombinations"}) {
+        if (!expected.getValue().path(field).equals(result.path(field))) {
+          diffs.add(
+              expected.getKey()
+                  + ": "
+                  + field
+                  + " expected "
+                  + expected.getValue().path(field)
+                  + " but was "
+                  + result.path(field));
+        }
+      }
+      JsonNode expectedEntropy = expected.getValue().path("entropy");
+      JsonNode entropy = result.path("entropy");
+      if (expectedEntropy.isNumber() != entropy.isNumber()
+          || Math.abs(expectedEntropy.asDouble() - entropy.asDouble()) > ENTROPY_EPSILON) {
+        diffs.add(
+            expected.getKey() + ": entropy expected " + expectedEntropy + " but was " + entropy);
+      }
+    }
+    return diffs;
+  }
+
+  /** @return golden results by txid */
+  private static ObjectNode toGolden(List<ReplayResult> results) {
+    ObjectNode golden = objectMapper.createObjectNode();
+    for (ReplayResult result : results) {
+      ObjectNode node = objectMapper.valueToTree(result);
+      node.remove("txid");
+      node.remove("latencyMillis");
+      golden.set(result.getTxid(), node);
+    }
+    return golden;
+  }
+
+  public static void writeGolden(List<ReplayResult> results, File goldenFile) throws Exception {
+    objectMapper.writeValue(goldenFile, toGolden(results));
+  }
+
+  /** @return error if throughput dropped below tolerance * baseline, or null */
+  public static String compareBaseline(ReplayReport report, File baselineFile, double tolerance)
+      throws Exception {
+    double baselineTxPerSecond = objectMapper.readTree(baselineFile).path("txPerSecond").asDouble();
+    if (report.getTxPerSecond() < tolerance * baselineTxPerSecond) {
+      return String.format(
+          "throughput %.2f tx/s below %.0f%% of baseline %.2f tx/s",
+          report.getTxPerSecond(), tolerance * 100, baselineTxPerSecond);
+    }
+    return null;
+  }
+
+  public static void writeBaseline(ReplayReport report, File baselineFile) throws Exception {
+    objectMapper.writeValue(baselineFile, report);
+  }
+
+  public static void main(String[] args) throws Exception {
+    // parse args
+    if (args.length < 1) {
+      System.err.println(
+          "Usage: <dir> [-concurrency N] [-golden file] [-baseline file] [-tolerance ratio]"
+              + " [-maxTxos N] [-update]");
+      return;
+    }
+    File dir = new File(args[0]);
+    int concurrency = 1;
+    File goldenFile = null;
+    File baselineFile = null;
+    double tolerance = TOLERANCE_DEFAULT;
+    boolean update = false;
+    BoltzmannSettings settings = new BoltzmannSettings();
+    for (int i = 1; i < args.length; i++) {
+      String arg = args[i];
+      if ("-update".equals(arg)) {
+        update = true;
+      } else if (i + 1 < args.length) {
+        String value = args[++i];
+        if ("-concurrency".equals(arg)) {
+          concurrency = Integer.parseInt(value);
+        } else if ("-golden".equals(arg)) {
+          goldenFile = new File(value);
+        } else if ("-baseline".equals(arg)) {
+          baselineFile = new File(value);
+        } else if ("-tolerance".equals(arg)) {
+          tolerance = Double.parseDouble(value);
+        } else if ("-maxTxos".equals(arg)) {
+          settings.setMaxTxos(Integer.parseInt(value));
+        } else {
+          throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+      } else {
+        throw new IllegalArgumentException("Missing value for option: " + arg);
+      }
+    }
+
+    // replay
+    List<File> files = listTxFiles(dir);
+    System.gc();
+    HeapUsage.resetPeak();
+    long startMillis = System.currentTimeMillis();
+    List<ReplayResult> results = new ReplayHarness(settings, concurrency).replay(files);
+    ReplayReport report =
+        new ReplayReport(
+            results,
+            concurrency,
+            System.currentTimeMillis() - startMillis,
+            HeapUsage.getPeakBytes());
+    System.err.println("Replayed " + report);
+
+    // checks results
+    List<String> errors = new ArrayList<String>();
+    if (goldenFile != null) {
+      if (update) {
+        writeGolden(results, goldenFile);
+        System.err.println("Golden results written to " + goldenFile);
+      } else {
+        errors.addAll(compareGolden(results, goldenFile));
+      }
+    }
+    if (baselineFile != null) {
+      if (update) {
+        writeBaseline(report, baselineFile);
+        System.err.println("Baseline written to " + baselineFile);
+      } else {
+        String error = compareBaseline(report, baselineFile, tolerance);
+        if (error != null) {
+          errors.add(error);
+        }
+      }
+    }
+    if (!errors.isEmpty()) {
+      for (String error : errors) {
+        System.err.println("FAILED: " + error);
+      }
+      System.exit(1);
+    }
+  }
+}
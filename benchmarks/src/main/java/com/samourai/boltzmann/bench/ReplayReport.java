@@ -0,0 +1,89 @@
+package com.samourai.boltzmann.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Throughput, latencies and peak heap of a replay. */
+public class ReplayReport {
+  private final int nbTxs;
+  private final int concurrency;
+  private final long durationMillis;
+  private final double txPerSecond;
+  private final long p50Millis;
+  private final long p99Millis;
+  private final long peakHeapBytes;
+
+  public ReplayReport(
+      List<ReplayResult> results, int concurrency, long durationMillis, long peakHeapBytes) {
+    List<Long> latencies = new ArrayList<Long>();
+    for (ReplayResult result : results) {
+      latencies.add(result.getLatencyMillis());
+    }
+    Collections.sort(latencies);
+
+    this.nbTxs = results.size();
+    this.concurrency = concurrency;
+    this.durationMillis = durationMillis;
+    this.txPerSecond = nbTxs * 1000.0 / Math.max(durationMillis, 1);
+    this.p50Millis = percentile(latencies, 50);
+    this.p99Millis = percentile(latencies, 99);
+    this.peakHeapBytes = peakHeapBytes;
+  }
+
+  /** @return nearest-rank percentile of sorted values */
+  private static long percentile(List<Long> sortedValues, int percentile) {
+    if (sortedValues.isEmpty()) {
+      return 0;
+    }
+    int rank = (int) Math.ceil(percentile / 100.0 * sortedValues.size());
+    return sortedValues.get(Math.max(rank, 1) - 1);
+  }
+
+  public int getNbTxs() {
+    return nbTxs;
+  }
+
+  public int getConcurrency() {
+    return concurrency;
+  }
+
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  public double getTxPerSecond() {
+    return txPerSecond;
+  }
+
+  public long getP50Millis() {
+    return p50Millis;
+  }
+
+  public long getP99Millis() {
+    return p99Millis;
+  }
+
+  /** @return peak heap usage during the replay, see {@link HeapUsage#getPeakBytes()} */
+  public long getPeakHeapBytes() {
+    return peakHeapBytes;
+  }
+
+  @Override
+  public String toString() {
+    return nbTxs
+        + " txs in "
+        + durationMillis
+        + "ms (concurrency="
+        + concurrency
+        + "): "
+        + String.format("%.2f", txPerSecond)
+        + " tx/s, p50="
+        + p50Millis
+        + "ms, p99="
+        + p99Millis
+        + "ms, peakHeap="
+        + (peakHeapBytes / (1024 * 1024))
+        + "MB";
+  }
+}
@@ -0,0 +1,58 @@
+package com.samourai.boltzmann.bench;
+
+import com.samourai.boltzmann.beans.BoltzmannResult;
+import com.samourai.boltzmann.beans.LinkMatrix;
+
+/** Result of replaying a transaction: latency, and the outputs compared with the golden file. */
+public class ReplayResult {
+  private final String txid;
+  private final long latencyMillis;
+  private final int nbCmbn;
+  private final Double entropy;
+  private final int nbDL;
+  private final int[][] matLnkCombinations;
+
+  public ReplayResult(String txid, long latencyMillis, BoltzmannResult result) {
+    this.txid = txid;
+    this.latencyMillis = latencyMillis;
+    this.nbCmbn = result.getNbCmbn();
+    this.entropy = result.getEntropy();
+    this.nbDL = result.getNbDL();
+    this.matLnkCombinations = toArray(result.getMatLnkCombinations());
+  }
+
+  private static int[][] toArray(LinkMatrix matrix) {
+    if (matrix == null) {
+      return null;
+    }
+    int[][] values = new int[(int) matrix.getRows()][(int) matrix.getCols()];
+    for (int row = 0; row < values.length; row++) {
+      matrix.getRow(row, values[row]);
+    }
+    return values;
+  }
+
+  public String getTxid() {
+    return txid;
+  }
+
+  public long getLatencyMillis() {
+    return latencyMillis;
+  }
+
+  public int getNbCmbn() {
+    return nbCmbn;
+  }
+
+  public Double getEntropy() {
+    return entropy;
+  }
+
+  public int getNbDL() {
+    return nbDL;
+  }
+
+  public int[][] getMatLnkCombinations() {
+    return matLnkCombinations;
+  }
+}
@@ -0,0 +1,124 @@
+package com.samourai.boltzmann.bench;
+
+/** Cost of processing a generated transaction with an engine. */
+public class ScalingResult {
+  public static final String CSV_HEADER =
+      "shape,size,engine,nbIns,nbOuts,wallMillis,cpuMillis,allocatedBytes,peakHeapBytes,nbCmbn,entropy,limit";
+
+  private final String shape;
+  private final int size;
+  private final String engine;
+  private final int nbIns;
+  private final int nbOuts;
+  private final long wallMillis;
+  private final long cpuMillis;
+  private final long allocatedBytes;
+  private final long peakHeapBytes;
+  private final int nbCmbn;
+  private final Double entropy;
+  private final String limit;
+
+  public ScalingResult(
+      String shape,
+      int size,
+      String engine,
+      int nbIns,
+      int nbOuts,
+      long wallMillis,
+      long cpuMillis,
+      long allocatedBytes,
+      long peakHeapBytes,
+      int nbCmbn,
+      Double entropy,
+      String limit) {
+    this.shape = shape;
+    this.size = size;
+    this.engine = engine;
+    this.nbIns = nbIns;
+    this.nbOuts = nbOuts;
+    this.wallMillis = wallMillis;
+    this.cpuMillis = cpuMillis;
+    this.allocatedBytes = allocatedBytes;
+    this.peakHeapBytes = peakHeapBytes;
+    this.nbCmbn = nbCmbn;
+    this.entropy = entropy;
+    this.limit = limit;
+  }
+
+  public String getShape() {
+    return shape;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public String getEngine() {
+    return engine;
+  }
+
+  public int getNbIns() {
+    return nbIns;
+  }
+
+  public int getNbOuts() {
+    return nbOuts;
+  }
+
+  public long getWallMillis() {
+    return wallMillis;
+  }
+
+  /** @return CPU time of the thread running the phases, or -1 if not supported */
+  public long getCpuMillis() {
+    return cpuMillis;
+  }
+
+  /** @return bytes allocated by the thread running the phases, or -1 if not supported */
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  public long getPeakHeapBytes() {
+    return peakHeapBytes;
+  }
+
+  public int getNbCmbn() {
+    return nbCmbn;
+  }
+
+  public Double getEntropy() {
+    return entropy;
+  }
+
+  /** @return limit which stopped the processing (reject reason or maxDuration), or null */
+  public String getLimit() {
+    return limit;
+  }
+
+  public String toCsv() {
+    return shape
+        + ","
+        + size
+        + ","
+        + engine
+        + ","
+        + nbIns
+        + ","
+        + nbOuts
+        + ","
+        + wallMillis
+        + ","
+        + cpuMillis
+        + ","
+        + allocatedBytes
+        + ","
+        + peakHeapBytes
+        + ","
+        + nbCmbn
+        + ","
+        + (entropy != null ? entropy : "")
+        + ","
+        + (limit != null ? limit : "");
+  }
+}
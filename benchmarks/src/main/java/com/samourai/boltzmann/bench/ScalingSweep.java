@@ -0,0 +1,162 @@
+package com.samourai.boltzmann.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.samourai.boltzmann.Boltzmann;
+import com.samourai.boltzmann.beans.BoltzmannResult;
+import com.samourai.boltzmann.beans.BoltzmannSettings;
+import com.samourai.boltzmann.beans.Txos;
+import com.samourai.boltzmann.linker.TxosLinkerOptionEnum;
+import com.samourai.boltzmann.utils.PhaseMetrics;
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sweeps generated transactions of each shape, from 2x2 up to maxTxos, through Boltzmann.process()
+ * with each engine, and writes the time/memory curves to [output].csv and [output].json.
+ */
+public class ScalingSweep {
+  private static final long SEED_DEFAULT = 1;
+  private static final int MAX_DURATION_DEFAULT = 60;
+
+  /** engines by name */
+  public static final Map<String, TxosLinkerOptionEnum[]> ENGINES =
+      new LinkedHashMap<String, TxosLinkerOptionEnum[]>();
+
+  static {
+    ENGINES.put("linkability", BoltzmannSettings.OPTIONS_DEFAULT);
+    ENGINES.put(
+        "countOnly",
+        new TxosLinkerOptionEnum[] {
+          TxosLinkerOptionEnum.PRECHECK,
+          TxosLinkerOptionEnum.COUNT_ONLY,
+          TxosLinkerOptionEnum.MERGE_INPUTS
+        });
+  }
+
+  private final TxGenerator generator;
+  private final int maxTxos;
+  private final int maxDuration;
+
+  /** @param maxDuration max duration of each run (in seconds) */
+  public ScalingSweep(long seed, int maxTxos, int maxDuration) {
+    this.generator = new TxGenerator(seed);
+    this.maxTxos = maxTxos;
+    this.maxDuration = maxDuration;
+  }
+
+  public List<ScalingResult> run(List<TxShape> shapes) {
+    List<ScalingResult> results = new ArrayList<ScalingResult>();
+    System.err.println(ScalingResult.CSV_HEADER);
+    for (TxShape shape : shapes) {
+      for (int size : shape.getSizes(maxTxos)) {
+        Txos txos = generator.generate(shape, size);
+        for (Map.Entry<String, TxosLinkerOptionEnum[]> engine : ENGINES.entrySet()) {
+          ScalingResult result = run(shape, size, txos, engine.getKey(), engine.getValue());
+          System.err.println(result.toCsv());
+          results.add(result);
+        }
+      }
+    }
+    return results;
+  }
+
+  private ScalingResult run(
+      TxShape shape, int size, Txos txos, String engine, TxosLinkerOptionEnum[] options) {
+    BoltzmannSettings settings = new BoltzmannSettings();
+    settings.setMaxTxos(maxTxos);
+    settings.setMaxDuration(maxDuration);
+    settings.setMaxCjIntrafeesRatio(shape.getMaxCjIntrafeesRatio());
+    settings.setOptions(options);
+
+    System.gc();
+    HeapUsage.resetPeak();
+    long startNanos = System.nanoTime();
+    BoltzmannResult result = new Boltzmann(settings).process(txos);
+    long wallMillis = (System.nanoTime() - startNanos) / 1000000;
+    long peakHeapBytes = HeapUsage.getPeakBytes();
+
+    long cpuNanos = 0;
+    long allocatedBytes = 0;
+    for (PhaseMetrics phase : result.getMetrics().getPhases()) {
+      cpuNanos = phase.getCpuNanos() >= 0 && cpuNanos >= 0 ? cpuNanos + phase.getCpuNanos() : -1;
+      allocatedBytes =
+          phase.getAllocatedBytes() >= 0 && allocatedBytes >= 0
+              ? allocatedBytes + phase.getAllocatedBytes()
+              : -1;
+    }
+
+    // maxDuration stops the search without rejecting the tx
+    String limit = result.getMetrics().getRejectReason();
+    if (limit == null && wallMillis >= maxDuration * 1000L) {
+      limit = "maxDuration";
+    }
+    return new ScalingResult(
+        shape.name(),
+        size,
+        engine,
+        txos.getInputs().size(),
+        txos.getOutputs().size(),
+        wallMillis,
+        cpuNanos >= 0 ? cpuNanos / 1000000 : -1,
+        allocatedBytes,
+        peakHeapBytes,
+        result.getNbCmbn(),
+        result.getEntropy(),
+        limit);
+  }
+
+  public static void write(List<ScalingResult> results, String output) throws Exception {
+    PrintWriter csv = new PrintWriter(new File(output + ".csv"), "UTF-8");
+    try {
+      csv.println(ScalingResult.CSV_HEADER);
+      for (ScalingResult result : results) {
+        csv.println(result.toCsv());
+      }
+    } finally {
+      csv.close();
+    }
+    new ObjectMapper()
+        .enable(SerializationFeature.INDENT_OUTPUT)
+        .writeValue(new File(output + ".json"), results);
+  }
+
+  public static void main(String[] args) throws Exception {
+    // parse args
+    if (args.length < 1) {
+      System.err.println("Usage: <output> [seed] [maxTxos] [maxDuration] [shape,shape...]");
+      return;
+    }
+    String output = args[0];
+    long seed = args.length > 1 ? Long.parseLong(args[1]) : SEED_DEFAULT;
+    int maxTxos = args.length > 2 ? Integer.parseInt(args[2]) : BoltzmannSettings.MAX_TXOS_DEFAULT;
+    int maxDuration = args.length > 3 ? Integer.parseInt(args[3]) : MAX_DURATION_DEFAULT;
+    List<TxShape> shapes = new ArrayList<TxShape>();
+    if (args.length > 4) {
+      for (String shape : args[4].split(",")) {
+        shapes.add(TxShape.valueOf(shape.trim().toUpperCase()));
+      }
+    } else {
+      for (TxShape shape : TxShape.values()) {
+        shapes.add(shape);
+      }
+    }
+    System.err.println(
+        "Running scaling sweep: seed="
+            + seed
+            + ", maxTxos="
+            + maxTxos
+            + ", maxDuration="
+            + maxDuration
+            + ", shapes="
+            + shapes);
+
+    List<ScalingResult> results = new ScalingSweep(seed, maxTxos, maxDuration).run(shapes);
+    write(results, output);
+    System.err.println("Results written to " + output + ".csv and " + output + ".json");
+  }
+}
@@ -0,0 +1,167 @@
+package com.samourai.boltzmann.bench;
+
+import com.samourai.boltzmann.beans.Txos;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic generator of transactions of realistic shapes (values in sats). A same seed, shape
+ * and size always give the same transaction, whatever the other generated transactions.
+ */
+public class TxGenerator {
+  private static final long MIN_VALUE = 10000L;
+  private static final long MAX_VALUE = 100000000L;
+  private static final long FEE_PER_TXO = 150;
+  private static final long WHIRLPOOL_DENOM = 1000000L;
+
+  private final long seed;
+
+  public TxGenerator(long seed) {
+    this.seed = seed;
+  }
+
+  public Txos generate(TxShape shape, int size) {
+    Random random = new Random(seed * 961 + shape.ordinal() * 31 + size);
+    Builder tx = new Builder();
+    switch (shape) {
+      case PAYMENT:
+        {
+          long sum = tx.addInputs(size, random);
+          long available = sum - fees(size, 2);
+          long payment = (long) (available * (0.1 + 0.8 * random.nextDouble()));
+          tx.addOutput(payment);
+          tx.addOutput(available - payment);
+          break;
+        }
+      case BATCH:
+        {
+          long sum = tx.addInputs(2, random);
+          for (long value : split(sum - fees(2, size), size, random)) {
+            tx.addOutput(value);
+          }
+          break;
+        }
+      case WHIRLPOOL:
+        {
+          // new entrants (premix) pay the miner fees, remixers don't
+          int nbPremix = 1 + random.nextInt(2);
+          for (int i = 0; i < size; i++) {
+            tx.addInput(
+                i < nbPremix ? WHIRLPOOL_DENOM + 100 + random.nextInt(500) : WHIRLPOOL_DENOM);
+            tx.addOutput(WHIRLPOOL_DENOM);
+          }
+          break;
+        }
+      case JOINMARKET:
+        {
+          long cjAmount = randomValue(random);
+          long sumMakerFees = 0;
+          for (int i = 1; i < size; i++) {
+            long makerFee = (long) (cjAmount * (0.0001 + 0.002 * random.nextDouble()));
+            long change = randomValue(random);
+            tx.addInput(cjAmount + change - makerFee);
+            tx.addOutput(cjAmount);
+            tx.addOutput(change);
+            sumMakerFees += makerFee;
+          }
+          // taker sweeps its input
+          tx.addInput(cjAmount + sumMakerFees + fees(size, 2 * size - 1));
+          tx.addOutput(cjAmount);
+          break;
+        }
+      case EQUAL_OUTPUTS:
+        {
+          long denom = randomValue(random);
+          for (int i = 0; i < size; i++) {
+            tx.addInput(denom + fees(1, 1));
+            tx.addOutput(denom);
+          }
+          break;
+        }
+      case STONEWALL:
+        {
+          long amount = randomValue(random);
+          long feesHalf = fees(size, 4) / 2;
+          int nbInsA = (size + 1) / 2;
+          for (int nbIns : new int[] {nbInsA, size - nbInsA}) {
+            long change = MIN_VALUE + (long) ((amount - MIN_VALUE) * random.nextDouble());
+            for (long value : split(amount + feesHalf + change, nbIns, random)) {
+              tx.addInput(value);
+            }
+            tx.addOutput(amount);
+            tx.addOutput(change);
+          }
+          break;
+        }
+      case RANDOM:
+        {
+          long sum = tx.addInputs(size, random);
+          for (long value : split(sum - fees(size, size), size, random)) {
+            tx.addOutput(value);
+          }
+          break;
+        }
+      default:
+        throw new IllegalArgumentException("Unknown shape: " + shape);
+    }
+    return tx.toTxos();
+  }
+
+  private static long fees(int nbIns, int nbOuts) {
+    return FEE_PER_TXO * (nbIns + nbOuts);
+  }
+
+  /** @return log-uniform value in [MIN_VALUE, MAX_VALUE] */
+  private static long randomValue(Random random) {
+    double minLog = Math.log(MIN_VALUE);
+    double maxLog = Math.log(MAX_VALUE);
+    return (long) Math.exp(minLog + (maxLog - minLog) * random.nextDouble());
+  }
+
+  /** @return nbParts positive values summing to total, of random weights */
+  private static long[] split(long total, int nbParts, Random random) {
+    double[] weights = new double[nbParts];
+    double sumWeights = 0;
+    for (int i = 0; i < nbParts; i++) {
+      weights[i] = 0.1 + random.nextDouble();
+      sumWeights += weights[i];
+    }
+    long[] parts = new long[nbParts];
+    long remaining = total;
+    for (int i = 0; i < nbParts - 1; i++) {
+      parts[i] = Math.max(1, (long) (total * weights[i] / sumWeights));
+      remaining -= parts[i];
+    }
+    parts[nbParts - 1] = remaining;
+    return parts;
+  }
+
+  private static class Builder {
+    private final Map<String, Long> inputs = new LinkedHashMap<String, Long>();
+    private final Map<String, Long> outputs = new LinkedHashMap<String, Long>();
+
+    // distinct labels: inputs are not merged by MERGE_INPUTS
+    void addInput(long value) {
+      inputs.put("in" + inputs.size(), value);
+    }
+
+    long addInputs(int nbInputs, Random random) {
+      long sum = 0;
+      for (int i = 0; i < nbInputs; i++) {
+        long value = randomValue(random);
+        addInput(value);
+        sum += value;
+      }
+      return sum;
+    }
+
+    void addOutput(long value) {
+      outputs.put("out" + outputs.size(), value);
+    }
+
+    Txos toTxos() {
+      return new Txos(inputs, outputs);
+    }
+  }
+}
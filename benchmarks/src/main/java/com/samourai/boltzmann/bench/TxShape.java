@@ -0,0 +1,62 @@
+package com.samourai.boltzmann.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Shapes of transactions generated by {@link TxGenerator}. */
+public enum TxShape {
+  /** size inputs, payment + change */
+  PAYMENT(2, 0),
+
+  /** 2 inputs, size outputs (payouts + change) */
+  BATCH(2, 0),
+
+  /** Whirlpool mix: 5 inputs (premix + remix), 5 outputs of the pool denomination */
+  WHIRLPOOL(5, 0),
+
+  /**
+   * JoinMarket coinjoin of size participants: makers receive fees from the taker, who sweeps its
+   * input (size inputs, size coinjoin outputs + size - 1 changes)
+   */
+  JOINMARKET(2, 0.005f),
+
+  /** equal-output coinjoin: size inputs, size outputs of a same value */
+  EQUAL_OUTPUTS(2, 0),
+
+  /** Stonewall: size inputs in 2 sets, spend + decoy of a same value, 2 changes */
+  STONEWALL(2, 0),
+
+  /** size inputs, size outputs of random values, with fees */
+  RANDOM(2, 0);
+
+  private final int minSize;
+  private final float maxCjIntrafeesRatio;
+
+  TxShape(int minSize, float maxCjIntrafeesRatio) {
+    this.minSize = minSize;
+    this.maxCjIntrafeesRatio = maxCjIntrafeesRatio;
+  }
+
+  /** @return sizes of this shape having at most maxTxos inputs and outputs */
+  public List<Integer> getSizes(int maxTxos) {
+    List<Integer> sizes = new ArrayList<Integer>();
+    if (this == WHIRLPOOL) {
+      if (maxTxos >= 5) {
+        sizes.add(5);
+      }
+      return sizes;
+    }
+    for (int size = minSize; size <= maxTxos; size++) {
+      if (this == JOINMARKET && 2 * size - 1 > maxTxos) {
+        break;
+      }
+      sizes.add(size);
+    }
+    return sizes;
+  }
+
+  /** @return maxCjIntrafeesRatio for processing this shape */
+  public float getMaxCjIntrafeesRatio() {
+    return maxCjIntrafeesRatio;
+  }
+}
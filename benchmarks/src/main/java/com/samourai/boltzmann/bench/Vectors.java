@@ -0,0 +1,77 @@
+package com.samourai.boltzmann.bench;
+
+import com.samourai.boltzmann.beans.TxoTable;
+import com.samourai.boltzmann.beans.Txos;
+import com.samourai.boltzmann.beans.TxosTable;
+import com.samourai.boltzmann.fetch.OxtFetch;
+import com.samourai.boltzmann.processor.TxProcessorConst;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Transactions of the test vectors (VectorsTest), by name. Any other name is read as a txid from
+ * the fetchTx test resources.
+ */
+public class Vectors {
+
+  public static Txos get(String name) throws Exception {
+    switch (name) {
+      case "testCaseA":
+        return txos(new long[] {10, 10}, new long[] {8, 2, 3, 7});
+      case "testCaseB":
+        return txos(new long[] {10, 10}, new long[] {8, 2, 2, 8});
+      case "testCaseB2":
+        return txos(new long[] {10, 10}, new long[] {10, 2, 8});
+      case "testCaseC":
+        return txos(new long[] {10, 10}, new long[] {5, 5, 5, 5});
+      case "testCaseC2":
+        return txos(new long[] {10, 10}, new long[] {10, 5, 5});
+      case "testCaseD":
+        return txos(new long[] {10, 10, 2}, new long[] {8, 2, 2, 8, 2});
+      case "testCaseP3WithFees":
+        return txos(new long[] {5, 5, 5}, new long[] {5, 3, 2});
+      case "testCaseP3b":
+        return txos(new long[] {5, 5, 10}, new long[] {5, 5, 10});
+      default:
+        if (name.startsWith("testCaseP")) {
+          // perfect coinjoins P2 to P10
+          int n = Integer.parseInt(name.substring("testCaseP".length()));
+          long[] values = new long[n];
+          for (int i = 0; i < n; i++) {
+            values[i] = 5;
+          }
+          return txos(values, values);
+        }
+        return new OxtFetch().fetch(name);
+    }
+  }
+
+  private static Txos txos(long[] ins, long[] outs) {
+    Map<String, Long> inputs = new LinkedHashMap<String, Long>();
+    for (int i = 0; i < ins.length; i++) {
+      inputs.put(String.valueOf((char) ('a' + i)), ins[i]);
+    }
+    Map<String, Long> outputs = new LinkedHashMap<String, Long>();
+    for (int i = 0; i < outs.length; i++) {
+      outputs.put(String.valueOf((char) ('A' + i)), outs[i]);
+    }
+    return new Txos(inputs, outputs);
+  }
+
+  /** Filters txos as TxProcessor does: removes null values and labels txos as I0, O0... */
+  public static TxosTable filter(Txos txos) {
+    return new TxosTable(
+        filter(txos.getInputs(), TxProcessorConst.MARKER_INPUT),
+        filter(txos.getOutputs(), TxProcessorConst.MARKER_OUTPUT));
+  }
+
+  private static TxoTable filter(Map<String, Long> txos, String prefix) {
+    TxoTable table = new TxoTable(new String[] {}, new long[] {});
+    for (long value : txos.values()) {
+      if (value > 0) {
+        table = table.add(prefix + table.size(), value);
+      }
+    }
+    return table;
+  }
+}
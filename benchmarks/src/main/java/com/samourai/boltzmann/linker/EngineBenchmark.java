@@ -0,0 +1,78 @@
+package com.samourai.boltzmann.linker;
+
+import com.samourai.boltzmann.aggregator.TxosAggregatesData;
+import com.samourai.boltzmann.aggregator.TxosAggregatesMatches;
+import com.samourai.boltzmann.aggregator.TxosAggregator;
+import com.samourai.boltzmann.aggregator.TxosAggregatorResult;
+import com.samourai.boltzmann.utils.ListsUtils;
+import it.unimi.dsi.fastutil.objects.ObjectBigList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of each phase of the engine, for each test vector (see EngineState). Run through
+ * BenchmarkMain to get the allocation rate from the GC profiler.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngineBenchmark {
+
+  @Benchmark
+  public ObjectBigList<long[]> powerSet(EngineState state) {
+    return ListsUtils.powerSet(state.inIndexes);
+  }
+
+  @Benchmark
+  public TxosAggregatesData prepareTxos(EngineState state) {
+    return state.newLinker().prepareTxos(state.txos.getInputs());
+  }
+
+  @Benchmark
+  public TxosAggregatesMatches matchAggByVal(EngineState state) {
+    return new TxosAggregator().matchAggByVal(state.allAgg, state.fees, state.intraFees);
+  }
+
+  @Benchmark
+  public Map<Long, List<int[]>> computeInAggCmbn(EngineState state) {
+    return new TxosAggregator().computeInAggCmbn(state.aggMatches);
+  }
+
+  @Benchmark
+  public Set<long[]> checkDtrmLinks(EngineState state) {
+    return new TxosAggregator().checkDtrmLinks(state.sortedTxos, state.allAgg, state.aggMatches);
+  }
+
+  @Benchmark
+  public TxosAggregatorResult computeLinkMatrix(EngineState state) {
+    return new TxosAggregator()
+        .computeLinkMatrix(
+            state.sortedTxos, state.allAgg, state.aggMatches, state.matInAggCmbn, null);
+  }
+
+  @Benchmark
+  public TxosAggregatorResult finalizeLinkMatrix(EngineState state) {
+    return state.newCapturingAggregator().finalizeCaptured();
+  }
+
+  @Benchmark
+  public UnpackLinkMatrixResult unpackLinkMatrix(EngineState state) {
+    return state.packLinker.unpackLinkMatrix(state.packedMatLnk, state.packedTxos);
+  }
+
+  @Benchmark
+  public List<Set<String>> mergeSets(EngineState state) {
+    return ListsUtils.mergeSets(state.linkedTxos);
+  }
+}
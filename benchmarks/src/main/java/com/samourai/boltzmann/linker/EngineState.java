@@ -0,0 +1,156 @@
+package com.samourai.boltzmann.linker;
+
+import com.samourai.boltzmann.aggregator.TxosAggregates;
+import com.samourai.boltzmann.aggregator.TxosAggregatesMatches;
+import com.samourai.boltzmann.aggregator.TxosAggregator;
+import com.samourai.boltzmann.aggregator.TxosAggregatorResult;
+import com.samourai.boltzmann.beans.LinkMatrix;
+import com.samourai.boltzmann.beans.TxosTable;
+import com.samourai.boltzmann.bench.Vectors;
+import com.samourai.boltzmann.processor.TxProcessorConst;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Inputs of each engine phase for a test vector, computed once as TxosLinker.process() does (no
+ * packing, no intrafees).
+ */
+@State(Scope.Benchmark)
+public class EngineState {
+
+  /** Test vectors (VectorsTest) and fetched txids processable with the default maxTxos */
+  @Param({
+    "testCaseA",
+    "testCaseB",
+    "testCaseB2",
+    "testCaseC",
+    "testCaseC2",
+    "testCaseD",
+    "testCaseP2",
+    "testCaseP3",
+    "testCaseP3WithFees",
+    "testCaseP3b",
+    "testCaseP4",
+    "testCaseP5",
+    "testCaseP6",
+    "testCaseP7",
+    "8e56317360a548e8ef28ec475878ef70d1371bee3526c017ac22ad61ae5740b8",
+    "dcba20fdfe34fe240fa6eacccfb2e58468ba2feafcfff99706145800d09a09a6"
+  })
+  public String vector;
+
+  long fees;
+  TxosTable txos;
+  Long[] inIndexes;
+
+  // prepareData
+  TxosAggregates allAgg;
+  TxosTable sortedTxos;
+
+  // matchAggByVal
+  IntraFees intraFees = new IntraFees(0, 0);
+  TxosAggregatesMatches aggMatches;
+
+  // computeInAggCmbn
+  Map<Long, List<int[]>> matInAggCmbn;
+
+  // computeLinkMatrix, captured for finalizeLinkMatrix
+  long itGt;
+  long otGt;
+  Map<Long, Map<Long, Integer>> dLinks;
+  int nbTxCmbn;
+  LinkMatrix matLnk;
+
+  // mergeSets: overlapping pairs of txos
+  List<Set<String>> linkedTxos;
+
+  // unpackLinkMatrix: first 2 inputs packed
+  TxosLinker packLinker;
+  TxosTable packedTxos;
+  LinkMatrix packedMatLnk;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    txos = Vectors.filter(Vectors.get(vector));
+    fees = txos.getInputs().sum() - txos.getOutputs().sum();
+    inIndexes = new Long[txos.getInputs().size()];
+    for (int i = 0; i < inIndexes.length; i++) {
+      inIndexes[i] = (long) i;
+    }
+
+    allAgg = newLinker().prepareData(txos);
+    sortedTxos = new TxosTable(allAgg.getInAgg().getTxos(), allAgg.getOutAgg().getTxos());
+    aggMatches = new TxosAggregator().matchAggByVal(allAgg, fees, intraFees);
+    matInAggCmbn = new TxosAggregator().computeInAggCmbn(aggMatches);
+    TxosAggregatorResult result =
+        newCapturingAggregator()
+            .computeLinkMatrix(sortedTxos, allAgg, aggMatches, matInAggCmbn, null);
+    matLnk = result.getMatLnkCombinations();
+
+    linkedTxos = new ArrayList<Set<String>>();
+    for (int i = 1; i < txos.getInputs().size(); i++) {
+      linkedTxos.add(pair(txos.getInputs().getLabel(i - 1), txos.getInputs().getLabel(i)));
+    }
+    for (int i = 1; i < txos.getOutputs().size(); i++) {
+      linkedTxos.add(pair(txos.getOutputs().getLabel(i - 1), txos.getOutputs().getLabel(i)));
+    }
+
+    packLinker = newLinker();
+    packedTxos =
+        txos.getInputs().size() < 2
+            ? txos
+            : packLinker.packLinkedTxos(
+                Collections.singletonList(
+                    pair(TxProcessorConst.MARKER_INPUT + 0, TxProcessorConst.MARKER_INPUT + 1)),
+                txos);
+    packedMatLnk =
+        LinkMatrix.newMatrix(packedTxos.getOutputs().size(), packedTxos.getInputs().size(), 1);
+  }
+
+  private static Set<String> pair(String a, String b) {
+    return new LinkedHashSet<String>(Arrays.asList(a, b));
+  }
+
+  /**
+   * New linker for each invocation: runs record their progress into the metrics of their linker or
+   * aggregator, which would grow across invocations otherwise.
+   */
+  TxosLinker newLinker() {
+    return new TxosLinker(fees, null, null);
+  }
+
+  CapturingAggregator newCapturingAggregator() {
+    return new CapturingAggregator();
+  }
+
+  /** Captures the links computed by computeLinkMatrix(), to benchmark finalizeLinkMatrix(). */
+  class CapturingAggregator extends TxosAggregator {
+    @Override
+    protected TxosAggregatorResult finalizeLinkMatrix(
+        TxosAggregates allAgg,
+        long itGt,
+        long otGt,
+        Map<Long, Map<Long, Integer>> dLinks,
+        int nbTxCmbn) {
+      EngineState.this.itGt = itGt;
+      EngineState.this.otGt = otGt;
+      EngineState.this.dLinks = dLinks;
+      EngineState.this.nbTxCmbn = nbTxCmbn;
+      return super.finalizeLinkMatrix(allAgg, itGt, otGt, dLinks, nbTxCmbn);
+    }
+
+    TxosAggregatorResult finalizeCaptured() {
+      return super.finalizeLinkMatrix(allAgg, itGt, otGt, dLinks, nbTxCmbn);
+    }
+  }
+}
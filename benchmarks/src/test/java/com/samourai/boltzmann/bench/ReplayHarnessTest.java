@@ -0,0 +1,64 @@
+package com.samourai.boltzmann.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.samourai.boltzmann.beans.BoltzmannSettings;
+import java.io.File;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReplayHarnessTest {
+  private static final File FETCH_TX_DIR = new File("../src/test/resources/fetchTx");
+  private static final String TXID =
+      "8e56317360a548e8ef28ec475878ef70d1371bee3526c017ac22ad61ae5740b8";
+  private static final String TXID2 =
+      "dcba20fdfe34fe240fa6eacccfb2e58468ba2feafcfff99706145800d09a09a6";
+  private static final String TXID_16X17 =
+      "0e0337bdf930eba3b082fdfbd30944b18e03f0f810ae531443161f897a4d3db0";
+  private static final String TXID_43X81 =
+      "246d36ee6f7b16652e594afe96ca4dcb71a1c58d65a34aeb076211f0c38c5753";
+
+  @Test
+  public void testReplay() throws Exception {
+    List<File> files = ReplayHarness.listTxFiles(FETCH_TX_DIR);
+    Assert.assertEquals(4, files.size());
+
+    List<ReplayResult> results = new ReplayHarness(new BoltzmannSettings(), 2).replay(files);
+    Assert.assertEquals(4, results.size());
+    // 16x17 and 43x81 txs exceed maxTxos: rejected without preparing their aggregates
+    Assert.assertEquals(TXID_16X17, results.get(0).getTxid());
+    Assert.assertEquals(0, results.get(0).getNbCmbn());
+    Assert.assertEquals(TXID_43X81, results.get(1).getTxid());
+    Assert.assertEquals(0, results.get(1).getNbCmbn());
+    Assert.assertEquals(TXID, results.get(2).getTxid());
+    Assert.assertEquals(3, results.get(2).getNbCmbn());
+    Assert.assertEquals(TXID2, results.get(3).getTxid());
+
+    ReplayReport report = new ReplayReport(results, 2, 1000, 0);
+    Assert.assertEquals(4.0, report.getTxPerSecond(), 0);
+    Assert.assertTrue(report.getP50Millis() <= report.getP99Millis());
+
+    // golden
+    File goldenFile = File.createTempFile("golden", ".json");
+    goldenFile.deleteOnExit();
+    ReplayHarness.writeGolden(results, goldenFile);
+    Assert.assertTrue(ReplayHarness.compareGolden(results, goldenFile).isEmpty());
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    ObjectNode golden = (ObjectNode) objectMapper.readTree(goldenFile);
+    ((ObjectNode) golden.get(TXID)).put("nbCmbn", 4);
+    ((ObjectNode) golden.get(TXID)).put("entropy", 2.0);
+    objectMapper.writeValue(goldenFile, golden);
+    List<String> diffs = ReplayHarness.compareGolden(results, goldenFile);
+    Assert.assertEquals(2, diffs.size());
+    Assert.assertTrue(diffs.get(0), diffs.get(0).startsWith(TXID + ": nbCmbn expected 4"));
+
+    // baseline
+    File baselineFile = File.createTempFile("baseline", ".json");
+    baselineFile.deleteOnExit();
+    ReplayHarness.writeBaseline(new ReplayReport(results, 2, 500, 0), baselineFile);
+    Assert.assertNotNull(ReplayHarness.compareBaseline(report, baselineFile, 0.8));
+    Assert.assertNull(ReplayHarness.compareBaseline(report, baselineFile, 0.5));
+  }
+}
@@ -0,0 +1,82 @@
+package com.samourai.boltzmann.bench;
+
+import com.samourai.boltzmann.beans.Txos;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TxGeneratorTest {
+
+  @Test
+  public void testGenerate() {
+    TxGenerator generator = new TxGenerator(42);
+    for (TxShape shape : TxShape.values()) {
+      List<Integer> sizes = shape.getSizes(12);
+      Assert.assertFalse(shape.name(), sizes.isEmpty());
+      for (int size : sizes) {
+        Txos txos = generator.generate(shape, size);
+        String msg = shape + " " + size;
+
+        // within maxTxos
+        Assert.assertTrue(msg, txos.getInputs().size() >= 2);
+        Assert.assertTrue(msg, txos.getInputs().size() <= 12);
+        Assert.assertTrue(msg, txos.getOutputs().size() <= 12);
+
+        // positive values & fees
+        long sumInputs = 0;
+        for (long value : txos.getInputs().values()) {
+          Assert.assertTrue(msg, value > 0);
+          sumInputs += value;
+        }
+        long sumOutputs = 0;
+        for (long value : txos.getOutputs().values()) {
+          Assert.assertTrue(msg, value > 0);
+          sumOutputs += value;
+        }
+        Assert.assertTrue(msg, sumInputs > sumOutputs);
+      }
+    }
+  }
+
+  @Test
+  public void testGenerate_deterministic() {
+    Txos txos = new TxGenerator(1).generate(TxShape.RANDOM, 5);
+    Assert.assertEquals(
+        txos.getInputs(), new TxGenerator(1).generate(TxShape.RANDOM, 5).getInputs());
+    Assert.assertEquals(
+        txos.getOutputs(), new TxGenerator(1).generate(TxShape.RANDOM, 5).getOutputs());
+
+    // other shapes don't change a generated tx
+    TxGenerator generator = new TxGenerator(1);
+    generator.generate(TxShape.PAYMENT, 5);
+    Assert.assertEquals(txos.getInputs(), generator.generate(TxShape.RANDOM, 5).getInputs());
+
+    Assert.assertNotEquals(
+        txos.getInputs(), new TxGenerator(2).generate(TxShape.RANDOM, 5).getInputs());
+  }
+
+  @Test
+  public void testGenerate_shapes() {
+    TxGenerator generator = new TxGenerator(1);
+
+    // Whirlpool 5x5, equal outputs
+    Txos whirlpool = generator.generate(TxShape.WHIRLPOOL, 5);
+    Assert.assertEquals(5, whirlpool.getInputs().size());
+    Assert.assertEquals(1, new HashSet<Long>(whirlpool.getOutputs().values()).size());
+    Assert.assertEquals(Arrays.asList(5), TxShape.WHIRLPOOL.getSizes(12));
+
+    // JoinMarket: size coinjoin outputs + size - 1 changes
+    Txos joinmarket = generator.generate(TxShape.JOINMARKET, 4);
+    Assert.assertEquals(4, joinmarket.getInputs().size());
+    Assert.assertEquals(7, joinmarket.getOutputs().size());
+    Assert.assertEquals(Arrays.asList(2, 3, 4, 5, 6), TxShape.JOINMARKET.getSizes(12));
+
+    // Stonewall: spend + decoy of a same value, 2 changes
+    Txos stonewall = generator.generate(TxShape.STONEWALL, 3);
+    Assert.assertEquals(3, stonewall.getInputs().size());
+    Assert.assertEquals(4, stonewall.getOutputs().size());
+    Assert.assertEquals(stonewall.getOutputs().get("out0"), stonewall.getOutputs().get("out2"));
+  }
+}
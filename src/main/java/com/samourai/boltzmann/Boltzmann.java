@@ -4,13 +4,18 @@ import com.samourai.boltzmann.beans.BoltzmannResult;
 import com.samourai.boltzmann.beans.BoltzmannSettings;
 import com.samourai.boltzmann.beans.Txos;
 import com.samourai.boltzmann.fetch.OxtFetch;
+import com.samourai.boltzmann.jmx.BoltzmannMonitor;
+import com.samourai.boltzmann.jmx.MonitoredRun;
+import com.samourai.boltzmann.linker.CostEstimate;
 import com.samourai.boltzmann.linker.TxosLinkerOptionEnum;
+import com.samourai.boltzmann.processor.EntropyBounds;
 import com.samourai.boltzmann.processor.TxProcessor;
 import com.samourai.boltzmann.processor.TxProcessorResult;
-import com.samourai.boltzmann.utils.ListsUtils;
-import java.util.Arrays;
 
 public class Boltzmann {
+  /** max number of combinations enumerated by bounds() */
+  public static final int BOUNDS_MAX_NB_CMBN = 10000;
+
   private BoltzmannSettings settings;
   private TxProcessor txProcessor;
 
@@ -20,33 +25,100 @@ public class Boltzmann {
 
   public Boltzmann(BoltzmannSettings settings) {
     this.settings = settings;
-    this.txProcessor = new TxProcessor(settings.getMaxDuration(), settings.getMaxTxos());
+    this.txProcessor =
+        new TxProcessor(
+            settings.getMaxDuration(),
+            settings.getMaxTxos(),
+            settings.getMinNbCmbn(),
+            settings.getMaxMemoryBytes());
+    txProcessor.setMemoryGovernor(settings.getMemoryGovernor());
+    txProcessor.setMaxEstimatedDuration(settings.getMaxEstimatedDuration(), BOUNDS_MAX_NB_CMBN);
+    txProcessor.setExecutor(settings.getExecutor());
   }
 
   public BoltzmannResult process(Txos txos) {
     return process(txos, settings.getMaxCjIntrafeesRatio(), settings.getOptions());
   }
 
+  /**
+   * Processes a transaction, notifying a listener of its phases and progress.
+   *
+   * @throws BoltzmannCancelledException if cancelled by the listener
+   */
+  public BoltzmannResult process(Txos txos, BoltzmannListener listener) {
+    return process(txos, settings.getMaxCjIntrafeesRatio(), listener, settings.getOptions());
+  }
+
   public BoltzmannResult process(String txid) throws Exception {
     Txos txos = new OxtFetch().fetch(txid);
     return process(txos, settings.getMaxCjIntrafeesRatio(), settings.getOptions());
   }
 
+  /**
+   * Computes fast [lower, upper] bounds of the entropy of a transaction, before committing to an
+   * exact run.
+   */
+  public EntropyBounds bounds(Txos txos) {
+    return txProcessor.computeBounds(
+        txos, settings.getMaxCjIntrafeesRatio(), BOUNDS_MAX_NB_CMBN, settings.getOptions());
+  }
+
+  /** Predicts the cost of processing a transaction, without running it. */
+  public CostEstimate estimate(Txos txos) {
+    return txProcessor.estimateTx(txos, settings.getMaxCjIntrafeesRatio(), settings.getOptions());
+  }
+
   public BoltzmannResult process(
       Txos txos, float maxCjIntrafeesRatio, TxosLinkerOptionEnum... linkerOptions) {
-    long t1 = System.currentTimeMillis();
+    return process(txos, maxCjIntrafeesRatio, null, linkerOptions);
+  }
+
+  /**
+   * @param listener listener notified of phases and progress, which may cancel the processing (or
+   *     null)
+   * @throws BoltzmannCancelledException if cancelled by the listener
+   */
+  public BoltzmannResult process(
+      Txos txos,
+      float maxCjIntrafeesRatio,
+      BoltzmannListener listener,
+      TxosLinkerOptionEnum... linkerOptions) {
+    BoltzmannMonitor monitor = settings.getMonitor();
+    if (monitor == null) {
+      return doProcess(txos, maxCjIntrafeesRatio, listener, linkerOptions);
+    }
 
-    long sumInputs = Arrays.stream(ListsUtils.toPrimitiveArray(txos.getInputs().values())).sum();
-    long sumOutputs = Arrays.stream(ListsUtils.toPrimitiveArray(txos.getOutputs().values())).sum();
-    long fees = sumInputs - sumOutputs;
-    System.out.println("fees = " + fees);
+    // Tracks the analysis
+    MonitoredRun run =
+        monitor.startRun(txos.getInputs().size(), txos.getOutputs().size(), listener);
+    try {
+      BoltzmannResult result = doProcess(txos, maxCjIntrafeesRatio, run, linkerOptions);
+      monitor.onCompleted(
+          run, result.getMetrics() != null && result.getMetrics().getRejectReason() != null);
+      return result;
+    } catch (BoltzmannCancelledException e) {
+      monitor.onCancelled(run);
+      throw e;
+    } catch (RuntimeException | Error e) {
+      monitor.onFailed(run);
+      throw e;
+    }
+  }
+
+  private BoltzmannResult doProcess(
+      Txos txos,
+      float maxCjIntrafeesRatio,
+      BoltzmannListener listener,
+      TxosLinkerOptionEnum... linkerOptions) {
+    long t1 = System.currentTimeMillis();
 
+    // Searches estimated to exceed maxEstimatedDuration count combinations up to
+    // BOUNDS_MAX_NB_CMBN (lower bound), their estimate is recorded in the metrics
     TxProcessorResult txProcessorResult =
-        txProcessor.processTx(txos, maxCjIntrafeesRatio, linkerOptions);
+        txProcessor.processTx(txos, maxCjIntrafeesRatio, listener, linkerOptions);
+    CostEstimate costEstimate = txProcessorResult.getMetrics().getCostEstimate();
 
     long duration = (System.currentTimeMillis() - t1) / 1000;
-    BoltzmannResult result = new BoltzmannResult(duration, txProcessorResult);
-    result.print();
-    return result;
+    return new BoltzmannResult(duration, txProcessorResult, costEstimate);
   }
 }
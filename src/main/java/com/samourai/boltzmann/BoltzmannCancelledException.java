@@ -0,0 +1,9 @@
+package com.samourai.boltzmann;
+
+/** Thrown when an analysis is cancelled by its {@link BoltzmannListener}. */
+public class BoltzmannCancelledException extends RuntimeException {
+
+  public BoltzmannCancelledException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,41 @@
+package com.samourai.boltzmann;
+
+import com.samourai.boltzmann.utils.RunMetrics;
+
+/**
+ * Receives live status of an analysis started by {@link Boltzmann#process(
+ * com.samourai.boltzmann.beans.Txos, BoltzmannListener)}. Callbacks are invoked from the threads
+ * running the analysis, they should return quickly.
+ */
+public interface BoltzmannListener {
+
+  /** The analysis started, with its metrics context. */
+  default void onStart(RunMetrics metrics) {}
+
+  /** A phase of the analysis started (prepareData, matchAggByVal, computeLinkMatrix...). */
+  default void onPhaseStart(String phase) {}
+
+  /** A phase of the analysis completed. */
+  default void onPhaseEnd(String phase, long durationMillis) {}
+
+  /**
+   * Periodic progress of a phase, at most every {@link
+   * com.samourai.boltzmann.utils.RunMetrics#LISTENER_PROGRESS_MILLIS} milliseconds.
+   *
+   * @param phase name of the phase
+   * @param explored items explored so far (decompositions of the root aggregate for the search)
+   * @param total items to explore
+   * @param etaMillis estimated remaining duration of the phase, or null if unknown yet
+   * @param usedMemoryBytes heap memory currently used
+   */
+  default void onProgress(
+      String phase, long explored, long total, Long etaMillis, long usedMemoryBytes) {}
+
+  /**
+   * Polled by the engine every few milliseconds. Returning true aborts the analysis with a {@link
+   * BoltzmannCancelledException}.
+   */
+  default boolean isCancelled() {
+    return false;
+  }
+}
@@ -0,0 +1,176 @@
+package com.samourai.boltzmann.aggregator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Profile of the search tree explored by computeLinkMatrix(), recorded with the PROFILE option.
+ * Tells why a transaction is slow: too many decompositions (branching), too many output
+ * combinations per task (ndOut sizes), poor pruning (dead branches) or a few expensive root
+ * decompositions.
+ *
+ * <p>Histograms use power-of-2 buckets: bucket 0 counts zeros, bucket k counts values from 2^(k-1)
+ * to 2^k - 1.
+ */
+public class SearchProfile {
+  private static final int NB_BUCKETS = 33;
+  private static final int MAX_DEPTH = 64;
+  private static final int NB_SLOWEST_ROOTS = 5;
+
+  // per depth (root task = depth 1)
+  private final long[] tasksByDepth = new long[MAX_DEPTH + 1];
+  private final long[] childrenByDepth = new long[MAX_DEPTH + 1];
+  private final long[] maxChildrenByDepth = new long[MAX_DEPTH + 1];
+
+  // number of children of each task
+  private final long[] branchingHistogram = new long[NB_BUCKETS];
+  // number of output combinations (ndOut keys) of each task
+  private final long[] ndOutHistogram = new long[NB_BUCKETS];
+
+  private long nbTasks;
+  // tasks without any output combination: their subtree can't produce any combination
+  private long nbDeadTasks;
+
+  // duration of each decomposition of the root task
+  private final List<Long> rootNanos = new ArrayList<Long>();
+  private long rootStartNanos;
+
+  /** A task has been pushed, with its output combinations. */
+  protected void onTask(int nbNdOut) {
+    nbTasks++;
+    if (nbNdOut == 0) {
+      nbDeadTasks++;
+    }
+    ndOutHistogram[bucket(nbNdOut)]++;
+  }
+
+  /** A task has been popped, after pushing nbChildren tasks. */
+  protected void onTaskCompleted(int depth, int nbChildren) {
+    int d = Math.min(depth, MAX_DEPTH);
+    tasksByDepth[d]++;
+    childrenByDepth[d] += nbChildren;
+    maxChildrenByDepth[d] = Math.max(maxChildrenByDepth[d], nbChildren);
+    branchingHistogram[bucket(nbChildren)]++;
+  }
+
+  protected void onRootDecompositionStart() {
+    rootStartNanos = System.nanoTime();
+  }
+
+  protected void onRootDecompositionEnd() {
+    rootNanos.add(System.nanoTime() - rootStartNanos);
+  }
+
+  private static int bucket(long value) {
+    return 64 - Long.numberOfLeadingZeros(value);
+  }
+
+  /** @return tasks pushed by the search, excluding the root task */
+  public long getNbTasks() {
+    return nbTasks;
+  }
+
+  public long getNbDeadTasks() {
+    return nbDeadTasks;
+  }
+
+  public double getDeadTasksRatio() {
+    return nbTasks > 0 ? ((double) nbDeadTasks) / nbTasks : 0;
+  }
+
+  /** @return average number of children of the tasks at each depth (index 0 unused) */
+  public double[] getBranchingByDepth() {
+    double[] branching = new double[maxDepth() + 1];
+    for (int d = 1; d < branching.length; d++) {
+      branching[d] = tasksByDepth[d] > 0 ? ((double) childrenByDepth[d]) / tasksByDepth[d] : 0;
+    }
+    return branching;
+  }
+
+  public long[] getBranchingHistogram() {
+    return branchingHistogram.clone();
+  }
+
+  public long[] getNdOutHistogram() {
+    return ndOutHistogram.clone();
+  }
+
+  /** @return duration of each decomposition of the root task, in nanoseconds */
+  public List<Long> getRootNanos() {
+    return new ArrayList<Long>(rootNanos);
+  }
+
+  private int maxDepth() {
+    int maxDepth = 0;
+    for (int d = 0; d <= MAX_DEPTH; d++) {
+      if (tasksByDepth[d] > 0) {
+        maxDepth = d;
+      }
+    }
+    return maxDepth;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("tasks=")
+        .append(nbTasks)
+        .append(", dead=")
+        .append(nbDeadTasks)
+        .append(String.format(" (%.1f%%)", getDeadTasksRatio() * 100))
+        .append("\n");
+
+    sb.append("branching by depth:");
+    for (int d = 1; d <= maxDepth(); d++) {
+      sb.append(" ")
+          .append(d)
+          .append("=")
+          .append(String.format("%.2f", ((double) childrenByDepth[d]) / tasksByDepth[d]))
+          .append("/")
+          .append(maxChildrenByDepth[d]);
+    }
+    sb.append(" (avg/max)\n");
+
+    sb.append("branching histogram: ").append(histogramToString(branchingHistogram)).append("\n");
+    sb.append("ndOut histogram: ").append(histogramToString(ndOutHistogram)).append("\n");
+
+    // slowest root decompositions
+    long totalRootNanos = 0;
+    for (long nanos : rootNanos) {
+      totalRootNanos += nanos;
+    }
+    List<Integer> slowest = new ArrayList<Integer>();
+    for (int i = 0; i < rootNanos.size(); i++) {
+      slowest.add(i);
+    }
+    slowest.sort((a, b) -> Long.compare(rootNanos.get(b), rootNanos.get(a)));
+    sb.append("root decompositions: ")
+        .append(rootNanos.size())
+        .append(String.format(" in %.3fms", totalRootNanos / 1e6));
+    if (!slowest.isEmpty()) {
+      sb.append(", slowest:");
+      for (int i : slowest.subList(0, Math.min(NB_SLOWEST_ROOTS, slowest.size()))) {
+        sb.append(" #").append(i).append(String.format("=%.3fms", rootNanos.get(i) / 1e6));
+      }
+    }
+    return sb.toString();
+  }
+
+  private static String histogramToString(long[] histogram) {
+    StringBuilder sb = new StringBuilder();
+    for (int b = 0; b < histogram.length; b++) {
+      if (histogram[b] == 0) {
+        continue;
+      }
+      if (sb.length() > 0) {
+        sb.append(" ");
+      }
+      long min = b == 0 ? 0 : 1L << (b - 1);
+      long max = b == 0 ? 0 : (1L << b) - 1;
+      sb.append(min == max ? String.valueOf(min) : min + "-" + max)
+          .append(":")
+          .append(histogram[b]);
+    }
+    return sb.toString();
+  }
+}
@@ -1,24 +1,23 @@
 package com.samourai.boltzmann.aggregator;
 
+import com.samourai.boltzmann.beans.TxoTable;
 import it.unimi.dsi.fastutil.objects.ObjectBigList;
-import java.util.Map;
 
 public class TxosAggregatesData {
 
-  private Map<String, Long> txos;
+  private TxoTable txos;
   private ObjectBigList<long[]>
       allAggIndexes; // each entry value contains array of txos indexes for corresponding
   // allAggVal[entry.key]
   private long[] allAggVal;
 
-  public TxosAggregatesData(
-      Map<String, Long> txos, ObjectBigList<long[]> allAggIndexes, long[] allAggVal) {
+  public TxosAggregatesData(TxoTable txos, ObjectBigList<long[]> allAggIndexes, long[] allAggVal) {
     this.txos = txos;
     this.allAggIndexes = allAggIndexes;
     this.allAggVal = allAggVal;
   }
 
-  public Map<String, Long> getTxos() {
+  public TxoTable getTxos() {
     return txos;
   }
 
@@ -1,22 +1,42 @@
 package com.samourai.boltzmann.aggregator;
 
-import com.samourai.boltzmann.beans.Txos;
+import com.samourai.boltzmann.beans.LinkMatrix;
+import com.samourai.boltzmann.beans.TxoTable;
+import com.samourai.boltzmann.beans.TxosTable;
 import com.samourai.boltzmann.linker.IntraFees;
 import com.samourai.boltzmann.utils.ListsUtils;
-import com.samourai.boltzmann.utils.Utils;
-import it.unimi.dsi.fastutil.ints.IntBigList;
+import com.samourai.boltzmann.utils.ParallelExecutor;
+import com.samourai.boltzmann.utils.RunMetrics;
 import it.unimi.dsi.fastutil.objects.ObjectBigList;
 import java.util.*;
 import java.util.function.ToIntFunction;
-import java.util.stream.IntStream;
-import java.util.stream.LongStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class TxosAggregator {
   private static final Logger log = LoggerFactory.getLogger(TxosAggregator.class);
 
-  public TxosAggregator() {}
+  // duration & progress are checked every 1024 iterations of the search loops
+  private static final int CHECK_INTERVAL_MASK = 0x3FF;
+
+  // partitions are enumerated in 3^n steps by computeNbCmbnUpperBound()
+  private static final int UPPER_BOUND_MAX_TXOS = 14;
+
+  private final ParallelExecutor executor;
+  private final RunMetrics metrics;
+
+  public TxosAggregator() {
+    this(ParallelExecutor.COMMON, new RunMetrics());
+  }
+
+  /**
+   * @param executor executor of the parallel phases
+   * @param metrics metrics of the current run
+   */
+  public TxosAggregator(ParallelExecutor executor, RunMetrics metrics) {
+    this.executor = executor;
+    this.metrics = metrics;
+  }
 
   /**
    * Matches input/output aggregates by values and returns a bunch of data structs
@@ -28,6 +48,27 @@ public class TxosAggregator {
    */
   public TxosAggregatesMatches matchAggByVal(
       TxosAggregates allAgg, final long fees, IntraFees intraFees) {
+    // Computes total fees paid/receiver by taker/maker
+    final boolean hasIntraFees = intraFees != null && intraFees.hasFees();
+    final long feesTaker = hasIntraFees ? fees + intraFees.getFeesTaker() : fees;
+    final long feesMaker =
+        hasIntraFees
+            ? -intraFees.getFeesMaker()
+            : 0; // doesn 't take into account tx fees paid by makers
+    return matchAggByVal(allAgg, feesMaker, feesTaker);
+  }
+
+  /**
+   * Matches input/output aggregates by values. An input aggregate matches an output aggregate when
+   * the difference between their values lies in [minDiff, maxDiff].
+   *
+   * @param allAgg
+   * @param minDiff min value of (inAggVal - outAggVal)
+   * @param maxDiff max value of (inAggVal - outAggVal)
+   * @return
+   */
+  public TxosAggregatesMatches matchAggByVal(
+      TxosAggregates allAgg, final long minDiff, final long maxDiff) {
     final long[] allInAggVal = allAgg.getInAgg().getAllAggVal();
     final long[] allOutAggVal = allAgg.getOutAgg().getAllAggVal();
 
@@ -36,7 +77,7 @@ public class TxosAggregator {
     final long[] allUniqueOutAggVal = Arrays.stream(allOutAggVal).distinct().sorted().toArray();
 
     if (log.isDebugEnabled()) {
-      Utils.logMemory(
+      metrics.logMemory(
           "Matching aggregates: " + allUniqueOutAggVal.length + "x" + allUniqueInAggVal.length);
     }
 
@@ -44,40 +85,27 @@ public class TxosAggregator {
     final Map<Integer, Long> matchInAggToVal = new HashMap<Integer, Long>();
     final Map<Long, List<Integer>> valToMatchOutAgg = new LinkedHashMap<Long, List<Integer>>();
 
-    // Computes total fees paid/receiver by taker/maker
-    final boolean hasIntraFees = intraFees != null && intraFees.hasFees();
-    final long feesTaker = hasIntraFees ? fees + intraFees.getFeesTaker() : 0;
-    final long feesMaker =
-        hasIntraFees
-            ? -intraFees.getFeesMaker()
-            : 0; // doesn 't take into account tx fees paid by makers
-
     // Finds input and output aggregates with matching values
     final String PROGRESS_ID = "matchAggByVal";
-    IntStream.range(0, allUniqueInAggVal.length)
-        .parallel()
+    executor
+        .range(0, allUniqueInAggVal.length)
         .forEachOrdered(
             i -> {
               long inAggVal = allUniqueInAggVal[i];
 
-              Utils.logProgress(PROGRESS_ID, i, allUniqueInAggVal.length);
+              metrics.logProgress(PROGRESS_ID, i, allUniqueInAggVal.length);
 
               for (int j = 0; j < allUniqueOutAggVal.length; j++) {
                 final long outAggVal = allUniqueOutAggVal[j];
 
                 long diff = inAggVal - outAggVal;
 
-                if (!hasIntraFees && diff < 0) {
+                if (diff < minDiff) {
+                  // output values are sorted ASC, no more matching for this input value
                   break;
                 } else {
                   // Computes conditions required for a matching
-                  boolean condNoIntrafees = (!hasIntraFees && diff <= fees);
-                  boolean condIntraFees =
-                      (hasIntraFees
-                          && ((diff <= 0 && diff >= feesMaker)
-                              || (diff >= 0 && diff <= feesTaker)));
-
-                  if (condNoIntrafees || condIntraFees) {
+                  if (diff <= maxDiff) {
                     // Registers the matching input aggregate
                     for (int inIdx = 0; inIdx < allInAggVal.length; inIdx++) {
                       if (allInAggVal[inIdx] == inAggVal) {
@@ -94,8 +122,8 @@ public class TxosAggregator {
                     }
                     final List<Integer> keysMatchOutAgg = valToMatchOutAgg.get(inAggVal);
 
-                    IntStream.range(0, allOutAggVal.length)
-                        .parallel()
+                    executor
+                        .range(0, allOutAggVal.length)
                         .forEachOrdered(
                             indice -> {
                               if (allOutAggVal[indice] == outAggVal) {
@@ -106,10 +134,190 @@ public class TxosAggregator {
                 }
               }
             });
-    Utils.logProgressDone(PROGRESS_ID, allUniqueInAggVal.length);
+    metrics.logProgressDone(PROGRESS_ID, allUniqueInAggVal.length);
+    return new TxosAggregatesMatches(allMatchInAgg, matchInAggToVal, valToMatchOutAgg);
+  }
+
+  /**
+   * Transposes matches computed by {@link #matchAggByVal}, so that output aggregates become the
+   * aggregates decomposed by {@link #computeInAggCmbn}. Matching relation being symmetric, the
+   * result is the same as matching swapped aggregates with opposite bounds, without scanning all
+   * the values again.
+   *
+   * @param allAgg aggregates used to compute aggMatches
+   * @param aggMatches matches to be transposed
+   * @return matches for the transposed aggregates (outputs, inputs)
+   */
+  public TxosAggregatesMatches transposeMatches(
+      TxosAggregates allAgg, TxosAggregatesMatches aggMatches) {
+    final long[] allOutAggVal = allAgg.getOutAgg().getAllAggVal();
+
+    // Groups matching input aggregates by value (values ASC, indexes ASC)
+    Map<Long, List<Integer>> valToMatchInAgg = new LinkedHashMap<Long, List<Integer>>();
+    for (int inIdx : aggMatches.getAllMatchInAgg()) {
+      long inAggVal = aggMatches.getMatchInAggToVal().get(inIdx);
+      List<Integer> inAggs = valToMatchInAgg.get(inAggVal);
+      if (inAggs == null) {
+        inAggs = new ArrayList<Integer>();
+        valToMatchInAgg.put(inAggVal, inAggs);
+      }
+      inAggs.add(inIdx);
+    }
+
+    final List<Integer> allMatchOutAgg = new ArrayList<Integer>();
+    final Map<Integer, Long> matchOutAggToVal = new HashMap<Integer, Long>();
+    final Map<Long, List<Integer>> valToMatchInAggT = new TreeMap<Long, List<Integer>>();
+    for (Map.Entry<Long, List<Integer>> entry : aggMatches.getValToMatchOutAgg().entrySet()) {
+      List<Integer> inAggs = valToMatchInAgg.get(entry.getKey());
+      Set<Long> outAggVals = new LinkedHashSet<Long>();
+      for (int outIdx : entry.getValue()) {
+        long outAggVal = allOutAggVal[outIdx];
+        if (matchOutAggToVal.put(outIdx, outAggVal) == null) {
+          allMatchOutAgg.add(outIdx);
+        }
+        outAggVals.add(outAggVal);
+      }
+
+      // Registers the matching input aggregates once per output value
+      for (long outAggVal : outAggVals) {
+        List<Integer> keysMatchInAgg = valToMatchInAggT.get(outAggVal);
+        if (keysMatchInAgg == null) {
+          keysMatchInAgg = new ArrayList<Integer>();
+          valToMatchInAggT.put(outAggVal, keysMatchInAgg);
+        }
+        keysMatchInAgg.addAll(inAggs);
+      }
+    }
+
+    Collections.sort(allMatchOutAgg, aggComparator(allOutAggVal));
+    return new TxosAggregatesMatches(
+        allMatchOutAgg, matchOutAggToVal, new LinkedHashMap<Long, List<Integer>>(valToMatchInAggT));
+  }
+
+  /**
+   * Computes the aggregates of packed txos expressed as aggregates of unpacked txos. Packing txos
+   * merges their bits, so each packed aggregate is the union of the masks of its txos.
+   *
+   * @param txoMasks for each packed txo, mask of the unpacked txos it contains
+   * @return for each packed aggregate, index of the matching unpacked aggregate
+   */
+  public long[] computeAggMasks(long[] txoMasks) {
+    int nbAggregates = 1 << txoMasks.length;
+    long[] aggMasks = new long[nbAggregates];
+    for (int i = 1; i < nbAggregates; i++) {
+      // adds lowest txo to the aggregate without it
+      aggMasks[i] = aggMasks[i & (i - 1)] | txoMasks[Integer.numberOfTrailingZeros(i)];
+    }
+    return aggMasks;
+  }
+
+  /**
+   * Projects aggregates of unpacked txos on packed txos, without summing values again.
+   *
+   * @param aggData aggregates of unpacked txos
+   * @param packedTxos packed txos sorted by decreasing values
+   * @param aggMasks result of {@link #computeAggMasks} for packedTxos
+   * @return aggregates of packed txos
+   * @throws IllegalArgumentException if aggMasks aren't aggregates of the unpacked txos
+   */
+  public TxosAggregatesData packAggregates(
+      TxosAggregatesData aggData, TxoTable packedTxos, long[] aggMasks) {
+    // Masks are indexes of unpacked aggregates, the largest one being the aggregate of all txos
+    if (aggMasks[aggMasks.length - 1] >= aggData.getAllAggVal().length) {
+      throw new IllegalArgumentException("aggMasks exceed the aggregates of unpacked txos");
+    }
+    Long[] allIndexes = new Long[packedTxos.size()];
+    for (int i = 0; i < allIndexes.length; i++) {
+      allIndexes[i] = (long) i;
+    }
+    ObjectBigList<long[]> allAggIndexes = ListsUtils.powerSet(allIndexes, metrics);
+
+    long[] allAggVal = new long[aggMasks.length];
+    for (int i = 0; i < aggMasks.length; i++) {
+      allAggVal[i] = aggData.getAllAggVal()[(int) aggMasks[i]];
+    }
+    return new TxosAggregatesData(packedTxos, allAggIndexes, allAggVal);
+  }
+
+  /**
+   * Projects matches of unpacked aggregates on packed aggregates. Unpacked aggregates which split a
+   * pack are filtered out, others keep matching the same values.
+   *
+   * @param packedAgg aggregates of packed txos
+   * @param aggMatches matches of unpacked aggregates
+   * @param inAggMasks result of {@link #computeAggMasks} for packed inputs
+   * @param outAggMasks result of {@link #computeAggMasks} for packed outputs
+   * @return matches of packed aggregates, as computed by {@link #matchAggByVal}
+   */
+  public TxosAggregatesMatches packMatches(
+      TxosAggregates packedAgg,
+      TxosAggregatesMatches aggMatches,
+      long[] inAggMasks,
+      long[] outAggMasks) {
+    final long[] allInAggVal = packedAgg.getInAgg().getAllAggVal();
+    final long[] allOutAggVal = packedAgg.getOutAgg().getAllAggVal();
+    final int[] outAggToPacked = invertAggMasks(outAggMasks);
+    final int[] inAggToPacked = invertAggMasks(inAggMasks);
+
+    // Keeps output aggregates which don't split a pack
+    Map<Long, List<Integer>> valToMatchOutAgg = new LinkedHashMap<Long, List<Integer>>();
+    for (Map.Entry<Long, List<Integer>> entry : aggMatches.getValToMatchOutAgg().entrySet()) {
+      List<Integer> keysMatchOutAgg = new ArrayList<Integer>();
+      for (int outIdx : entry.getValue()) {
+        int packedOutIdx = outAggToPacked[outIdx];
+        if (packedOutIdx >= 0) {
+          keysMatchOutAgg.add(packedOutIdx);
+        }
+      }
+      if (!keysMatchOutAgg.isEmpty()) {
+        Collections.sort(keysMatchOutAgg, aggComparator(allOutAggVal));
+        valToMatchOutAgg.put(entry.getKey(), keysMatchOutAgg);
+      }
+    }
+
+    // Keeps input aggregates which don't split a pack and still match an output aggregate
+    List<Integer> allMatchInAgg = new ArrayList<Integer>();
+    Map<Integer, Long> matchInAggToVal = new HashMap<Integer, Long>();
+    Set<Long> matchInVals = new HashSet<Long>();
+    for (int inIdx : aggMatches.getAllMatchInAgg()) {
+      int packedInIdx = inAggToPacked[inIdx];
+      long inAggVal = aggMatches.getMatchInAggToVal().get(inIdx);
+      if (packedInIdx >= 0 && valToMatchOutAgg.containsKey(inAggVal)) {
+        allMatchInAgg.add(packedInIdx);
+        matchInAggToVal.put(packedInIdx, inAggVal);
+        matchInVals.add(inAggVal);
+      }
+    }
+    Collections.sort(allMatchInAgg, aggComparator(allInAggVal));
+    valToMatchOutAgg.keySet().retainAll(matchInVals);
     return new TxosAggregatesMatches(allMatchInAgg, matchInAggToVal, valToMatchOutAgg);
   }
 
+  /**
+   * Inverts result of {@link #computeAggMasks}. Masks are indexes of unpacked aggregates (checked
+   * by {@link #packAggregates}), bounded by the aggregate of all txos (2^maxTxos - 1), so they fit
+   * in an int.
+   *
+   * @return for each unpacked aggregate, index of the packed aggregate or -1 if it splits a pack
+   */
+  private static int[] invertAggMasks(long[] aggMasks) {
+    // last aggregate contains all the txos
+    int[] aggToPacked = new int[Math.toIntExact(aggMasks[aggMasks.length - 1]) + 1];
+    Arrays.fill(aggToPacked, -1);
+    for (int i = 0; i < aggMasks.length; i++) {
+      aggToPacked[(int) aggMasks[i]] = i;
+    }
+    return aggToPacked;
+  }
+
+  /** Sorts aggregates by value ASC then index ASC, as done by matchAggByVal() */
+  private static Comparator<Integer> aggComparator(final long[] allAggVal) {
+    return (a, b) -> {
+      int cmp = Long.compare(allAggVal[a], allAggVal[b]);
+      return cmp != 0 ? cmp : Integer.compare(a, b);
+    };
+  }
+
   /**
    * Computes a matrix of valid combinations (pairs) of input aggregates Returns a dictionary
    * (parent_agg => (child_agg1, child_agg2)) We have a valid combination (agg1, agg2) if: R1/
@@ -122,7 +330,7 @@ public class TxosAggregator {
     aggs.pollFirst(); // remove 0
 
     if (log.isDebugEnabled()) {
-      Utils.logMemory("Computing combinations for " + aggs.size() + " aggregates...");
+      metrics.logMemory("Computing combinations for " + aggs.size() + " aggregates...");
     }
 
     final Map<Long, List<int[]>> mat = new LinkedHashMap<Long, List<int[]>>();
@@ -130,15 +338,15 @@ public class TxosAggregator {
       final int tgt = aggs.pollLast();
 
       final String PROGRESS_ID = "computeInAggCmbn";
-      IntStream.range(0, tgt + 1)
-          .parallel()
+      executor
+          .range(0, tgt + 1)
           .forEachOrdered(
               i -> {
                 if (aggs.contains(i)) {
                   int jMax = Math.min(i, tgt - i + 1);
 
-                  IntStream.range(0, jMax)
-                      .parallel()
+                  executor
+                      .range(0, jMax)
                       .forEach(
                           j -> {
                             if ((i & j) == 0 && aggs.contains(j)) {
@@ -148,10 +356,10 @@ public class TxosAggregator {
                             }
                           });
                 }
-                Utils.logProgress(PROGRESS_ID, i, tgt, mat.size() + " matches");
+                metrics.logProgress(PROGRESS_ID, i, tgt, () -> mat.size() + " matches");
               });
 
-      Utils.logProgressDone(PROGRESS_ID, tgt, mat.size() + " matches");
+      metrics.logProgressDone(PROGRESS_ID, tgt, mat.size() + " matches");
     }
     return mat;
   }
@@ -171,57 +379,50 @@ public class TxosAggregator {
    * @return list of deterministic links as tuples (idx_output, idx_input)
    */
   public Set<long[]> checkDtrmLinks(
-      Txos txos, final TxosAggregates allAgg, final TxosAggregatesMatches aggMatches) {
+      TxosTable txos, final TxosAggregates allAgg, final TxosAggregatesMatches aggMatches) {
     int nbIns = txos.getInputs().size();
     int nbOuts = txos.getOutputs().size();
 
     if (log.isDebugEnabled()) {
-      Utils.logMemory("Checking deterministic links: " + nbOuts + "x" + nbIns);
+      metrics.logMemory("Checking deterministic links: " + nbOuts + "x" + nbIns);
     }
 
-    final ObjectBigList<IntBigList> matCmbn = ListsUtils.newIntMatrix(nbOuts, nbIns, 0);
+    final LinkMatrix matCmbn = LinkMatrix.newMatrix(nbOuts, nbIns, 0);
 
-    final IntBigList inCmbn = ListsUtils.newIntBigList(nbIns, 0);
+    final int[] inCmbn = new int[nbIns];
 
-    aggMatches
-        .getMatchInAggToVal()
-        .entrySet()
-        .stream()
-        .parallel()
+    executor
+        .stream(aggMatches.getMatchInAggToVal().entrySet())
         .forEach(
             inEntry -> {
               final int inIdx = inEntry.getKey();
               long val = inEntry.getValue();
 
-              aggMatches
-                  .getValToMatchOutAgg()
-                  .get(val)
-                  .stream()
-                  .parallel()
+              executor
+                  .stream(aggMatches.getValToMatchOutAgg().get(val))
                   .forEach(
                       outIdx -> {
                         // Computes a matrix storing numbers of raw combinations matching
                         // input/output pairs
-                        updateLinkCmbn(matCmbn, inIdx, outIdx, allAgg);
+                        updateLinkCmbn(matCmbn, inIdx, outIdx, allAgg, 1);
 
                         // Computes sum of combinations along inputs axis to get the number of
                         // combinations
                         long[] inIndexes = allAgg.getInAgg().getAllAggIndexes().get(inIdx);
-                        Arrays.stream(inIndexes)
-                            .parallel()
+                        executor
+                            .stream(inIndexes)
                             .forEach(
                                 inIndex -> {
-                                  int currentValue = inCmbn.getInt(inIndex);
-                                  inCmbn.set(inIndex, currentValue + 1);
+                                  inCmbn[(int) inIndex]++;
                                 });
                       });
             });
 
     // Builds a list of sets storing inputs having a deterministic link with an output
-    int nbCmbn = inCmbn.getInt(0);
+    int nbCmbn = inCmbn[0];
     Set<long[]> dtrmCoords = findDtrmLinks(matCmbn, nbCmbn);
     if (log.isDebugEnabled()) {
-      Utils.logMemory(dtrmCoords.size() + " deterministic links found");
+      metrics.logMemory(dtrmCoords.size() + " deterministic links found");
     }
     return dtrmCoords;
   }
@@ -231,6 +432,8 @@ public class TxosAggregator {
     private long il;
     private long ir;
     private Map<Long, Map<Long, int[]>> dOut;
+    // tasks pushed by this task (profiling only)
+    private int nbChildren;
 
     public ComputeLinkMatrixTask(int idxIl, long il, long ir, Map<Long, Map<Long, int[]>> dOut) {
       this.idxIl = idxIl;
@@ -269,17 +472,33 @@ public class TxosAggregator {
    * @param maxDuration in seconds
    */
   public TxosAggregatorResult computeLinkMatrix(
-      Txos txos,
+      TxosTable txos,
       final TxosAggregates allAgg,
       TxosAggregatesMatches aggMatches,
       Map<Long, List<int[]>> matInAggCmbn,
       Integer maxDuration) {
+    return computeLinkMatrix(txos, allAgg, aggMatches, matInAggCmbn, maxDuration, null);
+  }
+
+  /**
+   * Same as {@link #computeLinkMatrix(TxosTable, TxosAggregates, TxosAggregatesMatches, Map,
+   * Integer)}, recording the search tree into a profile.
+   *
+   * @param profile profile to be filled, or null to disable profiling
+   */
+  public TxosAggregatorResult computeLinkMatrix(
+      TxosTable txos,
+      final TxosAggregates allAgg,
+      TxosAggregatesMatches aggMatches,
+      Map<Long, List<int[]>> matInAggCmbn,
+      Integer maxDuration,
+      SearchProfile profile) {
     int nbTxCmbn = 0;
     final long itGt = (long) Math.pow(2, txos.getInputs().size()) - 1;
     final long otGt = (long) Math.pow(2, txos.getOutputs().size()) - 1;
 
     if (log.isDebugEnabled()) {
-      Utils.logMemory("Computing links for " + itGt + "x" + otGt + "...");
+      metrics.logMemory("Computing links for " + itGt + "x" + otGt + "...");
     }
 
     final Map<Long, Map<Long, Integer>> dLinks = new LinkedHashMap<Long, Map<Long, Integer>>();
@@ -311,15 +530,26 @@ public class TxosAggregator {
 
     int totalIterations = 0;
     int iterations = 0;
+    long loops = 0;
     final String PROGRESS_ID = "computeLinkMatrix";
     // Iterates over all valid inputs combinations (top->down)
     while (!stack.isEmpty()) {
-      // Checks duration
-      long currTime = System.currentTimeMillis();
-      long deltaTimeSeconds = (currTime - startTime) / 1000;
-      if (maxDuration != null && deltaTimeSeconds >= maxDuration) {
-        System.out.println("maxDuration limit reached!");
-        return new TxosAggregatorResult(0, null);
+      // Checks duration & progress (not on each loop, this is the hot path)
+      if ((++loops & CHECK_INTERVAL_MASK) == 0) {
+        long deltaTimeSeconds = (System.currentTimeMillis() - startTime) / 1000;
+        if (maxDuration != null && deltaTimeSeconds >= maxDuration) {
+          System.out.println("maxDuration limit reached!");
+          return new TxosAggregatorResult(0, null);
+        }
+
+        final int iterationsNow = iterations;
+        final int totalIterationsNow = totalIterations;
+        metrics.logProgress(
+            PROGRESS_ID,
+            rootTask.getIdxIl(),
+            rootLenIrcs,
+            () -> iterationsNow + "/" + totalIterationsNow + ", " + dLinks.size() + " dlinks");
+        metrics.dfsSnapshot(stack.size(), iterations, dLinks.size());
       }
 
       // Gets data from task
@@ -342,12 +572,6 @@ public class TxosAggregator {
           // Gets the right input sub-aggregate (row from ircs)
           int nIr = ircs.get(i)[0];
 
-          Utils.logProgress(
-              PROGRESS_ID,
-              rootTask.getIdxIl(),
-              rootLenIrcs,
-              iterations + "/" + totalIterations + ", " + dLinks.size() + " dlinks");
-
           // Run task
           Map<Long, Map<Long, int[]>> ndOut = runTask(nIl, nIr, aggMatches, otGt, t.getdOut());
 
@@ -355,6 +579,14 @@ public class TxosAggregator {
           t.setIdxIl(i + 1);
           iterations++;
 
+          if (profile != null) {
+            if (t == rootTask) {
+              profile.onRootDecompositionStart();
+            }
+            profile.onTask(ndOut.size());
+            t.nbChildren++;
+          }
+
           // Pushes a new task which will decompose the right input aggregate
           stack.add(new ComputeLinkMatrixTask(0, nIl, nIr, ndOut));
           List<int[]> newIrcs = matInAggCmbn.get((long) nIr);
@@ -374,6 +606,12 @@ public class TxosAggregator {
       if (nIdxIl > (lenIrcs - 1)) {
         // Pops the current task
         t = stack.removeLast();
+        if (profile != null) {
+          profile.onTaskCompleted(stack.size() + 1, t.nbChildren);
+          if (stack.size() == 1) {
+            profile.onRootDecompositionEnd();
+          }
+        }
 
         // Checks if it's the root task
         if (stack.isEmpty()) {
@@ -387,87 +625,382 @@ public class TxosAggregator {
         }
       }
     }
-    Utils.logProgressDone(PROGRESS_ID, rootLenIrcs, dLinks.size() + " dlinks");
+    metrics.logProgressDone(PROGRESS_ID, rootLenIrcs, dLinks.size() + " dlinks");
 
+    metrics.setCardinality("nbIterations", iterations);
+    metrics.setCardinality("nbDLinks", dLinks.size());
+    metrics.startPhase("finalize");
     TxosAggregatorResult result = finalizeLinkMatrix(allAgg, itGt, otGt, dLinks, nbTxCmbn);
     return result;
   }
 
-  private TxosAggregatorResult finalizeLinkMatrix(
+  /** Frame of the depth-first traversal of computeNbCmbn() */
+  private static class CountTask {
+    private final long il;
+    private final long or;
+    private final List<int[]> ircs;
+    private int idxIrc;
+    private int idxOl;
+    private long nbCmbn;
+
+    CountTask(long il, long or, List<int[]> ircs) {
+      this.il = il;
+      this.or = or;
+      this.ircs = ircs;
+    }
+  }
+
+  /**
+   * Computes the number of combinations only, without the linkability matrix. Same traversal as
+   * computeLinkMatrix(), but each task is bound to a single output aggregate and only keeps a
+   * counter of child combinations, which replaces the dLinks bookkeeping and the back-propagation
+   * in onTaskCompleted().
+   *
+   * @param maxDuration in seconds
+   * @return TxosAggregatorResult without linkability matrix
+   */
+  public TxosAggregatorResult computeNbCmbn(
+      TxosTable txos,
+      TxosAggregatesMatches aggMatches,
+      Map<Long, List<int[]>> matInAggCmbn,
+      Integer maxDuration) {
+    return computeNbCmbn(txos, aggMatches, matInAggCmbn, maxDuration, null);
+  }
+
+  /**
+   * Computes the number of combinations, stopping as soon as minNbCmbn combinations have been
+   * found. Each task pushed on the stack is a distinct combination, so the number of pushed tasks
+   * (+1 for the combination of all inputs with all outputs) is a lower bound of nbCmbn.
+   *
+   * @param maxDuration in seconds
+   * @param minNbCmbn threshold of combinations, or null to count all combinations
+   * @return TxosAggregatorResult without linkability matrix. When minNbCmbn is set, nbCmbn is a
+   *     lower bound if the threshold has been reached or maxDuration exceeded.
+   */
+  public TxosAggregatorResult computeNbCmbn(
+      TxosTable txos,
+      TxosAggregatesMatches aggMatches,
+      Map<Long, List<int[]>> matInAggCmbn,
+      Integer maxDuration,
+      Integer minNbCmbn) {
+    final long itGt = (1L << txos.getInputs().size()) - 1;
+    final long otGt = (1L << txos.getOutputs().size()) - 1;
+
+    if (log.isDebugEnabled()) {
+      metrics.logMemory("Computing nbCmbn for " + itGt + "x" + otGt + "...");
+    }
+
+    Map<Long, int[]> matchOutAggByVal = sortMatchOutAggByVal(aggMatches);
+
+    Deque<CountTask> stack = new ArrayDeque<CountTask>();
+    stack.add(new CountTask(0, otGt, matInAggCmbn.get(itGt)));
+
+    final CountTask rootTask = stack.getFirst();
+    int rootLenIrcs = (rootTask.ircs != null ? rootTask.ircs.size() : 0);
+
+    long startTime = System.currentTimeMillis();
+    long iterations = 0;
+    long nbTxCmbn = 0;
+    // combinations found so far
+    long lowerBound = 1;
+    final String PROGRESS_ID = "computeNbCmbn";
+    while (!stack.isEmpty()) {
+      // Checks duration & progress
+      if ((++iterations & CHECK_INTERVAL_MASK) == 0) {
+        long deltaTimeSeconds = (System.currentTimeMillis() - startTime) / 1000;
+        if (maxDuration != null && deltaTimeSeconds >= maxDuration) {
+          log.warn("maxDuration limit reached!");
+          if (minNbCmbn != null) {
+            // threshold couldn't be checked, lower bound only
+            return new TxosAggregatorResult(toNbCmbn(lowerBound), null, null);
+          }
+          return new TxosAggregatorResult(0, null);
+        }
+
+        final long lowerBoundNow = lowerBound;
+        metrics.logProgress(
+            PROGRESS_ID, rootTask.idxIrc, rootLenIrcs, () -> lowerBoundNow + " combinations");
+        metrics.dfsSnapshot(stack.size(), iterations, 0);
+      }
+
+      CountTask t = stack.getLast();
+      CountTask child = nextCountTask(t, otGt, aggMatches, matchOutAggByVal, matInAggCmbn);
+      if (child != null) {
+        stack.add(child);
+        lowerBound++;
+        if (minNbCmbn != null && lowerBound >= minNbCmbn) {
+          // threshold reached, no need to count remaining combinations
+          return new TxosAggregatorResult(
+              toNbCmbn(lowerBound), null, true, computeNbCmbnUpperBound(txos, aggMatches));
+        }
+        continue;
+      }
+
+      // Task completed: counts its own combination + child combinations in parent task
+      stack.removeLast();
+      if (stack.isEmpty()) {
+        // root task + combination of all inputs with all outputs
+        nbTxCmbn = t.nbCmbn + 1;
+      } else {
+        stack.getLast().nbCmbn += t.nbCmbn + 1;
+      }
+    }
+    metrics.logProgressDone(PROGRESS_ID, rootLenIrcs, nbTxCmbn + " combinations");
+    if (minNbCmbn != null) {
+      return new TxosAggregatorResult(toNbCmbn(nbTxCmbn), null, nbTxCmbn >= minNbCmbn);
+    }
+    return new TxosAggregatorResult(toNbCmbn(nbTxCmbn), null);
+  }
+
+  private static int toNbCmbn(long nbCmbn) {
+    return (int) Math.min(nbCmbn, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Computes an upper bound of the number of combinations from the matches of aggregates, without
+   * enumerating the combinations. A combination pairs a partition of inputs with a partition of
+   * outputs, each pair being a matching input and output aggregate (one of them may be the empty
+   * aggregate, e.g. for inputs only paying fees). Counting the partitions of inputs (and outputs)
+   * into matching aggregates only, times the ways of pairing their aggregates, bounds the number of
+   * such combinations.
+   *
+   * @return upper bound of nbCmbn, or null if there are too many txos to enumerate their partitions
+   */
+  public Double computeNbCmbnUpperBound(TxosTable txos, TxosAggregatesMatches aggMatches) {
+    int nbIns = txos.getInputs().size();
+    int nbOuts = txos.getOutputs().size();
+    if (Math.max(nbIns, nbOuts) > UPPER_BOUND_MAX_TXOS) {
+      return null;
+    }
+
+    // Aggregates matching an aggregate of the other side (aggregate indexes are txos masks)
+    boolean[] inBlocks = new boolean[1 << nbIns];
+    boolean[] outBlocks = new boolean[1 << nbOuts];
+    boolean emptyIn = false;
+    boolean emptyOut = false;
+    for (int inIdx : aggMatches.getAllMatchInAgg()) {
+      List<Integer> outIdxs =
+          aggMatches.getValToMatchOutAgg().get(aggMatches.getMatchInAggToVal().get(inIdx));
+      if (outIdxs == null) {
+        continue;
+      }
+      for (int outIdx : outIdxs) {
+        if (inIdx == 0 && outIdx == 0) {
+          continue;
+        }
+        if (inIdx == 0) {
+          emptyIn = true;
+        } else {
+          inBlocks[inIdx] = true;
+        }
+        if (outIdx == 0) {
+          emptyOut = true;
+        } else {
+          outBlocks[outIdx] = true;
+        }
+      }
+    }
+
+    double[] nbInPartitions = countPartitions(nbIns, inBlocks);
+    double[] nbOutPartitions = countPartitions(nbOuts, outBlocks);
+    double upperNbCmbn = 0;
+    for (int kIn = 1; kIn < nbInPartitions.length; kIn++) {
+      for (int kOut = 1; kOut < nbOutPartitions.length; kOut++) {
+        if (nbInPartitions[kIn] == 0 || nbOutPartitions[kOut] == 0) {
+          continue;
+        }
+        // pairs a aggregates of each side, others are paired with the empty aggregate
+        double nbPairings = 0;
+        for (int a = 0; a <= Math.min(kIn, kOut); a++) {
+          if ((kIn > a && !emptyOut) || (kOut > a && !emptyIn)) {
+            continue;
+          }
+          nbPairings += binomial(kIn, a) * binomial(kOut, a) * factorial(a);
+        }
+        upperNbCmbn += nbInPartitions[kIn] * nbOutPartitions[kOut] * nbPairings;
+      }
+    }
+    return upperNbCmbn;
+  }
+
+  /**
+   * Counts the partitions of txos into allowed aggregates.
+   *
+   * @param blocks allowed aggregates, by mask
+   * @return number of partitions by number of aggregates
+   */
+  private static double[] countPartitions(int nbTxos, boolean[] blocks) {
+    int all = (1 << nbTxos) - 1;
+    double[][] nbPartitions = new double[all + 1][];
+    nbPartitions[0] = new double[] {1};
+    for (int mask = 1; mask <= all; mask++) {
+      double[] counts = new double[Integer.bitCount(mask) + 1];
+      // aggregates containing the lowest txo of the mask, so that each partition is counted once
+      int lowest = mask & -mask;
+      int rest = mask ^ lowest;
+      for (int sub = rest; ; sub = (sub - 1) & rest) {
+        int block = sub | lowest;
+        if (blocks[block]) {
+          double[] restCounts = nbPartitions[mask ^ block];
+          for (int k = 0; k < restCounts.length; k++) {
+            counts[k + 1] += restCounts[k];
+          }
+        }
+        if (sub == 0) {
+          break;
+        }
+      }
+      nbPartitions[mask] = counts;
+    }
+    return nbPartitions[all];
+  }
+
+  private static double binomial(int n, int k) {
+    double result = 1;
+    for (int i = 1; i <= k; i++) {
+      result = result * (n - k + i) / i;
+    }
+    return result;
+  }
+
+  private static double factorial(int n) {
+    double result = 1;
+    for (int i = 2; i <= n; i++) {
+      result *= i;
+    }
+    return result;
+  }
+
+  /**
+   * Estimates the number of tasks of computeNbCmbn() without running it, by sampling random paths
+   * of the search tree (Knuth's estimator). Each probe walks from the root to a leaf by picking a
+   * random child at each level: the product of the numbers of children met along the path is an
+   * unbiased estimate of the number of tasks at that depth.
+   *
+   * @param nbProbes number of random paths to be averaged
+   * @return estimated number of tasks, excluding the root task (nbCmbn - 1)
+   */
+  public double estimateNbTasks(
+      TxosTable txos,
+      TxosAggregatesMatches aggMatches,
+      Map<Long, List<int[]>> matInAggCmbn,
+      int nbProbes,
+      Random random) {
+    final long itGt = (1L << txos.getInputs().size()) - 1;
+    final long otGt = (1L << txos.getOutputs().size()) - 1;
+    Map<Long, int[]> matchOutAggByVal = sortMatchOutAggByVal(aggMatches);
+
+    double nbTasks = 0;
+    List<CountTask> childs = new ArrayList<CountTask>();
+    for (int probe = 0; probe < nbProbes; probe++) {
+      CountTask t = new CountTask(0, otGt, matInAggCmbn.get(itGt));
+      double weight = 1;
+      while (true) {
+        childs.clear();
+        CountTask child;
+        while ((child = nextCountTask(t, otGt, aggMatches, matchOutAggByVal, matInAggCmbn))
+            != null) {
+          childs.add(child);
+        }
+        if (childs.isEmpty()) {
+          break;
+        }
+        weight *= childs.size();
+        nbTasks += weight;
+        t = childs.get(random.nextInt(childs.size()));
+      }
+    }
+    return nbTasks / nbProbes;
+  }
+
+  /** @return matching output aggregates by value, sorted for binary search */
+  private static Map<Long, int[]> sortMatchOutAggByVal(TxosAggregatesMatches aggMatches) {
+    Map<Long, int[]> matchOutAggByVal = new HashMap<Long, int[]>();
+    for (Map.Entry<Long, List<Integer>> entry : aggMatches.getValToMatchOutAgg().entrySet()) {
+      int[] outAggs = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+      Arrays.sort(outAggs);
+      matchOutAggByVal.put(entry.getKey(), outAggs);
+    }
+    return matchOutAggByVal;
+  }
+
+  /**
+   * Finds the next valid (input combination, output combination) pair of a task.
+   *
+   * @return the child task, or null if the task has completed
+   */
+  private CountTask nextCountTask(
+      CountTask t,
+      long otGt,
+      TxosAggregatesMatches aggMatches,
+      Map<Long, int[]> matchOutAggByVal,
+      Map<Long, List<int[]>> matInAggCmbn) {
+    int lenIrcs = (t.ircs != null ? t.ircs.size() : 0);
+    final long sol = otGt - t.or;
+    for (; t.idxIrc < lenIrcs; t.idxIrc++, t.idxOl = 0) {
+      int[] irc = t.ircs.get(t.idxIrc);
+      int nIl = irc[1];
+      if (nIl <= t.il) {
+        // columns from ircs are sorted in decreasing order
+        t.idxIrc = lenIrcs;
+        return null;
+      }
+      int nIr = irc[0];
+      int[] matchOutAggIl = matchOutAggByVal.get(aggMatches.getMatchInAggToVal().get(nIl));
+      int[] matchOutAggIr = matchOutAggByVal.get(aggMatches.getMatchInAggToVal().get(nIr));
+      while (t.idxOl < matchOutAggIl.length) {
+        int nOl = matchOutAggIl[t.idxOl++];
+        if ((sol & nOl) == 0) {
+          long nSol = sol + nOl;
+          long nOr = otGt - nSol;
+          if ((nSol & nOr) == 0 && Arrays.binarySearch(matchOutAggIr, (int) nOr) >= 0) {
+            return new CountTask(nIl, nOr, matInAggCmbn.get((long) nIr));
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  protected TxosAggregatorResult finalizeLinkMatrix(
       final TxosAggregates allAgg,
       long itGt,
       long otGt,
       final Map<Long, Map<Long, Integer>> dLinks,
       int nbTxCmbn) {
 
-    // clone from this map for better performances
-    final ObjectBigList<IntBigList> linksClear = newLinkCmbn(allAgg);
-
     // Fills the matrix
-    Utils.logMemory("Filling matrix for allAgg... " + itGt + "x" + otGt);
-    final ObjectBigList<IntBigList> links = ListsUtils.clone(linksClear);
-    updateLinkCmbn(links, itGt, otGt, allAgg);
+    metrics.logMemory("Filling matrix for allAgg... " + itGt + "x" + otGt);
+    final LinkMatrix links = newLinkCmbn(allAgg);
+    updateLinkCmbn(links, itGt, otGt, allAgg, 1);
     nbTxCmbn++;
 
-    final long linksX = links.size64();
-    final long linksY = links.get(0).size64();
-
     // iterate dLinks key0
     final String PROGRESS_ID = "finalizeLinkMatrix";
-    final long[] i = {0};
-    dLinks
-        .entrySet()
-        .stream()
-        .parallel()
-        .forEachOrdered(
-            firstKeyEntry -> {
-              final long key0 = firstKeyEntry.getKey();
-
-              Utils.logProgress(
-                  PROGRESS_ID,
-                  i[0]++,
-                  dLinks.size(),
-                  "Processing dLink... "
-                      + firstKeyEntry.getValue().size()
-                      + " x ("
-                      + linksX
-                      + "x"
-                      + linksY
-                      + ")");
-
-              // iterate dLinks key1
-              firstKeyEntry
-                  .getValue()
-                  .entrySet()
-                  .stream()
-                  .parallel()
-                  .forEachOrdered(
-                      secondKeyEntry -> {
-                        long key1 = secondKeyEntry.getKey();
-
-                        final int mult = secondKeyEntry.getValue();
-                        final ObjectBigList<IntBigList> linkCmbn = ListsUtils.clone(linksClear);
-                        updateLinkCmbn(linkCmbn, key0, key1, allAgg);
-
-                        LongStream.range(0, linksX)
-                            .parallel()
-                            .forEach(
-                                i1 ->
-                                    LongStream.range(0, linksY)
-                                        .parallel()
-                                        .forEach(
-                                            j -> {
-                                              int currentValue = links.get(i1).getInt(j);
-                                              links
-                                                  .get(i1)
-                                                  .set(
-                                                      j,
-                                                      currentValue
-                                                          + linkCmbn.get(i1).getInt(j) * mult);
-                                            }));
-                      });
-            });
-    Utils.logProgressDone(PROGRESS_ID, dLinks.size());
+    long i = 0;
+    for (Map.Entry<Long, Map<Long, Integer>> firstKeyEntry : dLinks.entrySet()) {
+      final long key0 = firstKeyEntry.getKey();
+
+      metrics.logProgress(
+          PROGRESS_ID,
+          i++,
+          dLinks.size(),
+          () ->
+              "Processing dLink... "
+                  + firstKeyEntry.getValue().size()
+                  + " x ("
+                  + links.getRows()
+                  + "x"
+                  + links.getCols()
+                  + ")");
+
+      // iterate dLinks key1: accumulates the links of each pair of aggregates, weighted by its
+      // number of occurences
+      for (Map.Entry<Long, Integer> secondKeyEntry : firstKeyEntry.getValue().entrySet()) {
+        updateLinkCmbn(links, key0, secondKeyEntry.getKey(), allAgg, secondKeyEntry.getValue());
+      }
+    }
+    metrics.logProgressDone(PROGRESS_ID, dLinks.size());
     return new TxosAggregatorResult(nbTxCmbn, links);
   }
 
@@ -479,10 +1012,8 @@ public class TxosAggregator {
     // Iterates over all entries from d_out
     final long il = t.getIl();
     final long ir = t.getIr();
-    t.getdOut()
-        .entrySet()
-        .stream()
-        .parallel()
+    executor
+        .stream(t.getdOut().entrySet())
         .forEachOrdered(
             doutEntry -> {
               final long or = doutEntry.getKey();
@@ -490,9 +1021,8 @@ public class TxosAggregator {
               final long[] rKey = new long[] {ir, or};
 
               // Iterates over all left aggregates
-              lOl.entrySet()
-                  .stream()
-                  .parallel()
+              executor
+                  .stream(lOl.entrySet())
                   .forEach(
                       olEntry -> {
                         long ol = olEntry.getKey();
@@ -512,9 +1042,8 @@ public class TxosAggregator {
                         // combinations
                         final long pOr = ol + or;
                         final Map<Long, int[]> plOl = pt.getdOut().get(pOr);
-                        plOl.entrySet()
-                            .stream()
-                            .parallel()
+                        executor
+                            .stream(plOl.entrySet())
                             .forEach(plOlEntry -> plOlEntry.getValue()[1] += nbOccur);
                       });
             });
@@ -544,9 +1073,8 @@ public class TxosAggregator {
     final Map<Long, Map<Long, int[]>> ndOut = new LinkedHashMap<Long, Map<Long, int[]>>();
 
     // Iterates over outputs combinations previously found
-    dOut.entrySet()
-        .stream()
-        .parallel()
+    executor
+        .stream(dOut.entrySet())
         .forEachOrdered(
             new java.util.function.Consumer<Map.Entry<Long, Map<Long, int[]>>>() {
               @Override
@@ -556,11 +1084,8 @@ public class TxosAggregator {
 
                 // Computes the number of parent combinations
                 final int nbPrt =
-                    oREntry
-                        .getValue()
-                        .values()
-                        .stream()
-                        .parallel()
+                    executor
+                        .stream(oREntry.getValue().values())
                         .mapToInt(
                             new ToIntFunction<int[]>() {
                               @Override
@@ -572,11 +1097,8 @@ public class TxosAggregator {
 
                 // Iterates over output sub-aggregates matching with left input sub-aggregate
                 long valIl = aggMatches.getMatchInAggToVal().get(nIl);
-                aggMatches
-                    .getValToMatchOutAgg()
-                    .get(valIl)
-                    .stream()
-                    .parallel()
+                executor
+                    .stream(aggMatches.getValToMatchOutAgg().get(valIl))
                     .forEach(
                         nOl -> {
                           // Checks compatibility of output sub-aggregate with left part of output
@@ -619,7 +1141,7 @@ public class TxosAggregator {
    *
    * @param allAgg
    */
-  private ObjectBigList<IntBigList> newLinkCmbn(TxosAggregates allAgg) {
+  private LinkMatrix newLinkCmbn(TxosAggregates allAgg) {
     long maxOutIndex = 0;
     for (long[] indexes : allAgg.getOutAgg().getAllAggIndexes()) {
       long max = Arrays.stream(indexes).max().orElse(0);
@@ -639,7 +1161,7 @@ public class TxosAggregator {
     // System.err.println("outAgg="+Arrays.deepToString(allAgg.getOutAgg().getAllAggIndexes().values().toArray()));
     // System.err.println("inAgg="+Arrays.deepToString(allAgg.getInAgg().getAllAggIndexes().values().toArray()));
     // System.err.println("maxOutIndex="+maxOutIndex+", maxInIndex="+maxInIndex);
-    ObjectBigList<IntBigList> matCmbn = ListsUtils.newIntMatrix(maxOutIndex + 1, maxInIndex + 1, 0);
+    LinkMatrix matCmbn = LinkMatrix.newMatrix(maxOutIndex + 1, maxInIndex + 1, 0);
     return matCmbn;
   }
 
@@ -650,16 +1172,16 @@ public class TxosAggregator {
    * @param inAgg input aggregate
    * @param outAgg output aggregate
    * @param allAgg
+   * @param nbOccur number of occurences of the aggregate
    */
-  private ObjectBigList<IntBigList> updateLinkCmbn(
-      ObjectBigList<IntBigList> matCmbn, long inAgg, long outAgg, TxosAggregates allAgg) {
+  private LinkMatrix updateLinkCmbn(
+      LinkMatrix matCmbn, long inAgg, long outAgg, TxosAggregates allAgg, int nbOccur) {
     long[] outIndexes = allAgg.getOutAgg().getAllAggIndexes().get(outAgg);
     long[] inIndexes = allAgg.getInAgg().getAllAggIndexes().get(inAgg);
 
-    for (long inIndex : inIndexes) {
-      for (long outIndex : outIndexes) {
-        int value = matCmbn.get(outIndex).getInt(inIndex);
-        matCmbn.get(outIndex).set(inIndex, value + 1);
+    for (long outIndex : outIndexes) {
+      for (long inIndex : inIndexes) {
+        matCmbn.add(outIndex, inIndex, nbOccur);
       }
     }
     return matCmbn;
@@ -672,11 +1194,11 @@ public class TxosAggregator {
    * @param nbCmbn number of combination
    * @return
    */
-  public Set<long[]> findDtrmLinks(ObjectBigList<IntBigList> matCmbn, int nbCmbn) {
+  public Set<long[]> findDtrmLinks(LinkMatrix matCmbn, int nbCmbn) {
     Set<long[]> dtrmCoords = new LinkedHashSet<long[]>();
-    for (long i = 0; i < matCmbn.size64(); i++) {
-      for (long j = 0; j < matCmbn.get(i).size64(); j++) {
-        if (matCmbn.get(i).getInt(j) == nbCmbn) {
+    for (long i = 0; i < matCmbn.getRows(); i++) {
+      for (long j = 0; j < matCmbn.getCols(); j++) {
+        if (matCmbn.get(i, j) == nbCmbn) {
           dtrmCoords.add(new long[] {i, j});
         }
       }
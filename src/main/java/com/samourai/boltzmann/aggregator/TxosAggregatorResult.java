@@ -1,63 +1,83 @@
 package com.samourai.boltzmann.aggregator;
 
 import com.google.common.math.DoubleMath;
-import it.unimi.dsi.fastutil.doubles.DoubleBigArrayBigList;
-import it.unimi.dsi.fastutil.doubles.DoubleBigList;
-import it.unimi.dsi.fastutil.ints.IntBigList;
-import it.unimi.dsi.fastutil.objects.ObjectBigArrayBigList;
-import it.unimi.dsi.fastutil.objects.ObjectBigList;
+import com.samourai.boltzmann.beans.LinkMatrix;
+import com.samourai.boltzmann.beans.ProbabilityMatrix;
 
 public class TxosAggregatorResult {
 
   private int nbCmbn;
-  private ObjectBigList<IntBigList> matLnkCombinations;
+  private LinkMatrix matLnkCombinations;
+
+  // true if nbCmbn reached the requested threshold (nbCmbn is then a lower bound), null if no
+  // threshold was requested or if it couldn't be checked
+  private Boolean thresholdReached;
+
+  // upper bound of nbCmbn when the threshold has been reached (null otherwise)
+  private Double upperNbCmbn;
 
   /**
    * @param nbCmbn
    * @param matLnk Matrix of txos linkability: Columns = input txos, Rows = output txos, Cells =
    *     number of combinations for which an input and an output are linked
    */
-  public TxosAggregatorResult(int nbCmbn, ObjectBigList<IntBigList> matLnk) {
+  public TxosAggregatorResult(int nbCmbn, LinkMatrix matLnk) {
+    this(nbCmbn, matLnk, null);
+  }
+
+  /**
+   * @param nbCmbn number of combinations, or lower bound when thresholdReached is not null
+   * @param matLnk Matrix of txos linkability
+   * @param thresholdReached true if nbCmbn reached the requested threshold
+   */
+  public TxosAggregatorResult(int nbCmbn, LinkMatrix matLnk, Boolean thresholdReached) {
+    this(nbCmbn, matLnk, thresholdReached, null);
+  }
+
+  /**
+   * @param nbCmbn number of combinations, or lower bound when thresholdReached is not null
+   * @param matLnk Matrix of txos linkability
+   * @param thresholdReached true if nbCmbn reached the requested threshold
+   * @param upperNbCmbn upper bound of the number of combinations, when the threshold has been
+   *     reached
+   */
+  public TxosAggregatorResult(
+      int nbCmbn, LinkMatrix matLnk, Boolean thresholdReached, Double upperNbCmbn) {
     this.nbCmbn = nbCmbn;
     this.matLnkCombinations = matLnk;
+    this.thresholdReached = thresholdReached;
+    this.upperNbCmbn = upperNbCmbn;
   }
 
   public int getNbCmbn() {
     return nbCmbn;
   }
 
-  public ObjectBigList<IntBigList> getMatLnkCombinations() {
+  public LinkMatrix getMatLnkCombinations() {
     return matLnkCombinations;
   }
 
-  public ObjectBigList<DoubleBigList> computeMatLnkProbabilities() {
+  public Boolean getThresholdReached() {
+    return thresholdReached;
+  }
+
+  /** @return upper bound of nbCmbn when the threshold has been reached, or null */
+  public Double getUpperNbCmbn() {
+    return upperNbCmbn;
+  }
+
+  public ProbabilityMatrix computeMatLnkProbabilities() {
     if (matLnkCombinations == null) {
       // entropy=0 => matrix full of 1 probabilities, ie
       // a1075db55d416d3ca199f55b6084e2115b9345e16c5cf302fc80e9d5fbf5d48d
       return null;
     }
-    ObjectBigList<DoubleBigList> matLnkProbabilities =
-        new ObjectBigArrayBigList<DoubleBigList>(matLnkCombinations.size64());
-    if (nbCmbn > 0) {
-      for (long i = 0; i < matLnkCombinations.size64(); i++) {
-        IntBigList line = matLnkCombinations.get(i);
-        DoubleBigList values = new DoubleBigArrayBigList(line.size64());
-        for (long j = 0; j < line.size64(); j++) {
-          int val = line.getInt(j);
-          double value = new Double(val) / nbCmbn;
-          values.add(value);
-        }
-        matLnkProbabilities.add(values);
-      }
-    } else {
+    if (nbCmbn <= 0) {
       // TODO ???
-      /*for (long i = 0; i < matLnkCombinations.size64(); i++) {
-        DoubleBigList line = new DoubleBigArrayBigList(0);
-        matLnkProbabilities.add(line);
-      }*/
       System.err.println("nbCmbn=0");
+      return ProbabilityMatrix.of(new double[][] {});
     }
-    return matLnkProbabilities;
+    return ProbabilityMatrix.of(matLnkCombinations, nbCmbn);
   }
 
   public double computeEntropy() {
@@ -0,0 +1,53 @@
+package com.samourai.boltzmann.beans;
+
+import it.unimi.dsi.fastutil.BigArrays;
+import it.unimi.dsi.fastutil.ints.IntBigArrays;
+
+/** LinkMatrix stored in a row-major big array, for matrices which don't fit in a Java array. */
+class BigLinkMatrix extends LinkMatrix {
+
+  private final int[][] cells;
+
+  BigLinkMatrix(long rows, long cols) {
+    this(rows, cols, IntBigArrays.newBigArray(rows * cols));
+  }
+
+  private BigLinkMatrix(long rows, long cols, int[][] cells) {
+    super(rows, cols);
+    this.cells = cells;
+  }
+
+  @Override
+  public int get(long row, long col) {
+    return BigArrays.get(cells, row * cols + col);
+  }
+
+  @Override
+  public void set(long row, long col, int value) {
+    BigArrays.set(cells, row * cols + col, value);
+  }
+
+  @Override
+  public void add(long row, long col, int value) {
+    BigArrays.add(cells, row * cols + col, value);
+  }
+
+  @Override
+  public void fill(int value) {
+    BigArrays.fill(cells, value);
+  }
+
+  @Override
+  public void addAll(LinkMatrix other) {
+    for (long i = 0; i < rows; i++) {
+      for (long j = 0; j < cols; j++) {
+        add(i, j, other.get(i, j));
+      }
+    }
+  }
+
+  @Override
+  public LinkMatrix copy() {
+    return new BigLinkMatrix(rows, cols, BigArrays.copy(cells));
+  }
+}
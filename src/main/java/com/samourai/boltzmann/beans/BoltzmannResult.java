@@ -2,43 +2,37 @@ package com.samourai.boltzmann.beans;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.math.DoubleMath;
+import com.samourai.boltzmann.linker.CostEstimate;
 import com.samourai.boltzmann.processor.TxProcessorResult;
+import com.samourai.boltzmann.utils.PhaseMetrics;
 import com.samourai.boltzmann.utils.Progress;
 import com.samourai.boltzmann.utils.Utils;
 import java.util.*;
 
 public class BoltzmannResult extends TxProcessorResult {
+  // computed on first access
   private String[][] dtrmLnks;
   private long duration;
+  // set when processed in estimated mode
+  private CostEstimate costEstimate;
 
   public BoltzmannResult(long duration, TxProcessorResult r) {
-    super(
-        r.getNbCmbn(),
-        r.getMatLnkCombinations(),
-        r.getMatLnkProbabilities(),
-        r.getEntropy(),
-        r.getDtrmLnksById(),
-        r.getTxos(),
-        r.getFees(),
-        r.getIntraFees(),
-        r.getEfficiency(),
-        r.getNbCmbnPrfctCj(),
-        r.getNbTxosPrfctCj());
-    this.dtrmLnks =
-        r.getDtrmLnksById() != null ? replaceDtrmLinks(r.getDtrmLnksById(), r.getTxos()) : null;
+    this(duration, r, null);
+  }
+
+  public BoltzmannResult(long duration, TxProcessorResult r, CostEstimate costEstimate) {
+    super(r);
     this.duration = duration;
+    this.costEstimate = costEstimate;
   }
 
-  private String[][] replaceDtrmLinks(Set<long[]> dtrmLinks, Txos txos) {
+  private String[][] replaceDtrmLinks(Set<long[]> dtrmLinks, TxosTable txos) {
     String[][] result = new String[dtrmLinks.size()][2];
 
-    String[] outs = txos.getOutputs().keySet().toArray(new String[] {});
-    String[] ins = txos.getInputs().keySet().toArray(new String[] {});
-
     int i = 0;
     for (long[] dtrmLink : dtrmLinks) {
-      String out = outs[(int) dtrmLink[0]]; // TODO !!! cast
-      String in = ins[(int) dtrmLink[1]]; // TODO !!! cast
+      String out = txos.getOutputs().getLabel((int) dtrmLink[0]); // TODO !!! cast
+      String in = txos.getInputs().getLabel((int) dtrmLink[1]); // TODO !!! cast
       result[i] = new String[] {out, in};
       i++;
     }
@@ -47,6 +41,9 @@ public class BoltzmannResult extends TxProcessorResult {
   }
 
   public String[][] getDtrmLnks() {
+    if (dtrmLnks == null && getDtrmLnksById() != null) {
+      dtrmLnks = replaceDtrmLinks(getDtrmLnksById(), getTxosTable());
+    }
     return dtrmLnks;
   }
 
@@ -54,6 +51,10 @@ public class BoltzmannResult extends TxProcessorResult {
     return duration;
   }
 
+  public CostEstimate getCostEstimate() {
+    return costEstimate;
+  }
+
   public void print() {
     System.out.println("Inputs = " + getTxos().getInputs());
     System.out.println("Outputs = " + getTxos().getOutputs());
@@ -82,7 +83,13 @@ public class BoltzmannResult extends TxProcessorResult {
               + getNbTxosPrfctCj().getNbOuts()
               + ")");
     }
+    if (getThresholdReached() != null) {
+      System.out.println("Threshold reached = " + getThresholdReached());
+    }
     System.out.println("Nb combinations = " + getNbCmbn());
+    if (costEstimate != null) {
+      System.out.println("Estimated nb combinations = " + Math.round(costEstimate.getNbCmbn()));
+    }
     if (getEntropy() != null) {
       System.out.println("Tx entropy = " + getEntropy() + " bits");
       System.out.println("Entropy denstity = " + getDensity());
@@ -101,6 +108,9 @@ public class BoltzmannResult extends TxProcessorResult {
       if (getNbCmbn() == 0) {
         System.out.println(
             "Skipped processing of this transaction (too many inputs and/or outputs)");
+      } else if (getDowngradeReason() != null) {
+        System.out.println(
+            "Linkability matrix not computed (" + getDowngradeReason() + " limit reached)");
       }
     } else {
       if (getMatLnkProbabilities() != null) {
@@ -133,21 +143,40 @@ public class BoltzmannResult extends TxProcessorResult {
     benchmarks.add(new Object[] {"duration", duration});
     System.out.println("Duration = " + Utils.duration(duration));
 
-    long maxMem = Utils.getMaxMemUsed();
-    benchmarks.add(new Object[] {"maxMem", maxMem});
-    System.out.println("Max mem used: " + maxMem + "M");
-
-    for (Progress progress : Utils.getProgressResult()) {
-      System.out.println(progress.getResult());
-      Object[] result =
-          new Object[] {
-            progress.getName(),
-            progress.getTarget(),
-            progress.computeElapsed() / 1000,
-            progress.getRate(),
-            progress.getMsg()
-          };
-      benchmarks.add(result);
+    if (getMetrics() != null) {
+      long maxMem = getMetrics().getMaxMemUsed();
+      benchmarks.add(new Object[] {"maxMem", maxMem});
+      System.out.println("Max mem used: " + maxMem + "M");
+
+      for (Progress progress : getMetrics().getProgressResult()) {
+        System.out.println(progress.getResult());
+        Object[] result =
+            new Object[] {
+              progress.getName(),
+              progress.getTarget(),
+              progress.computeElapsed() / 1000,
+              progress.getRate(),
+              progress.getMsg()
+            };
+        benchmarks.add(result);
+      }
+
+      if (getMetrics().getSearchProfile() != null) {
+        System.out.println("Search profile:");
+        System.out.println(getMetrics().getSearchProfile());
+      }
+
+      for (PhaseMetrics phase : getMetrics().getPhases()) {
+        System.out.println(phase);
+        benchmarks.add(
+            new Object[] {
+              phase.getName(),
+              phase.getWallNanos(),
+              phase.getCpuNanos(),
+              phase.getAllocatedBytes(),
+              phase.getCardinalities()
+            });
+      }
     }
 
     try {
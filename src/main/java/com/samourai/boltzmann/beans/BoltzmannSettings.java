@@ -1,6 +1,9 @@
 package com.samourai.boltzmann.beans;
 
+import com.samourai.boltzmann.jmx.BoltzmannMonitor;
 import com.samourai.boltzmann.linker.TxosLinkerOptionEnum;
+import com.samourai.boltzmann.utils.MemoryGovernor;
+import com.samourai.boltzmann.utils.ParallelExecutor;
 
 public class BoltzmannSettings {
 
@@ -29,11 +32,42 @@ public class BoltzmannSettings {
   /** options to be applied during processing */
   private TxosLinkerOptionEnum[] options;
 
+  /**
+   * threshold mode: stops as soon as minNbCmbn combinations have been found (null to compute all
+   * combinations).
+   */
+  private Integer minNbCmbn;
+
+  /**
+   * time budget (in seconds): txs estimated to run longer are processed in estimated mode (null to
+   * always compute exact results).
+   */
+  private Integer maxEstimatedDuration;
+
+  /**
+   * max memory (in bytes) allocated to processing of a single tx (null for no limit). Txs predicted
+   * to exceed it are not processed, or only their number of combinations is computed.
+   */
+  private Long maxMemoryBytes;
+
+  /** memory budget shared with other analyses of the JVM (null for none) */
+  private MemoryGovernor memoryGovernor;
+
+  /**
+   * executor of the parallel phases: pool (common pool by default) and size under which loops are
+   * sequential
+   */
+  private ParallelExecutor executor;
+
+  /** monitor tracking the analyses, exposed through JMX (null for none) */
+  private BoltzmannMonitor monitor;
+
   public BoltzmannSettings() {
     this.maxDuration = MAX_DURATION_DEFAULT;
     this.maxTxos = MAX_TXOS_DEFAULT;
     this.maxCjIntrafeesRatio = MAX_CJ_INTRAFEES_DEFAULT;
     this.options = OPTIONS_DEFAULT;
+    this.executor = ParallelExecutor.COMMON;
   }
 
   public Integer getMaxDuration() {
@@ -67,4 +101,60 @@ public class BoltzmannSettings {
   public void setOptions(TxosLinkerOptionEnum[] options) {
     this.options = options;
   }
+
+  public Integer getMinNbCmbn() {
+    return minNbCmbn;
+  }
+
+  public void setMinNbCmbn(Integer minNbCmbn) {
+    this.minNbCmbn = minNbCmbn;
+  }
+
+  public Integer getMaxEstimatedDuration() {
+    return maxEstimatedDuration;
+  }
+
+  public void setMaxEstimatedDuration(Integer maxEstimatedDuration) {
+    this.maxEstimatedDuration = maxEstimatedDuration;
+  }
+
+  public Long getMaxMemoryBytes() {
+    return maxMemoryBytes;
+  }
+
+  public void setMaxMemoryBytes(Long maxMemoryBytes) {
+    this.maxMemoryBytes = maxMemoryBytes;
+  }
+
+  public MemoryGovernor getMemoryGovernor() {
+    return memoryGovernor;
+  }
+
+  public void setMemoryGovernor(MemoryGovernor memoryGovernor) {
+    this.memoryGovernor = memoryGovernor;
+  }
+
+  public ParallelExecutor getExecutor() {
+    return executor;
+  }
+
+  public void setExecutor(ParallelExecutor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Sets the threshold as an entropy (in bits): processing checks whether tx entropy is at least
+   * minEntropy.
+   */
+  public void setMinEntropy(double minEntropy) {
+    this.minNbCmbn = (int) Math.ceil(Math.pow(2, minEntropy));
+  }
+
+  public BoltzmannMonitor getMonitor() {
+    return monitor;
+  }
+
+  public void setMonitor(BoltzmannMonitor monitor) {
+    this.monitor = monitor;
+  }
 }
@@ -0,0 +1,85 @@
+package com.samourai.boltzmann.beans;
+
+import java.util.Arrays;
+
+/** LinkMatrix stored in a single row-major int[]. */
+class DenseLinkMatrix extends LinkMatrix {
+
+  private final int nbCols;
+  private final int[] cells;
+
+  DenseLinkMatrix(int rows, int cols) {
+    this(rows, cols, new int[rows * cols]);
+  }
+
+  private DenseLinkMatrix(int rows, int cols, int[] cells) {
+    super(rows, cols);
+    this.nbCols = cols;
+    this.cells = cells;
+  }
+
+  @Override
+  public int get(long row, long col) {
+    return cells[(int) row * nbCols + (int) col];
+  }
+
+  @Override
+  public void set(long row, long col, int value) {
+    cells[(int) row * nbCols + (int) col] = value;
+  }
+
+  @Override
+  public void add(long row, long col, int value) {
+    cells[(int) row * nbCols + (int) col] += value;
+  }
+
+  @Override
+  public void fill(int value) {
+    Arrays.fill(cells, value);
+  }
+
+  @Override
+  public void addAll(LinkMatrix other) {
+    if (other instanceof DenseLinkMatrix) {
+      int[] otherCells = ((DenseLinkMatrix) other).cells;
+      for (int i = 0; i < cells.length; i++) {
+        cells[i] += otherCells[i];
+      }
+    } else {
+      for (long i = 0; i < rows; i++) {
+        for (long j = 0; j < cols; j++) {
+          add(i, j, other.get(i, j));
+        }
+      }
+    }
+  }
+
+  @Override
+  public LinkMatrix copy() {
+    return new DenseLinkMatrix((int) rows, nbCols, cells.clone());
+  }
+
+  @Override
+  public void getRow(long row, int[] dest) {
+    System.arraycopy(cells, (int) row * nbCols, dest, 0, nbCols);
+  }
+
+  @Override
+  public void setRow(long row, int[] src) {
+    System.arraycopy(src, 0, cells, (int) row * nbCols, nbCols);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof DenseLinkMatrix) {
+      DenseLinkMatrix other = (DenseLinkMatrix) o;
+      return rows == other.rows && cols == other.cols && Arrays.equals(cells, other.cells);
+    }
+    return super.equals(o);
+  }
+
+  @Override
+  public int hashCode() {
+    return super.hashCode();
+  }
+}
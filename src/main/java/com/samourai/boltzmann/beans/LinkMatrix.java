@@ -0,0 +1,160 @@
+package com.samourai.boltzmann.beans;
+
+/**
+ * Matrix of txos linkability: Rows = output txos, Columns = input txos, Cells = number of
+ * combinations for which an input and an output are linked.
+ *
+ * <p>Cells are stored in a single row-major primitive array ({@link DenseLinkMatrix}), unless the
+ * matrix doesn't fit in a Java array ({@link BigLinkMatrix}).
+ */
+public abstract class LinkMatrix {
+
+  // max number of cells of a dense matrix (max size of a Java array)
+  protected static final long MAX_DENSE_CELLS = Integer.MAX_VALUE - 8;
+
+  protected final long rows;
+  protected final long cols;
+
+  protected LinkMatrix(long rows, long cols) {
+    this.rows = rows;
+    this.cols = cols;
+  }
+
+  /**
+   * Creates a matrix filled with a value.
+   *
+   * @param rows number of outputs
+   * @param cols number of inputs
+   * @param fillValue initial value of cells
+   */
+  public static LinkMatrix newMatrix(long rows, long cols, int fillValue) {
+    LinkMatrix matrix =
+        rows * cols <= MAX_DENSE_CELLS
+            ? new DenseLinkMatrix((int) rows, (int) cols)
+            : new BigLinkMatrix(rows, cols);
+    if (fillValue != 0) {
+      matrix.fill(fillValue);
+    }
+    return matrix;
+  }
+
+  public static LinkMatrix of(int[][] values) {
+    int nbRows = values.length;
+    int nbCols = nbRows > 0 ? values[0].length : 0;
+    LinkMatrix matrix = newMatrix(nbRows, nbCols, 0);
+    for (int i = 0; i < nbRows; i++) {
+      for (int j = 0; j < nbCols; j++) {
+        matrix.set(i, j, values[i][j]);
+      }
+    }
+    return matrix;
+  }
+
+  public long getRows() {
+    return rows;
+  }
+
+  public long getCols() {
+    return cols;
+  }
+
+  public abstract int get(long row, long col);
+
+  public abstract void set(long row, long col, int value);
+
+  public abstract void add(long row, long col, int value);
+
+  public abstract void fill(int value);
+
+  /** Adds each cell of another matrix of same dimensions to this matrix. */
+  public abstract void addAll(LinkMatrix other);
+
+  public abstract LinkMatrix copy();
+
+  /** @return a new matrix with rows and columns swapped */
+  public LinkMatrix transpose() {
+    LinkMatrix result = newMatrix(cols, rows, 0);
+    for (long i = 0; i < rows; i++) {
+      for (long j = 0; j < cols; j++) {
+        result.set(j, i, get(i, j));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Copies a row into an array.
+   *
+   * @param row row to copy
+   * @param dest array of (at least) getCols() cells
+   */
+  public void getRow(long row, int[] dest) {
+    for (long j = 0; j < cols; j++) {
+      dest[(int) j] = get(row, j);
+    }
+  }
+
+  /**
+   * Copies an array into a row.
+   *
+   * @param row row to write
+   * @param src array of (at least) getCols() cells
+   */
+  public void setRow(long row, int[] src) {
+    for (long j = 0; j < cols; j++) {
+      set(row, j, src[(int) j]);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof LinkMatrix)) {
+      return false;
+    }
+    LinkMatrix other = (LinkMatrix) o;
+    if (rows != other.rows || cols != other.cols) {
+      return false;
+    }
+    for (long i = 0; i < rows; i++) {
+      for (long j = 0; j < cols; j++) {
+        if (get(i, j) != other.get(i, j)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = 1;
+    for (long i = 0; i < rows; i++) {
+      for (long j = 0; j < cols; j++) {
+        hash = 31 * hash + get(i, j);
+      }
+    }
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    for (long i = 0; i < rows; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append("[");
+      for (long j = 0; j < cols; j++) {
+        if (j > 0) {
+          sb.append(", ");
+        }
+        sb.append(get(i, j));
+      }
+      sb.append("]");
+    }
+    return sb.append("]").toString();
+  }
+}
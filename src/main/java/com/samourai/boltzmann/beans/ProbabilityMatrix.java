@@ -0,0 +1,96 @@
+package com.samourai.boltzmann.beans;
+
+import java.util.Arrays;
+
+/**
+ * Matrix of txos linkability probabilities: Rows = output txos, Columns = input txos, Cells =
+ * probability that an input and an output are linked. Cells are stored in a single row-major
+ * double[].
+ */
+public class ProbabilityMatrix {
+
+  private final int rows;
+  private final int cols;
+  private final double[] cells;
+
+  private ProbabilityMatrix(int rows, int cols, double[] cells) {
+    this.rows = rows;
+    this.cols = cols;
+    this.cells = cells;
+  }
+
+  /**
+   * Computes probabilities from a linkability matrix.
+   *
+   * @param matLnk number of combinations for which an input and an output are linked
+   * @param nbCmbn number of combinations
+   */
+  public static ProbabilityMatrix of(LinkMatrix matLnk, int nbCmbn) {
+    if (matLnk.getRows() * matLnk.getCols() > LinkMatrix.MAX_DENSE_CELLS) {
+      throw new RuntimeException("matrix too large: " + matLnk.getRows() + "x" + matLnk.getCols());
+    }
+    int rows = (int) matLnk.getRows();
+    int cols = (int) matLnk.getCols();
+    double[] cells = new double[rows * cols];
+    int[] line = new int[cols];
+    for (int i = 0; i < rows; i++) {
+      matLnk.getRow(i, line);
+      int offset = i * cols;
+      for (int j = 0; j < cols; j++) {
+        cells[offset + j] = (double) line[j] / nbCmbn;
+      }
+    }
+    return new ProbabilityMatrix(rows, cols, cells);
+  }
+
+  public static ProbabilityMatrix of(double[][] values) {
+    int rows = values.length;
+    int cols = rows > 0 ? values[0].length : 0;
+    double[] cells = new double[rows * cols];
+    for (int i = 0; i < rows; i++) {
+      System.arraycopy(values[i], 0, cells, i * cols, cols);
+    }
+    return new ProbabilityMatrix(rows, cols, cells);
+  }
+
+  public int getRows() {
+    return rows;
+  }
+
+  public int getCols() {
+    return cols;
+  }
+
+  public double get(int row, int col) {
+    return cells[row * cols + col];
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ProbabilityMatrix)) {
+      return false;
+    }
+    ProbabilityMatrix other = (ProbabilityMatrix) o;
+    return rows == other.rows && cols == other.cols && Arrays.equals(cells, other.cells);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(cells);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < rows; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(Arrays.toString(Arrays.copyOfRange(cells, i * cols, (i + 1) * cols)));
+    }
+    return sb.append("]").toString();
+  }
+}
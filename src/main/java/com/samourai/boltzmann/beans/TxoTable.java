@@ -0,0 +1,134 @@
+package com.samourai.boltzmann.beans;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Columnar list of txos used by the processing pipeline. Each txo is identified by its position
+ * (int id), labels are stored in a dictionary and values in a long[]. Maps are only materialized at
+ * API boundary by {@link #toMap()}. Instances are not modified once built.
+ */
+public class TxoTable {
+
+  // label of each txo, by id
+  private String[] labels;
+
+  // amount of each txo, by id
+  private long[] values;
+
+  // id of each label, computed on first lookup
+  private Map<String, Integer> idsByLabel;
+
+  public TxoTable(String[] labels, long[] values) {
+    if (labels.length != values.length) {
+      throw new RuntimeException(
+          "labels/values size mismatch: " + labels.length + " vs " + values.length);
+    }
+    this.labels = labels;
+    this.values = values;
+  }
+
+  public static TxoTable of(Map<String, Long> txos) {
+    String[] labels = new String[txos.size()];
+    long[] values = new long[txos.size()];
+    int i = 0;
+    for (Map.Entry<String, Long> entry : txos.entrySet()) {
+      labels[i] = entry.getKey();
+      values[i] = entry.getValue();
+      i++;
+    }
+    return new TxoTable(labels, values);
+  }
+
+  public int size() {
+    return labels.length;
+  }
+
+  public String getLabel(int id) {
+    return labels[id];
+  }
+
+  public long getValue(int id) {
+    return values[id];
+  }
+
+  /** @return labels by id (not to be modified) */
+  public String[] getLabels() {
+    return labels;
+  }
+
+  /** @return values by id (not to be modified) */
+  public long[] getValues() {
+    return values;
+  }
+
+  /** @return id of the txo, or -1 if not found */
+  public int indexOf(String label) {
+    if (idsByLabel == null) {
+      Map<String, Integer> ids = new HashMap<String, Integer>(labels.length * 2);
+      for (int i = 0; i < labels.length; i++) {
+        ids.put(labels[i], i);
+      }
+      idsByLabel = ids;
+    }
+    Integer id = idsByLabel.get(label);
+    return id != null ? id : -1;
+  }
+
+  public boolean contains(String label) {
+    return indexOf(label) >= 0;
+  }
+
+  public long sum() {
+    long sum = 0;
+    for (long value : values) {
+      sum += value;
+    }
+    return sum;
+  }
+
+  /** @return a new table with an additional txo */
+  public TxoTable add(String label, long value) {
+    String[] newLabels = new String[labels.length + 1];
+    long[] newValues = new long[values.length + 1];
+    System.arraycopy(labels, 0, newLabels, 0, labels.length);
+    System.arraycopy(values, 0, newValues, 0, values.length);
+    newLabels[labels.length] = label;
+    newValues[values.length] = value;
+    return new TxoTable(newLabels, newValues);
+  }
+
+  /**
+   * Orders txos by decreasing value (ties keep their order) and removes txos with null value.
+   *
+   * @return a new table
+   */
+  public TxoTable sortByValueDesc() {
+    int nbTxos = 0;
+    int[] ids = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] > 0) {
+        ids[nbTxos++] = i;
+      }
+    }
+    IntArrays.mergeSort(ids, 0, nbTxos, (a, b) -> Long.compare(values[b], values[a]));
+
+    String[] sortedLabels = new String[nbTxos];
+    long[] sortedValues = new long[nbTxos];
+    for (int i = 0; i < nbTxos; i++) {
+      sortedLabels[i] = labels[ids[i]];
+      sortedValues[i] = values[ids[i]];
+    }
+    return new TxoTable(sortedLabels, sortedValues);
+  }
+
+  public Map<String, Long> toMap() {
+    Map<String, Long> txos = new LinkedHashMap<String, Long>();
+    for (int i = 0; i < labels.length; i++) {
+      txos.put(labels[i], values[i]);
+    }
+    return txos;
+  }
+}
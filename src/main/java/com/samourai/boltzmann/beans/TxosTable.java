@@ -0,0 +1,34 @@
+package com.samourai.boltzmann.beans;
+
+/** Columnar inputs/outputs of a transaction, see {@link TxoTable}. */
+public class TxosTable {
+
+  private TxoTable inputs;
+  private TxoTable outputs;
+
+  public TxosTable(TxoTable inputs, TxoTable outputs) {
+    this.inputs = inputs;
+    this.outputs = outputs;
+  }
+
+  public static TxosTable of(Txos txos) {
+    return new TxosTable(TxoTable.of(txos.getInputs()), TxoTable.of(txos.getOutputs()));
+  }
+
+  public TxoTable getInputs() {
+    return inputs;
+  }
+
+  public TxoTable getOutputs() {
+    return outputs;
+  }
+
+  /** @return a new instance with inputs and outputs swapped */
+  public TxosTable transpose() {
+    return new TxosTable(outputs, inputs);
+  }
+
+  public Txos toTxos() {
+    return new Txos(inputs.toMap(), outputs.toMap());
+  }
+}
@@ -18,18 +18,14 @@ public class OxtFetch {
   public OxtFetch() {}
 
   public Txos fetch(String txid) throws Exception {
-    Map<String, Long> ins0 = new LinkedHashMap<String, Long>();
-    Map<String, Long> outs0 = new LinkedHashMap<String, Long>();
-
     System.setProperty("http.agent", "curl/7.51.0");
 
     JsonNode obj;
 
     URL localResource = OxtFetch.class.getResource("/fetchTx/" + txid + ".json");
     if (localResource != null) {
-      // read from local file
-      File localJson = new File(localResource.getFile());
-      obj = objectMapper.readTree(localJson);
+      // read from local file (or from a jar)
+      obj = objectMapper.readTree(localResource);
     } else {
       // read fetch
       String url = "https://api.oxt.me/txs/" + txid + "?boltzmann-java";
@@ -39,6 +35,18 @@ public class OxtFetch {
         throw new RuntimeException("Transaction not found: " + txid);
       }
     }
+    return parse(txid, obj);
+  }
+
+  /** Reads a transaction from a json file, in the format of fetchTx resources. */
+  public Txos read(File jsonFile) throws Exception {
+    return parse(jsonFile.getName(), objectMapper.readTree(jsonFile));
+  }
+
+  private Txos parse(String txid, JsonNode obj) {
+    Map<String, Long> ins0 = new LinkedHashMap<String, Long>();
+    Map<String, Long> outs0 = new LinkedHashMap<String, Long>();
+
     JsonNode dataObj = obj.withArray("data").get(0);
 
     JsonNode inputs = dataObj.withArray("ins");
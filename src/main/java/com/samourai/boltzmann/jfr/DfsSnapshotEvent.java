@@ -0,0 +1,38 @@
+package com.samourai.boltzmann.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** JFR event sampling the state of the depth-first search (computeLinkMatrix, computeNbCmbn). */
+@Name("com.samourai.boltzmann.DfsSnapshot")
+@Label("Boltzmann DFS Snapshot")
+@Category("Boltzmann")
+@Description("State of the depth-first search of combinations")
+class DfsSnapshotEvent extends Event {
+  @Label("Phase")
+  String phase;
+
+  @Label("Inputs")
+  int nbIns;
+
+  @Label("Outputs")
+  int nbOuts;
+
+  @Label("Depth")
+  @Description("Number of tasks in the stack")
+  int depth;
+
+  @Label("Iterations")
+  long iterations;
+
+  @Label("Links")
+  @Description("Size of dLinks (0 when counting combinations only)")
+  long nbDLinks;
+
+  @Label("Iteration Rate")
+  @Description("Iterations per second since the previous snapshot")
+  double iterationRate;
+}
@@ -0,0 +1,75 @@
+package com.samourai.boltzmann.jfr;
+
+/**
+ * Emits the engine's Java Flight Recorder events. Events are only created when JFR is recording
+ * them, so this costs a check when no recording is running.
+ *
+ * <p>The JFR API is only available since Java 11 (and 8u262): on older JVMs, all methods are
+ * no-ops. Event classes are only loaded when JFR is available, hence the Object signatures.
+ */
+public class JfrEvents {
+  private static final boolean AVAILABLE = isAvailable();
+
+  private static boolean isAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event");
+      return true;
+    } catch (Throwable e) {
+      return false;
+    }
+  }
+
+  /**
+   * Starts a phase event.
+   *
+   * @return event to be passed to {@link #endPhase(Object)}, or null if not recorded
+   */
+  public static Object beginPhase(String phase, int nbIns, int nbOuts) {
+    if (!AVAILABLE) {
+      return null;
+    }
+    PhaseEvent event = new PhaseEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.phase = phase;
+    event.nbIns = nbIns;
+    event.nbOuts = nbOuts;
+    event.begin();
+    return event;
+  }
+
+  /** Ends and commits a phase event started by {@link #beginPhase(String, int, int)}. */
+  public static void endPhase(Object event) {
+    if (event != null) {
+      ((PhaseEvent) event).commit();
+    }
+  }
+
+  /** @return true if DFS snapshots are being recorded */
+  public static boolean isDfsSnapshotEnabled() {
+    return AVAILABLE && new DfsSnapshotEvent().isEnabled();
+  }
+
+  public static void dfsSnapshot(
+      String phase,
+      int nbIns,
+      int nbOuts,
+      int depth,
+      long iterations,
+      long nbDLinks,
+      double iterationRate) {
+    if (!AVAILABLE) {
+      return;
+    }
+    DfsSnapshotEvent event = new DfsSnapshotEvent();
+    event.phase = phase;
+    event.nbIns = nbIns;
+    event.nbOuts = nbOuts;
+    event.depth = depth;
+    event.iterations = iterations;
+    event.nbDLinks = nbDLinks;
+    event.iterationRate = iterationRate;
+    event.commit();
+  }
+}
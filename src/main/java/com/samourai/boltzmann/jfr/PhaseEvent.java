@@ -0,0 +1,23 @@
+package com.samourai.boltzmann.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** JFR event spanning a phase of a run (prepareData, matchAggByVal, computeLinkMatrix...). */
+@Name("com.samourai.boltzmann.Phase")
+@Label("Boltzmann Phase")
+@Category("Boltzmann")
+@Description("Phase of the analysis of a transaction")
+class PhaseEvent extends Event {
+  @Label("Phase")
+  String phase;
+
+  @Label("Inputs")
+  int nbIns;
+
+  @Label("Outputs")
+  int nbOuts;
+}
@@ -0,0 +1,195 @@
+package com.samourai.boltzmann.jmx;
+
+import com.samourai.boltzmann.BoltzmannListener;
+import com.samourai.boltzmann.utils.MemoryGovernor;
+import com.samourai.boltzmann.utils.ParallelExecutor;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Live state of the analyses run by the Boltzmann instances sharing it (see
+ * BoltzmannSettings.setMonitor()): running analyses, outcome counts and latency percentiles. Once
+ * registered with {@link #register(String)}, it can be inspected and steered from any JMX client.
+ */
+public class BoltzmannMonitor implements BoltzmannMonitorMBean {
+  private static final int NB_LATENCIES = 1024;
+
+  private final ParallelExecutor executor;
+  private final MemoryGovernor memoryGovernor;
+
+  private final AtomicLong nextId = new AtomicLong();
+  private final Map<Long, MonitoredRun> activeRuns = new ConcurrentHashMap<Long, MonitoredRun>();
+
+  private final AtomicLong completedCount = new AtomicLong();
+  private final AtomicLong cancelledCount = new AtomicLong();
+  private final AtomicLong failedCount = new AtomicLong();
+  private final AtomicLong rejectedCount = new AtomicLong();
+
+  // latencies of the last NB_LATENCIES completed analyses (guarded by this)
+  private final long[] latencies = new long[NB_LATENCIES];
+  private long nbLatencies;
+
+  private ObjectName objectName;
+
+  /**
+   * @param executor executor of the monitored analyses, or null
+   * @param memoryGovernor memory budget of the monitored analyses, or null
+   */
+  public BoltzmannMonitor(ParallelExecutor executor, MemoryGovernor memoryGovernor) {
+    this.executor = executor;
+    this.memoryGovernor = memoryGovernor;
+  }
+
+  /** Registers this monitor in the platform MBeanServer. */
+  public synchronized void register(String name) throws Exception {
+    ObjectName newObjectName =
+        new ObjectName("com.samourai.boltzmann:type=BoltzmannMonitor,name=" + name);
+    ManagementFactory.getPlatformMBeanServer().registerMBean(this, newObjectName);
+    this.objectName = newObjectName;
+  }
+
+  public synchronized void unregister() throws Exception {
+    if (objectName != null) {
+      MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+      mBeanServer.unregisterMBean(objectName);
+      objectName = null;
+    }
+  }
+
+  /**
+   * Tracks a new analysis.
+   *
+   * @param listener caller's listener, or null
+   * @return listener to be used for the analysis
+   */
+  public MonitoredRun startRun(int nbIns, int nbOuts, BoltzmannListener listener) {
+    MonitoredRun run = new MonitoredRun(nextId.incrementAndGet(), nbIns, nbOuts, listener);
+    activeRuns.put(run.getId(), run);
+    return run;
+  }
+
+  /** An analysis completed (rejected if not processed because of a limit). */
+  public void onCompleted(MonitoredRun run, boolean rejected) {
+    activeRuns.remove(run.getId());
+    if (rejected) {
+      rejectedCount.incrementAndGet();
+    } else {
+      completedCount.incrementAndGet();
+      addLatency(run.getElapsedMillis());
+    }
+  }
+
+  public void onCancelled(MonitoredRun run) {
+    activeRuns.remove(run.getId());
+    cancelledCount.incrementAndGet();
+  }
+
+  public void onFailed(MonitoredRun run) {
+    activeRuns.remove(run.getId());
+    failedCount.incrementAndGet();
+  }
+
+  private synchronized void addLatency(long latencyMillis) {
+    latencies[(int) (nbLatencies++ % NB_LATENCIES)] = latencyMillis;
+  }
+
+  private synchronized double latencyPercentile(double percentile) {
+    int size = (int) Math.min(nbLatencies, NB_LATENCIES);
+    if (size == 0) {
+      return 0;
+    }
+    long[] sorted = Arrays.copyOf(latencies, size);
+    Arrays.sort(sorted);
+    int index = (int) Math.ceil(percentile / 100 * size) - 1;
+    return sorted[Math.max(index, 0)];
+  }
+
+  @Override
+  public int getActiveCount() {
+    return activeRuns.size();
+  }
+
+  @Override
+  public String[] getActiveAnalyses() {
+    List<String> analyses = new ArrayList<String>();
+    for (MonitoredRun run : activeRuns.values()) {
+      analyses.add(run.toString());
+    }
+    return analyses.toArray(new String[analyses.size()]);
+  }
+
+  /** @return running analyses */
+  public List<MonitoredRun> getActiveRuns() {
+    return new ArrayList<MonitoredRun>(activeRuns.values());
+  }
+
+  @Override
+  public long getCompletedCount() {
+    return completedCount.get();
+  }
+
+  @Override
+  public long getCancelledCount() {
+    return cancelledCount.get();
+  }
+
+  @Override
+  public long getFailedCount() {
+    return failedCount.get();
+  }
+
+  @Override
+  public long getRejectedCount() {
+    return rejectedCount.get();
+  }
+
+  @Override
+  public double getLatencyP50Millis() {
+    return latencyPercentile(50);
+  }
+
+  @Override
+  public double getLatencyP90Millis() {
+    return latencyPercentile(90);
+  }
+
+  @Override
+  public double getLatencyP99Millis() {
+    return latencyPercentile(99);
+  }
+
+  @Override
+  public long getReservedBytes() {
+    return memoryGovernor != null ? memoryGovernor.getReservedBytes() : -1;
+  }
+
+  @Override
+  public int getParallelism() {
+    return executor != null ? executor.getParallelism() : -1;
+  }
+
+  @Override
+  public void setParallelism(int parallelism) {
+    if (executor == null) {
+      throw new IllegalStateException("no executor");
+    }
+    executor.setParallelism(parallelism);
+  }
+
+  @Override
+  public boolean cancel(long id) {
+    MonitoredRun run = activeRuns.get(id);
+    if (run == null) {
+      return false;
+    }
+    run.cancel();
+    return true;
+  }
+}
@@ -0,0 +1,42 @@
+package com.samourai.boltzmann.jmx;
+
+/** JMX interface of {@link BoltzmannMonitor}. */
+public interface BoltzmannMonitorMBean {
+
+  /** @return number of analyses running */
+  int getActiveCount();
+
+  /** @return one line per running analysis: id, shape, phase, progress, elapsed, reserved memory */
+  String[] getActiveAnalyses();
+
+  long getCompletedCount();
+
+  long getCancelledCount();
+
+  long getFailedCount();
+
+  /** @return analyses not processed because of a limit (maxTxos, memory) */
+  long getRejectedCount();
+
+  double getLatencyP50Millis();
+
+  double getLatencyP90Millis();
+
+  double getLatencyP99Millis();
+
+  /** @return memory reserved from the shared MemoryGovernor, or -1 if none */
+  long getReservedBytes();
+
+  /** @return parallelism of the executor running the parallel phases */
+  int getParallelism();
+
+  /** Changes the parallelism of the executor, for next analyses (dedicated pool only). */
+  void setParallelism(int parallelism);
+
+  /**
+   * Cancels a running analysis.
+   *
+   * @return false if no analysis is running with this id
+   */
+  boolean cancel(long id);
+}
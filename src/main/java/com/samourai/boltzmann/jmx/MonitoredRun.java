@@ -0,0 +1,111 @@
+package com.samourai.boltzmann.jmx;
+
+import com.samourai.boltzmann.BoltzmannListener;
+import com.samourai.boltzmann.utils.RunMetrics;
+
+/**
+ * Analysis tracked by a {@link BoltzmannMonitor}. Listens to the run to expose its live state, and
+ * forwards all events to the caller's listener (if any).
+ */
+public class MonitoredRun implements BoltzmannListener {
+  private final long id;
+  private final int nbIns;
+  private final int nbOuts;
+  private final long startMillis;
+  private final BoltzmannListener listener;
+
+  private volatile RunMetrics metrics;
+  private volatile String phase;
+  private volatile long explored;
+  private volatile long total;
+  private volatile boolean cancelled;
+
+  protected MonitoredRun(long id, int nbIns, int nbOuts, BoltzmannListener listener) {
+    this.id = id;
+    this.nbIns = nbIns;
+    this.nbOuts = nbOuts;
+    this.startMillis = System.currentTimeMillis();
+    this.listener = listener;
+  }
+
+  @Override
+  public void onStart(RunMetrics metrics) {
+    this.metrics = metrics;
+    if (listener != null) {
+      listener.onStart(metrics);
+    }
+  }
+
+  @Override
+  public void onPhaseStart(String phase) {
+    this.phase = phase;
+    this.explored = 0;
+    this.total = 0;
+    if (listener != null) {
+      listener.onPhaseStart(phase);
+    }
+  }
+
+  @Override
+  public void onPhaseEnd(String phase, long durationMillis) {
+    if (listener != null) {
+      listener.onPhaseEnd(phase, durationMillis);
+    }
+  }
+
+  @Override
+  public void onProgress(
+      String phase, long explored, long total, Long etaMillis, long usedMemoryBytes) {
+    this.explored = explored;
+    this.total = total;
+    if (listener != null) {
+      listener.onProgress(phase, explored, total, etaMillis, usedMemoryBytes);
+    }
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return cancelled || (listener != null && listener.isCancelled());
+  }
+
+  /** Cancels the run, which stops within a few milliseconds. */
+  public void cancel() {
+    this.cancelled = true;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public long getElapsedMillis() {
+    return System.currentTimeMillis() - startMillis;
+  }
+
+  /** @return metrics context of the run, or null if not started yet */
+  public RunMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public String toString() {
+    RunMetrics currentMetrics = metrics;
+    return "#"
+        + id
+        + " "
+        + nbIns
+        + "x"
+        + nbOuts
+        + ", phase="
+        + phase
+        + ", progress="
+        + explored
+        + "/"
+        + total
+        + ", elapsed="
+        + getElapsedMillis()
+        + "ms, reserved="
+        + (currentMetrics != null ? currentMetrics.getReservedBytes() : 0)
+        + " bytes"
+        + (cancelled ? " (cancelling)" : "");
+  }
+}
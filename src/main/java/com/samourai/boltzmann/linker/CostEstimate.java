@@ -0,0 +1,100 @@
+package com.samourai.boltzmann.linker;
+
+/** Predicted cost of processing a transaction, computed before running the search. */
+public class CostEstimate {
+
+  // number of txos to be processed (after packing)
+  private int nbIns;
+  private int nbOuts;
+
+  // number of matching aggregates
+  private int nbMatchIn;
+  private int nbMatchOut;
+
+  // number of pairs of input aggregates computed by computeInAggCmbn()
+  private long nbInAggCmbn;
+
+  // estimated number of tasks of the depth-first search
+  private double nbTasks;
+
+  private long memoryBytes;
+  private long durationMillis;
+
+  public CostEstimate(
+      int nbIns,
+      int nbOuts,
+      int nbMatchIn,
+      int nbMatchOut,
+      long nbInAggCmbn,
+      double nbTasks,
+      long memoryBytes,
+      long durationMillis) {
+    this.nbIns = nbIns;
+    this.nbOuts = nbOuts;
+    this.nbMatchIn = nbMatchIn;
+    this.nbMatchOut = nbMatchOut;
+    this.nbInAggCmbn = nbInAggCmbn;
+    this.nbTasks = nbTasks;
+    this.memoryBytes = memoryBytes;
+    this.durationMillis = durationMillis;
+  }
+
+  public int getNbIns() {
+    return nbIns;
+  }
+
+  public int getNbOuts() {
+    return nbOuts;
+  }
+
+  public int getNbMatchIn() {
+    return nbMatchIn;
+  }
+
+  public int getNbMatchOut() {
+    return nbMatchOut;
+  }
+
+  public long getNbInAggCmbn() {
+    return nbInAggCmbn;
+  }
+
+  public double getNbTasks() {
+    return nbTasks;
+  }
+
+  /** @return estimated number of combinations (each task is a combination, +1 for the root) */
+  public double getNbCmbn() {
+    return nbTasks + 1;
+  }
+
+  /** @return estimated peak memory (in bytes) */
+  public long getMemoryBytes() {
+    return memoryBytes;
+  }
+
+  /** @return estimated duration (in milliseconds) */
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  @Override
+  public String toString() {
+    return nbIns
+        + "x"
+        + nbOuts
+        + " txos, "
+        + nbMatchIn
+        + "x"
+        + nbMatchOut
+        + " matches, "
+        + nbInAggCmbn
+        + " inAggCmbn, ~"
+        + Math.round(nbTasks)
+        + " tasks, ~"
+        + (memoryBytes / (1024 * 1024))
+        + "M, ~"
+        + durationMillis
+        + "ms";
+  }
+}
@@ -7,9 +7,13 @@ class Pack {
   private String lbl;
   private PackType packType;
   private List<Entry<String, Long>> ins;
-  private List<String> outs;
+  private List<Entry<String, Long>> outs;
 
-  Pack(String lbl, PackType packType, List<Entry<String, Long>> ins, List<String> outs) {
+  Pack(
+      String lbl,
+      PackType packType,
+      List<Entry<String, Long>> ins,
+      List<Entry<String, Long>> outs) {
     this.lbl = lbl;
     this.packType = packType;
     this.ins = ins;
@@ -28,7 +32,12 @@ class Pack {
     return ins;
   }
 
-  public List<String> getOuts() {
+  public List<Entry<String, Long>> getOuts() {
     return outs;
   }
+
+  /** @return txos packed together, inputs or outputs depending on pack type */
+  public List<Entry<String, Long>> getPackedTxos() {
+    return PackType.OUTPUTS.equals(packType) ? outs : ins;
+  }
 }
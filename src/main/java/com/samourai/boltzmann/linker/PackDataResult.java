@@ -0,0 +1,23 @@
+package com.samourai.boltzmann.linker;
+
+import com.samourai.boltzmann.aggregator.TxosAggregates;
+import com.samourai.boltzmann.aggregator.TxosAggregatesMatches;
+
+public class PackDataResult {
+
+  private TxosAggregates allAgg;
+  private TxosAggregatesMatches aggMatches;
+
+  public PackDataResult(TxosAggregates allAgg, TxosAggregatesMatches aggMatches) {
+    this.allAgg = allAgg;
+    this.aggMatches = aggMatches;
+  }
+
+  public TxosAggregates getAllAgg() {
+    return allAgg;
+  }
+
+  public TxosAggregatesMatches getAggMatches() {
+    return aggMatches;
+  }
+}
@@ -1,5 +1,6 @@
 package com.samourai.boltzmann.linker;
 
 enum PackType {
-  INPUTS
+  INPUTS,
+  OUTPUTS
 }
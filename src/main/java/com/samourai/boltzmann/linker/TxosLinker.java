@@ -1,13 +1,17 @@
 package com.samourai.boltzmann.linker;
 
 import com.samourai.boltzmann.aggregator.*;
+import com.samourai.boltzmann.beans.LinkMatrix;
+import com.samourai.boltzmann.beans.TxoTable;
 import com.samourai.boltzmann.beans.Txos;
+import com.samourai.boltzmann.beans.TxosTable;
 import com.samourai.boltzmann.processor.TxProcessorConst;
 import com.samourai.boltzmann.utils.ListsUtils;
-import com.samourai.boltzmann.utils.Utils;
-import it.unimi.dsi.fastutil.ints.IntBigArrayBigList;
-import it.unimi.dsi.fastutil.ints.IntBigList;
-import it.unimi.dsi.fastutil.objects.ObjectBigArrayBigList;
+import com.samourai.boltzmann.utils.MemoryGovernor;
+import com.samourai.boltzmann.utils.ParallelExecutor;
+import com.samourai.boltzmann.utils.RunMetrics;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectBigList;
 import java.util.*;
 import java.util.Map.Entry;
@@ -24,9 +28,23 @@ public class TxosLinker {
   // Max number of inputs (or outputs) which can be processed by this algorithm
   private static final int MAX_NB_TXOS = 12;
 
+  // Cost model of estimate(): average duration of a task (in nanoseconds)
+  private static final long TASK_NANOS = 1000;
+  private static final long TASK_NANOS_COUNT_ONLY = 200;
+  // Cost model of estimate(): average memory footprint (in bytes)
+  private static final long AGG_BYTES = 16;
+  private static final long MATCH_AGG_BYTES = 64;
+  private static final long IN_AGG_CMBN_BYTES = 40;
+  private static final long TASK_BYTES = 160;
+  // Number of random paths sampled by estimate()
+  private static final int ESTIMATE_PROBES = 200;
+  // Seed of the sampled paths, so that a tx always gets the same estimate
+  private static final long ESTIMATE_SEED = 42;
+
   // Markers
   private static final String MARKER_FEES = "FEES";
-  private static final String MARKER_PACK = "PACK_I";
+  private static final String MARKER_PACK_I = "PACK_I";
+  private static final String MARKER_PACK_O = "PACK_O";
 
   // fees associated to the transaction
   private long feesOrig;
@@ -40,6 +58,29 @@ public class TxosLinker {
   // Maximum duration of the script (in seconds)
   Integer maxDuration = MAX_DURATION;
 
+  // Minimum number of combinations to look for (threshold mode), or null to count all of them
+  Integer minNbCmbn;
+
+  // Max memory (in bytes) allocated to processing of a single tx, or null for no limit
+  Long maxMemoryBytes;
+
+  // Time budget (in seconds) of the search, or null. Longer searches only look for
+  // estimatedMinNbCmbn combinations
+  private Integer maxEstimatedDuration;
+  private int estimatedMinNbCmbn;
+  // Start time of the current run
+  private long startTime;
+
+  // Memory budget shared with other analyses, or null
+  private MemoryGovernor memoryGovernor;
+  // Executor of the parallel phases
+  private ParallelExecutor executor = ParallelExecutor.COMMON;
+  // Metrics of the current run
+  private RunMetrics metrics = new RunMetrics();
+  // Memory reserved by this analysis, released at the end of process()
+  private List<MemoryGovernor.Reservation> reservations =
+      new ArrayList<MemoryGovernor.Reservation>();
+
   /**
    * Constructor.
    *
@@ -49,16 +90,49 @@ public class TxosLinker {
    *     processed.
    */
   public TxosLinker(long fees, Integer maxDuration, Integer maxTxos) {
+    this(fees, maxDuration, maxTxos, null);
+  }
+
+  /**
+   * Constructor for threshold mode: computations stop as soon as minNbCmbn combinations have been
+   * found, without computing the linkability matrix.
+   *
+   * @param fees amount of fees associated to the transaction
+   * @param maxDuration max duration allocated to processing of a single tx (in seconds)
+   * @param maxTxos max number of txos. Txs with more than max_txos inputs or outputs are not
+   *     processed.
+   * @param minNbCmbn minimum number of combinations to look for, or null to count all of them
+   */
+  public TxosLinker(long fees, Integer maxDuration, Integer maxTxos, Integer minNbCmbn) {
+    this(fees, maxDuration, maxTxos, minNbCmbn, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param fees amount of fees associated to the transaction
+   * @param maxDuration max duration allocated to processing of a single tx (in seconds)
+   * @param maxTxos max number of txos. Txs with more than max_txos inputs or outputs are not
+   *     processed.
+   * @param minNbCmbn minimum number of combinations to look for, or null to count all of them
+   * @param maxMemoryBytes max memory allocated to processing of a single tx, or null for no limit.
+   *     Txs predicted to exceed it are not processed, or only their number of combinations is
+   *     computed.
+   */
+  public TxosLinker(
+      long fees, Integer maxDuration, Integer maxTxos, Integer minNbCmbn, Long maxMemoryBytes) {
     this.feesOrig = fees;
     this.maxDuration = maxDuration;
     this.maxTxos = maxTxos;
+    this.minNbCmbn = minNbCmbn;
+    this.maxMemoryBytes = maxMemoryBytes;
   }
 
   /**
    * Computes the linkability between a set of input txos and a set of output txos.
    *
    * @param txos list of inputs/ouputs txos [(v1_id, v1_amount), ...]
-   * @param linkedTxos list of sets storing linked input txos. Each txo is identified by its id
+   * @param linkedTxos list of sets storing linked txos. Each txo is identified by its id
    * @param options actions to be applied
    * @param intraFees tuple (fees_maker, fees_taker) of max "fees" paid among participants used for
    *     joinmarket transactions fees_maker are potential max "fees" received by a participant from
@@ -71,6 +145,37 @@ public class TxosLinker {
       Collection<Set<String>> linkedTxos,
       Set<TxosLinkerOptionEnum> options,
       IntraFees intraFees) {
+    return process(TxosTable.of(txos), linkedTxos, options, intraFees);
+  }
+
+  /** Same as {@link #process(Txos, Collection, Set, IntraFees)}, for columnar txos. */
+  public TxosLinkerResult process(
+      TxosTable txos,
+      Collection<Set<String>> linkedTxos,
+      Set<TxosLinkerOptionEnum> options,
+      IntraFees intraFees) {
+    startTime = System.currentTimeMillis();
+    try {
+      return executor.invoke(() -> doProcess(txos, linkedTxos, options, intraFees));
+    } finally {
+      releaseReservations();
+    }
+  }
+
+  /** Releases memory reserved by the phases */
+  private void releaseReservations() {
+    for (MemoryGovernor.Reservation reservation : reservations) {
+      reservation.close();
+      metrics.addReservedBytes(-reservation.getBytes());
+    }
+    reservations.clear();
+  }
+
+  private TxosLinkerResult doProcess(
+      TxosTable txos,
+      Collection<Set<String>> linkedTxos,
+      Set<TxosLinkerOptionEnum> options,
+      IntraFees intraFees) {
     // Packs txos known as being controlled by a same entity
     // It decreases the entropy and speeds-up computations
     if (linkedTxos != null && !linkedTxos.isEmpty()) {
@@ -82,171 +187,538 @@ public class TxosLinker {
       // Manages fees as an additional output (case of sharedsend by blockchain.info).
       // Allows to reduce the volume of computations to be done.
       this.fees = 0;
-      txos.getOutputs().put(MARKER_FEES, this.feesOrig);
+      txos = new TxosTable(txos.getInputs(), txos.getOutputs().add(MARKER_FEES, this.feesOrig));
     } else {
       this.fees = this.feesOrig;
     }
 
-    TxosAggregator aggregator = new TxosAggregator();
+    TxosAggregator aggregator = new TxosAggregator(executor, metrics);
 
     int nbOuts = txos.getOutputs().size();
     int nbIns = txos.getInputs().size();
     boolean hasIntraFees = intraFees != null && intraFees.hasFees();
+    // threshold mode only needs the number of combinations
+    boolean countOnly = options.contains(TxosLinkerOptionEnum.COUNT_ONLY) || minNbCmbn != null;
+    boolean profile = options.contains(TxosLinkerOptionEnum.PROFILE);
 
     // Checks deterministic links
     int nbCmbn = 0;
-    ObjectBigList<IntBigList> matLnk = ListsUtils.newIntMatrix(nbOuts, nbIns, 0);
+    Boolean thresholdReached = null;
+    Double upperNbCmbn = null;
+    LinkMatrix matLnk = LinkMatrix.newMatrix(nbOuts, nbIns, 0);
 
-    // Prepares the data
+    // Prepares the data, unless the txos exceed the limits
+    String rejectReason = null;
+    if (!this.checkLimitOk(txos)) {
+      rejectReason = "maxTxos";
+    } else if (!checkMemoryOk("prepareData", estimateAggBytes(nbIns, nbOuts))) {
+      rejectReason = "memory: prepareData";
+    }
+    if (rejectReason != null) {
+      metrics.reject(rejectReason);
+      UnpackLinkMatrixResult unpackResult = unpackLinkMatrix(matLnk, txos);
+      return new TxosLinkerResult(
+          nbCmbn, unpackResult.getMatLnk(), new LinkedHashSet<long[]>(), unpackResult.getTxos());
+    }
+    metrics.startPhase("prepareData");
     TxosAggregates allAgg = prepareData(txos);
-    txos = new Txos(allAgg.getInAgg().getTxos(), allAgg.getOutAgg().getTxos());
+    txos = new TxosTable(allAgg.getInAgg().getTxos(), allAgg.getOutAgg().getTxos());
+    metrics.setCardinality("nbInAgg", allAgg.getInAgg().getAllAggVal().length);
+    metrics.setCardinality("nbOutAgg", allAgg.getOutAgg().getAllAggVal().length);
+    metrics.startPhase("matchAggByVal");
     TxosAggregatesMatches aggMatches = aggregator.matchAggByVal(allAgg, fees, intraFees);
+    metrics.setCardinality("nbMatchIn", aggMatches.getAllMatchInAgg().size());
+    metrics.setCardinality("nbMatchOut", countMatchOutAgg(aggMatches));
+    metrics.endPhase();
 
     Set<long[]> dtrmLnks = new LinkedHashSet<long[]>();
-    if (options.contains(TxosLinkerOptionEnum.PRECHECK)
-        && this.checkLimitOk(txos)
-        && !hasIntraFees) {
+    // deterministic links as (output, input) labels, when packed
+    List<String[]> dtrmLbls = null;
+    if (options.contains(TxosLinkerOptionEnum.PRECHECK) && !hasIntraFees) {
       if (log.isDebugEnabled()) {
-        Utils.logMemory("# PRECHECK");
+        metrics.logMemory("# PRECHECK");
       }
 
       // Checks deterministic links
+      metrics.startPhase("PRECHECK");
       dtrmLnks = aggregator.checkDtrmLinks(txos, allAgg, aggMatches);
+      metrics.setCardinality("nbDtrmLnks", dtrmLnks.size());
+      metrics.endPhase();
 
       // If deterministic links have been found, fills the linkability matrix
       // (returned as result if linkability is not processed)
       if (!dtrmLnks.isEmpty()) {
-        final ObjectBigList<IntBigList> matLnkFinal = matLnk;
-
-        dtrmLnks
-            .stream()
-            .parallel()
-            .forEach(dtrmLnk -> matLnkFinal.get(dtrmLnk[0]).set(dtrmLnk[1], 1));
+        for (long[] dtrmLnk : dtrmLnks) {
+          matLnk.set(dtrmLnk[0], dtrmLnk[1], 1);
+        }
       }
     }
 
     // Checks if all inputs and outputs have already been merged
     if (nbIns == 0 || nbOuts == 0) {
       nbCmbn = 1;
-      for (IntBigList line : matLnk) {
-        ListsUtils.fill(line, 1, line.size64());
+      matLnk.fill(1);
+      if (minNbCmbn != null) {
+        thresholdReached = nbCmbn >= minNbCmbn;
       }
-    } else if (options.contains(TxosLinkerOptionEnum.LINKABILITY) && this.checkLimitOk(txos)) {
+    } else if (options.contains(TxosLinkerOptionEnum.LINKABILITY) || countOnly) {
       if (log.isDebugEnabled()) {
-        Utils.logMemory("# LINKABILITY");
+        metrics.logMemory(countOnly ? "# COUNT_ONLY" : "# LINKABILITY");
       }
 
       // Packs deterministic links if needed
       if (!dtrmLnks.isEmpty()) {
-        Utils.logMemory("PACK " + dtrmLnks.size() + " deterministic links");
-        final Txos txosFinal = txos;
+        metrics.logMemory("PACK " + dtrmLnks.size() + " deterministic links");
         List<Set<String>> dtrmCoordsList = new ArrayList<Set<String>>();
+        dtrmLbls = new ArrayList<String[]>();
         for (long[] array : dtrmLnks) {
-          Set<String> set = new LinkedHashSet<String>();
-          set.add("" + txosFinal.getOutputs().keySet().toArray()[(int) array[0]]); // TODO !!! cast
-          set.add("" + txosFinal.getInputs().keySet().toArray()[(int) array[1]]); // TODO !!! cast
-          dtrmCoordsList.add(set);
+          String out = txos.getOutputs().getLabel((int) array[0]);
+          String in = txos.getInputs().getLabel((int) array[1]);
+          dtrmLbls.add(new String[] {out, in});
+          dtrmCoordsList.add(new LinkedHashSet<String>(Arrays.asList(out, in)));
         }
+        int nbPacks = packs.size();
         txos = packLinkedTxos(dtrmCoordsList, txos);
 
-        // txos changed, recompute allAgg
-        allAgg = prepareData(txos);
-        txos = new Txos(allAgg.getInAgg().getTxos(), allAgg.getOutAgg().getTxos());
-        aggMatches = aggregator.matchAggByVal(allAgg, fees, intraFees);
+        // txos changed, derives allAgg and aggMatches from the unpacked ones
+        List<Pack> newPacks = packs.subList(nbPacks, packs.size());
+        PackDataResult packResult = packData(allAgg, aggMatches, txos, newPacks);
+        allAgg = packResult.getAllAgg();
+        txos = new TxosTable(allAgg.getInAgg().getTxos(), allAgg.getOutAgg().getTxos());
+        aggMatches = packResult.getAggMatches();
       }
 
-      // Computes a matrix storing a tree composed of valid pairs of input aggregates
-      Map<Long, List<int[]>> matInAggCmbn = aggregator.computeInAggCmbn(aggMatches);
-
       // Builds the linkability matrix
-      TxosAggregatorResult result =
-          aggregator.computeLinkMatrix(txos, allAgg, aggMatches, matInAggCmbn, maxDuration);
+      TxosAggregatorResult result;
+      if (isTransposable(aggMatches) && isTransposeCheaper(txos, aggMatches)) {
+        // Decomposes outputs and matches inputs, then transposes the matrix back
+        if (log.isDebugEnabled()) {
+          metrics.logMemory(
+              "Transposing " + txos.getInputs().size() + "x" + txos.getOutputs().size() + " txos");
+        }
+
+        TxosTable txosT = txos.transpose();
+        TxosAggregates allAggT = new TxosAggregates(allAgg.getOutAgg(), allAgg.getInAgg());
+        TxosAggregatesMatches aggMatchesT = aggregator.transposeMatches(allAgg, aggMatches);
+        result = computeLinkMatrix(aggregator, txosT, allAggT, aggMatchesT, countOnly, profile);
+        if (result.getMatLnkCombinations() != null) {
+          result =
+              new TxosAggregatorResult(
+                  result.getNbCmbn(), result.getMatLnkCombinations().transpose());
+        }
+      } else {
+        result = computeLinkMatrix(aggregator, txos, allAgg, aggMatches, countOnly, profile);
+      }
       nbCmbn = result.getNbCmbn();
       matLnk = result.getMatLnkCombinations();
+      thresholdReached = result.getThresholdReached();
+      upperNbCmbn = result.getUpperNbCmbn();
+      metrics.setCardinality("nbCmbn", nbCmbn);
+      metrics.endPhase();
 
       // Refresh deterministical links
-      dtrmLnks = aggregator.findDtrmLinks(matLnk, nbCmbn);
+      if (matLnk != null) {
+        dtrmLnks = aggregator.findDtrmLinks(matLnk, nbCmbn);
+        dtrmLbls = null;
+      }
     }
 
     if (!packs.isEmpty()) {
       if (log.isDebugEnabled()) {
-        Utils.logMemory("# UNPACK " + packs.size() + " packs");
+        metrics.logMemory("# UNPACK " + packs.size() + " packs");
       }
       // Unpacks the matrix
+      metrics.startPhase("unpack");
+      metrics.setCardinality("nbPacks", packs.size());
       UnpackLinkMatrixResult unpackResult = unpackLinkMatrix(matLnk, txos);
       txos = unpackResult.getTxos();
       matLnk = unpackResult.getMatLnk();
 
       // Refresh deterministical links // TODO reintegrate in unpackLinkMatrix?
-      dtrmLnks = aggregator.findDtrmLinks(matLnk, nbCmbn);
+      if (matLnk != null) {
+        dtrmLnks = aggregator.findDtrmLinks(matLnk, nbCmbn);
+      }
+      metrics.endPhase();
+    }
+
+    if (dtrmLbls != null) {
+      // No matrix computed (COUNT_ONLY), keeps deterministic links found by PRECHECK
+      dtrmLnks = new LinkedHashSet<long[]>();
+      for (String[] dtrmLbl : dtrmLbls) {
+        dtrmLnks.add(
+            new long[] {
+              txos.getOutputs().indexOf(dtrmLbl[0]), txos.getInputs().indexOf(dtrmLbl[1])
+            });
+      }
+    }
+
+    return new TxosLinkerResult(nbCmbn, matLnk, dtrmLnks, txos, thresholdReached, upperNbCmbn);
+  }
+
+  /**
+   * Predicts the cost of {@link #process(TxosTable, Collection, Set, IntraFees)} without running
+   * the depth-first search. Txos are prepared and matched as for processing, then the size of the
+   * search tree is estimated by sampling random paths (see TxosAggregator.estimateNbTasks()).
+   *
+   * <p>Duration is the measured duration of the preparation phases plus the estimated duration of
+   * the search. Memory is a rough model of the aggregates, matches, pairs of input aggregates and
+   * (unless COUNT_ONLY) the links stored for each task.
+   *
+   * <p>The preparation phases are subject to the same memory limits as processing, and the estimate
+   * is abandoned once they exceed maxDuration.
+   *
+   * @return CostEstimate, or null if the txos exceed maxTxos or the limits and wouldn't be
+   *     processed
+   */
+  public CostEstimate estimate(
+      TxosTable txos,
+      Collection<Set<String>> linkedTxos,
+      Set<TxosLinkerOptionEnum> options,
+      IntraFees intraFees) {
+    startTime = System.currentTimeMillis();
+    try {
+      return doEstimate(txos, linkedTxos, options, intraFees);
+    } finally {
+      releaseReservations();
+    }
+  }
+
+  private CostEstimate doEstimate(
+      TxosTable txos,
+      Collection<Set<String>> linkedTxos,
+      Set<TxosLinkerOptionEnum> options,
+      IntraFees intraFees) {
+    if (linkedTxos != null && !linkedTxos.isEmpty()) {
+      txos = packLinkedTxos(linkedTxos, txos);
+    }
+    long fees = this.feesOrig;
+    if (options.contains(TxosLinkerOptionEnum.MERGE_FEES) && this.feesOrig > 0) {
+      fees = 0;
+      txos = new TxosTable(txos.getInputs(), txos.getOutputs().add(MARKER_FEES, this.feesOrig));
+    }
+    if (!this.checkLimitOk(txos)) {
+      return null;
+    }
+    int nbIns = txos.getInputs().size();
+    int nbOuts = txos.getOutputs().size();
+    long aggBytes = estimateAggBytes(nbIns, nbOuts);
+    if (nbIns == 0 || nbOuts == 0) {
+      return new CostEstimate(nbIns, nbOuts, 0, 0, 0, 0, aggBytes, 0);
+    }
+
+    if (!checkMemoryOk("prepareData", aggBytes)) {
+      metrics.reject("memory: prepareData");
+      return null;
+    }
+    TxosAggregator aggregator = new TxosAggregator(executor, metrics);
+    TxosAggregates allAgg = prepareData(txos);
+    txos = new TxosTable(allAgg.getInAgg().getTxos(), allAgg.getOutAgg().getTxos());
+    TxosAggregatesMatches aggMatches = aggregator.matchAggByVal(allAgg, fees, intraFees);
+    if (isTransposable(aggMatches) && isTransposeCheaper(txos, aggMatches)) {
+      aggMatches = aggregator.transposeMatches(allAgg, aggMatches);
+      txos = txos.transpose();
     }
+    int nbMatchIn = aggMatches.getAllMatchInAgg().size();
 
-    return new TxosLinkerResult(nbCmbn, matLnk, dtrmLnks, txos);
+    if (!checkMemoryOk(
+        "computeInAggCmbn", estimateInAggCmbnBytes(txos.getInputs().size(), nbMatchIn))) {
+      metrics.reject("memory: computeInAggCmbn");
+      return null;
+    }
+    if (!checkDurationOk("computeInAggCmbn")) {
+      return null;
+    }
+    Map<Long, List<int[]>> matInAggCmbn = aggregator.computeInAggCmbn(aggMatches);
+    long nbInAggCmbn = 0;
+    for (List<int[]> line : matInAggCmbn.values()) {
+      nbInAggCmbn += line.size();
+    }
+    if (!checkDurationOk("estimateNbTasks")) {
+      return null;
+    }
+    double nbTasks =
+        aggregator.estimateNbTasks(
+            txos, aggMatches, matInAggCmbn, ESTIMATE_PROBES, new Random(ESTIMATE_SEED));
+
+    boolean countOnly = options.contains(TxosLinkerOptionEnum.COUNT_ONLY) || minNbCmbn != null;
+    return newCostEstimate(txos, aggMatches, nbInAggCmbn, nbTasks, countOnly);
+  }
+
+  /**
+   * @return CostEstimate of a run whose preparation phases started at startTime and whose search is
+   *     estimated to nbTasks tasks
+   */
+  private CostEstimate newCostEstimate(
+      TxosTable txos,
+      TxosAggregatesMatches aggMatches,
+      long nbInAggCmbn,
+      double nbTasks,
+      boolean countOnly) {
+    int nbIns = txos.getInputs().size();
+    int nbOuts = txos.getOutputs().size();
+    int nbMatchIn = aggMatches.getAllMatchInAgg().size();
+    int nbMatchOut = countMatchOutAgg(aggMatches);
+    long memoryBytes =
+        estimateAggBytes(nbIns, nbOuts)
+            + (nbMatchIn + nbMatchOut) * MATCH_AGG_BYTES
+            + nbInAggCmbn * IN_AGG_CMBN_BYTES
+            + (countOnly ? 0 : (long) (nbTasks * TASK_BYTES) + 4L * nbIns * nbOuts);
+    long prepareMillis = System.currentTimeMillis() - startTime;
+    long durationMillis =
+        prepareMillis + (long) (nbTasks * (countOnly ? TASK_NANOS_COUNT_ONLY : TASK_NANOS) / 1e6);
+    return new CostEstimate(
+        nbIns, nbOuts, nbMatchIn, nbMatchOut, nbInAggCmbn, nbTasks, memoryBytes, durationMillis);
+  }
+
+  private TxosAggregatorResult computeLinkMatrix(
+      TxosAggregator aggregator,
+      TxosTable txos,
+      TxosAggregates allAgg,
+      TxosAggregatesMatches aggMatches,
+      boolean countOnly,
+      boolean profile) {
+    // Computes a matrix storing a tree composed of valid pairs of input aggregates
+    int nbMatchIn = aggMatches.getAllMatchInAgg().size();
+    if (!checkMemoryOk(
+        "computeInAggCmbn", estimateInAggCmbnBytes(txos.getInputs().size(), nbMatchIn))) {
+      metrics.reject("memory: computeInAggCmbn");
+      return new TxosAggregatorResult(0, null);
+    }
+    metrics.startPhase("computeInAggCmbn");
+    Map<Long, List<int[]>> matInAggCmbn = aggregator.computeInAggCmbn(aggMatches);
+    long nbInAggCmbn = 0;
+    for (List<int[]> inAggCmbn : matInAggCmbn.values()) {
+      nbInAggCmbn += inAggCmbn.size();
+    }
+    metrics.setCardinality("nbInAggCmbn", nbInAggCmbn);
+    metrics.endPhase();
+
+    boolean checkMemory = !countOnly && (maxMemoryBytes != null || memoryGovernor != null);
+    Integer searchMinNbCmbn = minNbCmbn;
+    if (checkMemory || maxEstimatedDuration != null) {
+      // Sizes the search tree from the prepared data
+      double nbTasks =
+          aggregator.estimateNbTasks(
+              txos, aggMatches, matInAggCmbn, ESTIMATE_PROBES, new Random(ESTIMATE_SEED));
+      if (checkMemory && !checkMemoryOk("computeLinkMatrix", (long) (nbTasks * TASK_BYTES))) {
+        // Links of each task are stored until the task completes.
+        // Falls back to the counting engine, which doesn't store links
+        log.warn("Computing the number of combinations only");
+        metrics.downgrade("memory: computeLinkMatrix");
+        countOnly = true;
+      }
+      CostEstimate costEstimate =
+          newCostEstimate(txos, aggMatches, nbInAggCmbn, nbTasks, countOnly);
+      if (maxEstimatedDuration != null
+          && costEstimate.getDurationMillis() > maxEstimatedDuration * 1000L
+          && (minNbCmbn == null || minNbCmbn > estimatedMinNbCmbn)) {
+        // Estimated mode: counts combinations up to estimatedMinNbCmbn (lower bound)
+        log.info("maxEstimatedDuration exceeded: " + costEstimate);
+        metrics.setCostEstimate(costEstimate);
+        countOnly = true;
+        searchMinNbCmbn = estimatedMinNbCmbn;
+      }
+    }
+
+    if (countOnly) {
+      // Computes the number of combinations only
+      metrics.startPhase("computeNbCmbn");
+      return aggregator.computeNbCmbn(txos, aggMatches, matInAggCmbn, maxDuration, searchMinNbCmbn);
+    }
+
+    // Builds the linkability matrix (then "finalize" phase)
+    metrics.startPhase("computeLinkMatrix");
+    SearchProfile searchProfile = null;
+    if (profile) {
+      searchProfile = new SearchProfile();
+      metrics.setSearchProfile(searchProfile);
+    }
+    return aggregator.computeLinkMatrix(
+        txos, allAgg, aggMatches, matInAggCmbn, maxDuration, searchProfile);
   }
 
   /**
-   * Packs input txos which are known as being controlled by a same entity
+   * Checks if the problem can be transposed without changing its semantics. Decompositions never
+   * contain the empty aggregate, so inputs only paying fees (matching the empty output aggregate)
+   * can't be represented once transposed, and conversely.
    *
-   * @param linkedTxos list of sets storing linked input txos. Each txo is identified by its "id"
-   * @return Txos
+   * @param aggMatches matches computed for (inputs, outputs)
+   * @return true if no non-empty aggregate matches an empty aggregate
    */
-  protected Txos packLinkedTxos(Collection<Set<String>> linkedTxos, Txos txos) {
-    int idx = packs.size();
+  private boolean isTransposable(TxosAggregatesMatches aggMatches) {
+    for (Entry<Long, List<Integer>> entry : aggMatches.getValToMatchOutAgg().entrySet()) {
+      boolean emptyIn = (entry.getKey() == 0);
+      for (int outIdx : entry.getValue()) {
+        if (emptyIn != (outIdx == 0)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks if decomposing outputs (and matching inputs) is cheaper than decomposing inputs (and
+   * matching outputs).
+   *
+   * @param txos txos to be processed
+   * @param aggMatches matches computed for (inputs, outputs)
+   * @return true if the transposed problem should be processed
+   */
+  private boolean isTransposeCheaper(TxosTable txos, TxosAggregatesMatches aggMatches) {
+    long nbMatchIn = aggMatches.getAllMatchInAgg().size();
+    long nbMatchOut = countMatchOutAgg(aggMatches);
+
+    long cost = estimateCost(txos.getInputs().size(), nbMatchIn, nbMatchOut);
+    long costT = estimateCost(txos.getOutputs().size(), nbMatchOut, nbMatchIn);
+    return costT < cost;
+  }
 
-    Txos packedTxos =
-        new Txos(
-            new LinkedHashMap<String, Long>(txos.getInputs()),
-            new LinkedHashMap<String, Long>(txos.getOutputs()));
+  private static int countMatchOutAgg(TxosAggregatesMatches aggMatches) {
+    BitSet matchOutAgg = new BitSet();
+    for (List<Integer> outAggs : aggMatches.getValToMatchOutAgg().values()) {
+      for (int outIdx : outAggs) {
+        matchOutAgg.set(outIdx);
+      }
+    }
+    return matchOutAgg.cardinality();
+  }
+
+  /**
+   * Estimates the cost of decomposing a side of the transaction: computeInAggCmbn() scans pairs of
+   * matching aggregates among 2^nbTxos, then each decomposition is matched against the aggregates
+   * of the other side.
+   *
+   * @param nbTxos number of txos of the decomposed side
+   * @param nbMatch number of matching aggregates of the decomposed side
+   * @param nbMatchOther number of matching aggregates of the other side
+   */
+  private static long estimateCost(int nbTxos, long nbMatch, long nbMatchOther) {
+    long cmbnCost = nbMatch * (1L << Math.max(nbTxos - 1, 0));
+    long matchCost = nbMatch * nbMatchOther;
+    return cmbnCost + matchCost;
+  }
+
+  /**
+   * Packs txos which are known as being controlled by a same entity. Linked inputs are packed
+   * together, as well as linked outputs.
+   *
+   * @param linkedTxos list of sets storing linked txos. Each txo is identified by its "id"
+   * @return TxosTable
+   */
+  protected TxosTable packLinkedTxos(Collection<Set<String>> linkedTxos, TxosTable txos) {
+    int idx = packs.size();
 
     // Merges packs sharing common elements
     List<Set<String>> newPacks = ListsUtils.mergeSets(linkedTxos);
 
+    boolean[] packedIns = new boolean[txos.getInputs().size()];
+    boolean[] packedOuts = new boolean[txos.getOutputs().size()];
+    List<String> packLblIns = new ArrayList<String>();
+    List<Long> packValIns = new ArrayList<Long>();
+    List<String> packLblOuts = new ArrayList<String>();
+    List<Long> packValOuts = new ArrayList<Long>();
     for (Set<String> pack : newPacks) {
       List<Entry<String, Long>> ins = new ArrayList<Entry<String, Long>>();
-      long valIns = 0;
-
-      for (String inPack : pack) {
-        if (inPack.startsWith(TxProcessorConst.MARKER_INPUT)) {
-          long inPackValue = packedTxos.getInputs().get(inPack);
-          ins.add(new AbstractMap.SimpleEntry<String, Long>(inPack, inPackValue));
-          valIns += packedTxos.getInputs().get(inPack);
-          packedTxos.getInputs().remove(inPack);
-        }
-      }
+      List<Entry<String, Long>> outs = new ArrayList<Entry<String, Long>>();
+      long valIns = packTxos(pack, TxProcessorConst.MARKER_INPUT, txos.getInputs(), packedIns, ins);
+      long valOuts =
+          packTxos(pack, TxProcessorConst.MARKER_OUTPUT, txos.getOutputs(), packedOuts, outs);
       idx++;
 
       if (!ins.isEmpty()) {
-        String lbl = MARKER_PACK + idx;
-        packedTxos.getInputs().put(lbl, valIns);
-        packs.add(new Pack(lbl, PackType.INPUTS, ins, new ArrayList<String>()));
+        String lbl = MARKER_PACK_I + idx;
+        packLblIns.add(lbl);
+        packValIns.add(valIns);
+        packs.add(new Pack(lbl, PackType.INPUTS, ins, new ArrayList<Entry<String, Long>>()));
+      }
+      if (!outs.isEmpty()) {
+        String lbl = MARKER_PACK_O + idx;
+        packLblOuts.add(lbl);
+        packValOuts.add(valOuts);
+        packs.add(new Pack(lbl, PackType.OUTPUTS, new ArrayList<Entry<String, Long>>(), outs));
       }
     }
-    return packedTxos;
+    return new TxosTable(
+        packTable(txos.getInputs(), packedIns, packLblIns, packValIns),
+        packTable(txos.getOutputs(), packedOuts, packLblOuts, packValOuts));
+  }
+
+  /**
+   * Builds a table keeping unpacked txos in their order, followed by packs.
+   *
+   * @param txos txos before packing
+   * @param packed flags of packed txos, by id
+   * @param packLbls labels of new packs
+   * @param packVals values of new packs
+   */
+  private TxoTable packTable(
+      TxoTable txos, boolean[] packed, List<String> packLbls, List<Long> packVals) {
+    int nbPacked = 0;
+    for (boolean isPacked : packed) {
+      if (isPacked) {
+        nbPacked++;
+      }
+    }
+    int size = txos.size() - nbPacked + packLbls.size();
+    String[] labels = new String[size];
+    long[] values = new long[size];
+    int j = 0;
+    for (int i = 0; i < txos.size(); i++) {
+      if (!packed[i]) {
+        labels[j] = txos.getLabel(i);
+        values[j] = txos.getValue(i);
+        j++;
+      }
+    }
+    for (int i = 0; i < packLbls.size(); i++, j++) {
+      labels[j] = packLbls.get(i);
+      values[j] = packVals.get(i);
+    }
+    return new TxoTable(labels, values);
+  }
+
+  /**
+   * Removes txos of a pack from txos.
+   *
+   * @param pack ids of linked txos
+   * @param marker prefix of the ids to be packed
+   * @param txos txos to remove the pack from
+   * @param packed flags of txos removed from txos, by id
+   * @param packedTxos list to return removed txos
+   * @return total value of removed txos
+   */
+  private long packTxos(
+      Set<String> pack,
+      String marker,
+      TxoTable txos,
+      boolean[] packed,
+      List<Entry<String, Long>> packedTxos) {
+    long val = 0;
+    for (String txoId : pack) {
+      if (txoId.startsWith(marker)) {
+        int id = txos.indexOf(txoId);
+        if (id < 0 || packed[id]) {
+          throw new RuntimeException("txo not found: " + txoId);
+        }
+        packed[id] = true;
+        long txoValue = txos.getValue(id);
+        packedTxos.add(new AbstractMap.SimpleEntry<String, Long>(txoId, txoValue));
+        val += txoValue;
+      }
+    }
+    return val;
   }
 
   /**
    * Unpacks linked txos in the linkability matrix.
    *
    * @param matLnk linkability matrix to be unpacked
-   * @param txos packed txos containing the pack
+   * @param txos packed txos containing the packs
    * @return UnpackLinkMatrixResult
    */
-  protected UnpackLinkMatrixResult unpackLinkMatrix(ObjectBigList<IntBigList> matLnk, Txos txos) {
-    ObjectBigList<IntBigList> matRes = new ObjectBigArrayBigList<IntBigList>(matLnk);
-    Txos newTxos =
-        new Txos(
-            new LinkedHashMap<String, Long>(txos.getInputs()),
-            new LinkedHashMap<String, Long>(txos.getOutputs()));
-    List<Pack> reversedPacks = new LinkedList<Pack>(packs);
-    Collections.reverse(reversedPacks);
-
-    for (int i = packs.size() - 1; i >= 0; i--) { // packs in reverse order
-      Pack pack = packs.get(i);
-      UnpackLinkMatrixResult result = unpackLinkMatrix(matRes, newTxos, pack);
-      matRes = result.getMatLnk();
-      newTxos = result.getTxos();
-    }
-    return new UnpackLinkMatrixResult(newTxos, matRes);
+  protected UnpackLinkMatrixResult unpackLinkMatrix(LinkMatrix matLnk, TxosTable txos) {
+    return unpackLinkMatrix(matLnk, txos, packs);
   }
 
   /**
@@ -257,87 +729,174 @@ public class TxosLinker {
    * @param pack pack to unpack
    * @return UnpackLinkMatrixResult
    */
-  protected UnpackLinkMatrixResult unpackLinkMatrix(
-      final ObjectBigList<IntBigList> matLnk, Txos txos, final Pack pack) {
+  protected UnpackLinkMatrixResult unpackLinkMatrix(LinkMatrix matLnk, TxosTable txos, Pack pack) {
+    return unpackLinkMatrix(matLnk, txos, Collections.singletonList(pack));
+  }
+
+  /**
+   * Unpacks txos in the linkability matrix for several packs, in a single pass: the final row and
+   * column of each unpacked txo are computed first, then each row of the unpacked matrix is
+   * gathered from the packed matrix.
+   *
+   * @param matLnk linkability matrix to be unpacked
+   * @param txos packed txos containing the packs
+   * @param packs packs to unpack (a pack may contain previous packs)
+   * @return UnpackLinkMatrixResult
+   */
+  private UnpackLinkMatrixResult unpackLinkMatrix(
+      LinkMatrix matLnk, TxosTable txos, List<Pack> packs) {
+    Map<String, Pack> packsByLbl = new HashMap<String, Pack>();
+    for (Pack pack : packs) {
+      packsByLbl.put(pack.getLbl(), pack);
+    }
 
-    ObjectBigList<IntBigList> newMatLnk = null;
-    Txos newTxos = txos;
+    // unpack txos
+    IntArrayList srcCols = new IntArrayList();
+    TxoTable newInputs = unpackTxos(txos.getInputs(), packsByLbl, srcCols);
+    IntArrayList srcRows = new IntArrayList();
+    TxoTable newOutputs = unpackTxos(txos.getOutputs(), packsByLbl, srcRows);
+    TxosTable newTxos = new TxosTable(newInputs, newOutputs);
 
+    // unpack matLnk
+    LinkMatrix newMatLnk = null;
     if (matLnk != null) {
-      if (PackType.INPUTS.equals(pack.getPackType())) {
-        // unpack txos
-        Map<String, Long> newInputs = new LinkedHashMap<String, Long>(txos.getInputs());
-        final int idx = unpackTxos(txos.getInputs(), pack, newInputs);
-        newTxos = new Txos(newInputs, txos.getOutputs());
-
-        // unpack matLnk
-        int nbIns = txos.getInputs().size() + pack.getIns().size() - 1;
-        int nbOuts = txos.getOutputs().size();
-        final ObjectBigList<IntBigList> newMatLnkFinal =
-            new ObjectBigArrayBigList<IntBigList>(nbOuts /*,nbIns*/);
-        for (int i = 0; i < nbOuts; i++) {
-          IntBigList line = new IntBigArrayBigList(nbIns);
+      int nbOuts = srcRows.size();
+      int nbIns = srcCols.size();
+      int[] cols = srcCols.toIntArray();
+      newMatLnk = LinkMatrix.newMatrix(nbOuts, nbIns, 0);
+      int[] srcLine = new int[(int) matLnk.getCols()];
+      int[] line = new int[nbIns];
+      int srcRow = -1;
+      for (int i = 0; i < nbOuts; i++) {
+        // unpacked outputs of a same pack share the same line
+        if (srcRows.getInt(i) != srcRow) {
+          srcRow = srcRows.getInt(i);
+          matLnk.getRow(srcRow, srcLine);
           for (int j = 0; j < nbIns; j++) {
-            if (j < idx) {
-              // keep values before pack
-              line.add(j, matLnk.get(i).getInt(j));
-            } else if (j >= (idx + pack.getIns().size())) {
-              // keep values after pack
-              line.add(j, matLnk.get(i).getInt(j - pack.getIns().size() + 1));
-            } else {
-              // insert values for unpacked txos
-              line.add(j, matLnk.get(i).getInt(idx));
-            }
+            line[j] = srcLine[cols[j]];
           }
-          newMatLnkFinal.add(line);
         }
-        newMatLnk = newMatLnkFinal;
+        newMatLnk.setRow(i, line);
       }
     }
     return new UnpackLinkMatrixResult(newTxos, newMatLnk);
   }
 
   /**
-   * Unpack txos for one pack.
+   * Unpack txos for several packs. Packed txos are inserted at the position of their pack.
    *
-   * @param currentTxos packed txos containing the pack
-   * @param unpackedTxos map to return unpacked txos
-   * @param pack pack to unpack
-   * @return idx pack indice in txos
+   * @param currentTxos packed txos containing the packs
+   * @param packsByLbl packs to unpack, by label
+   * @param srcIds list to return, for each unpacked txo, the id of the txo (or pack) in currentTxos
+   * @return unpacked txos
    */
-  protected int unpackTxos(
-      Map<String, Long> currentTxos, Pack pack, Map<String, Long> unpackedTxos) {
-    // find pack indice in txos
-    String[] txoKeys = currentTxos.keySet().toArray(new String[] {});
-    int idx;
-    for (idx = 0; idx < txoKeys.length; idx++) {
-      if (pack.getLbl().equals(txoKeys[idx])) {
-        break;
-      }
+  protected TxoTable unpackTxos(
+      TxoTable currentTxos, Map<String, Pack> packsByLbl, IntArrayList srcIds) {
+    List<String> labels = new ArrayList<String>(currentTxos.size());
+    LongArrayList values = new LongArrayList(currentTxos.size());
+    for (int i = 0; i < currentTxos.size(); i++) {
+      unpackTxo(
+          currentTxos.getLabel(i), currentTxos.getValue(i), i, packsByLbl, labels, values, srcIds);
     }
+    return new TxoTable(labels.toArray(new String[] {}), values.toLongArray());
+  }
 
-    unpackedTxos.clear();
-    Iterator<Map.Entry<String, Long>> currentTxosIterator = currentTxos.entrySet().iterator();
-    // keep txos before pack
-    for (int i = 0; i < idx; i++) {
-      Map.Entry<String, Long> entry = currentTxosIterator.next();
-      unpackedTxos.put(entry.getKey(), entry.getValue());
+  private void unpackTxo(
+      String lbl,
+      long value,
+      int srcId,
+      Map<String, Pack> packsByLbl,
+      List<String> labels,
+      LongArrayList values,
+      IntArrayList srcIds) {
+    Pack pack = packsByLbl.get(lbl);
+    if (pack == null) {
+      labels.add(lbl);
+      values.add(value);
+      srcIds.add(srcId);
+      return;
+    }
+    // packs may contain previous packs
+    for (Entry<String, Long> entry : pack.getPackedTxos()) {
+      unpackTxo(entry.getKey(), entry.getValue(), srcId, packsByLbl, labels, values, srcIds);
     }
-    // insert packed txos
-    for (Entry<String, Long> entry : pack.getIns()) {
-      unpackedTxos.put(entry.getKey(), entry.getValue());
+  }
+
+  /**
+   * Computes data structures of packed txos by projection of the data structures computed for
+   * unpacked txos, which is much cheaper than computing them again.
+   *
+   * @param allAgg aggregates of unpacked txos
+   * @param aggMatches matches of unpacked aggregates
+   * @param packedTxos packed txos
+   * @param newPacks packs applied to get packedTxos from unpacked txos
+   * @return PackDataResult
+   */
+  protected PackDataResult packData(
+      TxosAggregates allAgg,
+      TxosAggregatesMatches aggMatches,
+      TxosTable packedTxos,
+      List<Pack> newPacks) {
+    TxosAggregator aggregator = new TxosAggregator(executor, metrics);
+
+    TxoTable packedIns = packedTxos.getInputs().sortByValueDesc();
+    long[] inAggMasks =
+        aggregator.computeAggMasks(
+            computeTxoMasks(allAgg.getInAgg().getTxos(), packedIns, newPacks));
+
+    TxoTable packedOuts = packedTxos.getOutputs().sortByValueDesc();
+    long[] outAggMasks =
+        aggregator.computeAggMasks(
+            computeTxoMasks(allAgg.getOutAgg().getTxos(), packedOuts, newPacks));
+
+    TxosAggregates packedAgg =
+        new TxosAggregates(
+            aggregator.packAggregates(allAgg.getInAgg(), packedIns, inAggMasks),
+            aggregator.packAggregates(allAgg.getOutAgg(), packedOuts, outAggMasks));
+    TxosAggregatesMatches packedMatches =
+        aggregator.packMatches(packedAgg, aggMatches, inAggMasks, outAggMasks);
+    return new PackDataResult(packedAgg, packedMatches);
+  }
+
+  /**
+   * Computes, for each packed txo, the mask of the unpacked txos it contains.
+   *
+   * @param txos unpacked txos, as indexed by aggregates
+   * @param packedTxos packed txos
+   * @param newPacks packs applied to get packedTxos from txos
+   */
+  private long[] computeTxoMasks(TxoTable txos, TxoTable packedTxos, List<Pack> newPacks) {
+    long[] packMasks = new long[newPacks.size()];
+    for (int p = 0; p < newPacks.size(); p++) {
+      Pack pack = newPacks.get(p);
+      if (!packedTxos.contains(pack.getLbl())) {
+        // pack from the other side
+        continue;
+      }
+      for (Entry<String, Long> entry : pack.getPackedTxos()) {
+        packMasks[p] |= 1L << txos.indexOf(entry.getKey());
+      }
     }
-    currentTxosIterator.next(); // skip packed txo
-    // keep txos after pack
-    while (currentTxosIterator.hasNext()) {
-      Map.Entry<String, Long> entry = currentTxosIterator.next();
-      unpackedTxos.put(entry.getKey(), entry.getValue());
+
+    long[] txoMasks = new long[packedTxos.size()];
+    for (int i = 0; i < packedTxos.size(); i++) {
+      String txoId = packedTxos.getLabel(i);
+      int txoIdx = txos.indexOf(txoId);
+      if (txoIdx >= 0) {
+        txoMasks[i] = 1L << txoIdx;
+      } else {
+        for (int p = 0; p < newPacks.size(); p++) {
+          if (newPacks.get(p).getLbl().equals(txoId)) {
+            txoMasks[i] = packMasks[p];
+          }
+        }
+      }
     }
-    return idx;
+    return txoMasks;
   }
 
   /** Computes several data structures which will be used later */
-  private TxosAggregates prepareData(Txos txos) {
+  protected TxosAggregates prepareData(TxosTable txos) {
     TxosAggregatesData allInAgg = prepareTxos(txos.getInputs());
     TxosAggregatesData allOutAgg = prepareTxos(txos.getOutputs());
     return new TxosAggregates(allInAgg, allOutAgg);
@@ -349,64 +908,116 @@ public class TxosLinker {
    * @param initialTxos list of txos (list of tuples (id, value))
    * @return list of txos sorted by decreasing values array of aggregates (combinations of txos) in
    *     binary format array of values associated to the aggregates
+   * @throws IllegalArgumentException if there are too many txos for indexing their aggregates in an
+   *     array. Internal guard: process() and estimate() reject txs exceeding maxTxos before
+   *     preparing their data.
    */
-  private TxosAggregatesData prepareTxos(Map<String, Long> initialTxos) {
-    Map<String, Long> txos = new LinkedHashMap<String, Long>();
-
-    // Orders txos by decreasing value
-    Comparator<Entry<String, Long>> comparingByValueReverse =
-        Collections.reverseOrder(ListsUtils.<String, Long>comparingByValue());
-    for (Entry<String, Long> entry :
-        ListsUtils.sortMap(initialTxos, comparingByValueReverse).entrySet()) {
-      // Removes txos with null value
-      if (entry.getValue() > 0) {
-        txos.put(entry.getKey(), entry.getValue());
-      }
+  protected TxosAggregatesData prepareTxos(TxoTable initialTxos) {
+    // Orders txos by decreasing value and removes txos with null value
+    TxoTable txos = initialTxos.sortByValueDesc();
+    if (txos.size() >= Integer.SIZE - 1) {
+      throw new IllegalArgumentException(
+          "Too many txos for computing their aggregates: " + txos.size());
     }
 
     // Creates a 1D array of values
-    final Long[] allVal = txos.values().toArray(new Long[] {});
-    List<Long> allIndexes = new ArrayList<Long>();
-    for (long i = 0; i < txos.size(); i++) {
-      allIndexes.add(i);
+    final long[] allVal = txos.getValues();
+    Long[] allIndexes = new Long[txos.size()];
+    for (int i = 0; i < txos.size(); i++) {
+      allIndexes[i] = (long) i;
     }
 
-    //// int[][] allAgg = ListsUtils.powerSet(allVal);
-
-    long nbAggregates = (long) Math.pow(2, allIndexes.size());
+    long nbAggregates = 1L << allIndexes.length;
     if (log.isDebugEnabled()) {
-      if (log.isDebugEnabled()) {
-        Utils.logMemory(
-            "Computing aggregates for "
-                + initialTxos.size()
-                + " utxos: "
-                + nbAggregates
-                + " aggregates...");
-      }
+      metrics.logMemory(
+          "Computing aggregates for "
+              + initialTxos.size()
+              + " utxos: "
+              + nbAggregates
+              + " aggregates...");
     }
-    ObjectBigList<long[]> allAggIndexes = ListsUtils.powerSet(allIndexes.toArray(new Long[] {}));
+    ObjectBigList<long[]> allAggIndexes = ListsUtils.powerSet(allIndexes, metrics);
 
-    // int[] allAggVal = Arrays.stream(allAgg).mapToInt(array ->
-    // Arrays.stream(array).sum()).toArray();
-    List<Long> allAggVal = new LinkedList<Long>();
+    long[] allAggVal = new long[(int) nbAggregates];
     final String PROGRESS_ID = "prepareTxos";
+    int i = 0;
     for (long[] array : allAggIndexes) {
-      allAggVal.add(
-          Arrays.stream(array)
-              .map(
-                  indice -> {
-                    return allVal[(int) indice]; // TODO !!! cast
-                  })
-              .sum());
+      long val = 0;
+      for (long indice : array) {
+        val += allVal[(int) indice];
+      }
+      allAggVal[i++] = val;
 
-      Utils.logProgress(PROGRESS_ID, allAggVal.size(), nbAggregates);
+      metrics.logProgress(PROGRESS_ID, i, nbAggregates);
     }
-    Utils.logProgressDone(PROGRESS_ID, nbAggregates);
-    return new TxosAggregatesData(txos, allAggIndexes, ListsUtils.toPrimitiveArray(allAggVal));
+    metrics.logProgressDone(PROGRESS_ID, nbAggregates);
+    return new TxosAggregatesData(txos, allAggIndexes, allAggVal);
   }
 
   // LIMITS
-  private boolean checkLimitOk(Txos txos) {
+  /**
+   * Checks that a phase fits in maxMemoryBytes before running it, then reserves its memory from the
+   * shared memory budget (if any). Reserved memory is released at the end of process(). Callers
+   * record a rejected phase in the metrics (reject or downgrade).
+   *
+   * @param phase name of the phase
+   * @param requiredBytes predicted memory required by the phase
+   */
+  private boolean checkMemoryOk(String phase, long requiredBytes) {
+    if (maxMemoryBytes != null && requiredBytes > maxMemoryBytes) {
+      log.warn(
+          "maxMemoryBytes limit reached! "
+              + phase
+              + " requires ~"
+              + (requiredBytes / (1024 * 1024))
+              + "M");
+      return false;
+    }
+    if (memoryGovernor != null) {
+      MemoryGovernor.Reservation reservation = memoryGovernor.reserve(phase, requiredBytes);
+      if (reservation == null) {
+        log.warn(
+            "Memory budget exhausted! "
+                + phase
+                + " requires ~"
+                + (requiredBytes / (1024 * 1024))
+                + "M, "
+                + (memoryGovernor.getReservedBytes() / (1024 * 1024))
+                + "M reserved");
+        return false;
+      }
+      reservations.add(reservation);
+      metrics.addReservedBytes(requiredBytes);
+    }
+    return true;
+  }
+
+  /** @return predicted memory of the aggregates of inputs and outputs */
+  private static long estimateAggBytes(int nbIns, int nbOuts) {
+    double nbAgg = Math.pow(2, nbIns) + Math.pow(2, nbOuts);
+    return (long) Math.min(nbAgg * AGG_BYTES, Long.MAX_VALUE);
+  }
+
+  /**
+   * @return predicted memory of computeInAggCmbn(): pairs of disjoint matching aggregates, bounded
+   *     by the number of pairs of matching aggregates and by the number of pairs of disjoint
+   *     subsets of nbIns txos (3^nbIns / 2)
+   */
+  private static long estimateInAggCmbnBytes(int nbIns, int nbMatchIn) {
+    double nbPairs = Math.min((double) nbMatchIn * nbMatchIn / 2, Math.pow(3, nbIns) / 2);
+    return (long) Math.min(nbPairs * IN_AGG_CMBN_BYTES, Long.MAX_VALUE);
+  }
+
+  /** Checks that the phases run so far didn't exceed maxDuration, before running a new one. */
+  private boolean checkDurationOk(String phase) {
+    if (maxDuration != null && System.currentTimeMillis() - startTime > maxDuration * 1000L) {
+      log.warn("maxDuration limit reached before " + phase + "!");
+      return false;
+    }
+    return true;
+  }
+
+  private boolean checkLimitOk(TxosTable txos) {
     int lenIn = txos.getInputs().size();
     int lenOut = txos.getOutputs().size();
     int maxCard = Math.max(lenIn, lenOut);
@@ -417,16 +1028,44 @@ public class TxosLinker {
     return true;
   }
 
-  public static TxosLinkerResult zeroEntropyResult(Txos filteredTxos) {
+  public void setMemoryGovernor(MemoryGovernor memoryGovernor) {
+    this.memoryGovernor = memoryGovernor;
+  }
+
+  /**
+   * Enables the estimated mode: when the search is estimated to last more than
+   * maxEstimatedDuration, only estimatedMinNbCmbn combinations are looked for (threshold mode) and
+   * the estimate is recorded in the metrics.
+   *
+   * @param maxEstimatedDuration time budget (in seconds) of the search, or null to always compute
+   *     exact results
+   * @param estimatedMinNbCmbn number of combinations looked for by longer searches
+   */
+  public void setMaxEstimatedDuration(Integer maxEstimatedDuration, int estimatedMinNbCmbn) {
+    this.maxEstimatedDuration = maxEstimatedDuration;
+    this.estimatedMinNbCmbn = estimatedMinNbCmbn;
+  }
+
+  public void setExecutor(ParallelExecutor executor) {
+    this.executor = executor;
+  }
+
+  public void setMetrics(RunMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  protected List<Pack> getPacks() {
+    return packs;
+  }
+
+  public static TxosLinkerResult zeroEntropyResult(TxosTable filteredTxos) {
     // When entropy = 0, all inputs and outputs are linked and matrix is filled with 1.
     int nbOuts = filteredTxos.getOutputs().size();
     int nbIns = filteredTxos.getInputs().size();
-    ObjectBigList<IntBigList> matLnk = ListsUtils.newIntMatrix(nbOuts, nbIns, 1);
+    LinkMatrix matLnk = LinkMatrix.newMatrix(nbOuts, nbIns, 1);
     TxosAggregator aggregator = new TxosAggregator();
     Set<long[]> dtrmLinks = aggregator.findDtrmLinks(matLnk, 1);
-    TxosLinkerResult result =
-        new TxosLinkerResult(
-            1, matLnk, dtrmLinks, new Txos(filteredTxos.getInputs(), filteredTxos.getOutputs()));
+    TxosLinkerResult result = new TxosLinkerResult(1, matLnk, dtrmLinks, filteredTxos);
     return result;
   }
 }
@@ -5,6 +5,12 @@ public enum TxosLinkerOptionEnum {
   /** compute the linkability matrix */
   LINKABILITY,
 
+  /**
+   * compute the number of combinations (and entropy) only, without the linkability matrix. Much
+   * faster and lighter than LINKABILITY.
+   */
+  COUNT_ONLY,
+
   /** precheck existence of deterministic links between inputs and outputs */
   PRECHECK,
 
@@ -21,5 +27,11 @@ public enum TxosLinkerOptionEnum {
    * consider that all fees have been paid by a unique sender and manage fees as an additionnal
    * output
    */
-  MERGE_FEES
+  MERGE_FEES,
+
+  /**
+   * record a profile of the search tree of the linkability matrix (see SearchProfile), available
+   * from the run's metrics. Ignored for COUNT_ONLY.
+   */
+  PROFILE
 }
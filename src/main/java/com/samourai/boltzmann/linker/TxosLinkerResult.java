@@ -1,21 +1,47 @@
 package com.samourai.boltzmann.linker;
 
 import com.samourai.boltzmann.aggregator.TxosAggregatorResult;
+import com.samourai.boltzmann.beans.LinkMatrix;
 import com.samourai.boltzmann.beans.Txos;
-import it.unimi.dsi.fastutil.ints.IntBigList;
-import it.unimi.dsi.fastutil.objects.ObjectBigList;
+import com.samourai.boltzmann.beans.TxosTable;
 import java.util.Set;
 
 public class TxosLinkerResult extends TxosAggregatorResult {
 
   private Set<long[]> dtrmLnksById;
+  private TxosTable txosTable;
+
+  // materialized on first call to getTxos()
   private Txos txos;
 
+  public TxosLinkerResult(int nbCmbn, LinkMatrix matLnk, Set<long[]> dtrmLnksById, Txos txos) {
+    this(nbCmbn, matLnk, dtrmLnksById, TxosTable.of(txos));
+    this.txos = txos;
+  }
+
+  public TxosLinkerResult(int nbCmbn, LinkMatrix matLnk, Set<long[]> dtrmLnksById, TxosTable txos) {
+    this(nbCmbn, matLnk, dtrmLnksById, txos, null);
+  }
+
   public TxosLinkerResult(
-      int nbCmbn, ObjectBigList<IntBigList> matLnk, Set<long[]> dtrmLnksById, Txos txos) {
-    super(nbCmbn, matLnk);
+      int nbCmbn,
+      LinkMatrix matLnk,
+      Set<long[]> dtrmLnksById,
+      TxosTable txos,
+      Boolean thresholdReached) {
+    this(nbCmbn, matLnk, dtrmLnksById, txos, thresholdReached, null);
+  }
+
+  public TxosLinkerResult(
+      int nbCmbn,
+      LinkMatrix matLnk,
+      Set<long[]> dtrmLnksById,
+      TxosTable txos,
+      Boolean thresholdReached,
+      Double upperNbCmbn) {
+    super(nbCmbn, matLnk, thresholdReached, upperNbCmbn);
     this.dtrmLnksById = dtrmLnksById;
-    this.txos = txos;
+    this.txosTable = txos;
   }
 
   public Set<long[]> getDtrmLnksById() {
@@ -23,6 +49,13 @@ public class TxosLinkerResult extends TxosAggregatorResult {
   }
 
   public Txos getTxos() {
+    if (txos == null) {
+      txos = txosTable.toTxos();
+    }
     return txos;
   }
+
+  public TxosTable getTxosTable() {
+    return txosTable;
+  }
 }
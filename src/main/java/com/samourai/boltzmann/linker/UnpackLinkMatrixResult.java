@@ -1,24 +1,23 @@
 package com.samourai.boltzmann.linker;
 
-import com.samourai.boltzmann.beans.Txos;
-import it.unimi.dsi.fastutil.ints.IntBigList;
-import it.unimi.dsi.fastutil.objects.ObjectBigList;
+import com.samourai.boltzmann.beans.LinkMatrix;
+import com.samourai.boltzmann.beans.TxosTable;
 
 public class UnpackLinkMatrixResult {
 
-  private Txos txos;
-  private ObjectBigList<IntBigList> matLnk;
+  private TxosTable txos;
+  private LinkMatrix matLnk;
 
-  public UnpackLinkMatrixResult(Txos txos, ObjectBigList<IntBigList> matLnk) {
+  public UnpackLinkMatrixResult(TxosTable txos, LinkMatrix matLnk) {
     this.txos = txos;
     this.matLnk = matLnk;
   }
 
-  public Txos getTxos() {
+  public TxosTable getTxos() {
     return txos;
   }
 
-  public ObjectBigList<IntBigList> getMatLnk() {
+  public LinkMatrix getMatLnk() {
     return matLnk;
   }
 }
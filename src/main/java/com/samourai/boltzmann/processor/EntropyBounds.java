@@ -0,0 +1,42 @@
+package com.samourai.boltzmann.processor;
+
+import com.google.common.math.DoubleMath;
+
+public class EntropyBounds {
+
+  // number of combinations found by the partial enumeration
+  private int lowerNbCmbn;
+  // max number of combinations for the structure of the tx
+  private double upperNbCmbn;
+
+  public EntropyBounds(int lowerNbCmbn, double upperNbCmbn) {
+    this.lowerNbCmbn = lowerNbCmbn;
+    this.upperNbCmbn = upperNbCmbn;
+  }
+
+  public int getLowerNbCmbn() {
+    return lowerNbCmbn;
+  }
+
+  public double getUpperNbCmbn() {
+    return upperNbCmbn;
+  }
+
+  public double getLowerEntropy() {
+    return DoubleMath.log2(lowerNbCmbn);
+  }
+
+  public double getUpperEntropy() {
+    return DoubleMath.log2(upperNbCmbn);
+  }
+
+  /** @return true if the bounds are equal (the partial enumeration completed) */
+  public boolean isExact() {
+    return lowerNbCmbn == upperNbCmbn;
+  }
+
+  @Override
+  public String toString() {
+    return "[" + getLowerEntropy() + ", " + getUpperEntropy() + "]";
+  }
+}
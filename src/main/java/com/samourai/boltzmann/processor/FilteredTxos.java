@@ -1,25 +1,25 @@
 package com.samourai.boltzmann.processor;
 
-import java.util.Map;
+import com.samourai.boltzmann.beans.TxoTable;
 
 public class FilteredTxos {
 
   // Txos txo ids to amounts
-  private Map<String, Long> txos;
+  private TxoTable txos;
 
-  // Mapping txo ids to bitcoin addresses
-  private Map<String, String> mapIdAddr;
+  // Bitcoin addresses, by txo id
+  private String[] addrs;
 
-  public FilteredTxos(Map<String, Long> txos, Map<String, String> mapIdAddr) {
+  public FilteredTxos(TxoTable txos, String[] addrs) {
     this.txos = txos;
-    this.mapIdAddr = mapIdAddr;
+    this.addrs = addrs;
   }
 
-  public Map<String, Long> getTxos() {
+  public TxoTable getTxos() {
     return txos;
   }
 
-  public Map<String, String> getMapIdAddr() {
-    return mapIdAddr;
+  public String[] getAddrs() {
+    return addrs;
   }
 }
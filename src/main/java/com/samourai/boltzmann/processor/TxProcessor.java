@@ -1,15 +1,23 @@
 package com.samourai.boltzmann.processor;
 
-import com.google.common.collect.Sets;
+import com.samourai.boltzmann.BoltzmannListener;
+import com.samourai.boltzmann.beans.TxoTable;
 import com.samourai.boltzmann.beans.Txos;
+import com.samourai.boltzmann.beans.TxosTable;
+import com.samourai.boltzmann.linker.CostEstimate;
 import com.samourai.boltzmann.linker.IntraFees;
 import com.samourai.boltzmann.linker.TxosLinker;
 import com.samourai.boltzmann.linker.TxosLinkerOptionEnum;
 import com.samourai.boltzmann.linker.TxosLinkerResult;
 import com.samourai.boltzmann.utils.ListsUtils;
+import com.samourai.boltzmann.utils.MemoryGovernor;
+import com.samourai.boltzmann.utils.ParallelExecutor;
+import com.samourai.boltzmann.utils.RunMetrics;
+import com.samourai.boltzmann.utils.UnionFind;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -26,10 +34,55 @@ public class TxProcessor {
 
   private Integer maxDuration;
   private Integer maxTxos;
+  private Integer minNbCmbn;
+  private Long maxMemoryBytes;
+  private Integer maxEstimatedDuration;
+  private int estimatedMinNbCmbn;
+  private MemoryGovernor memoryGovernor;
+  private ParallelExecutor executor = ParallelExecutor.COMMON;
 
   public TxProcessor(Integer maxDuration, Integer maxTxos) {
+    this(maxDuration, maxTxos, null);
+  }
+
+  /**
+   * @param minNbCmbn minimum number of combinations to look for (threshold mode), or null to
+   *     compute all combinations
+   */
+  public TxProcessor(Integer maxDuration, Integer maxTxos, Integer minNbCmbn) {
+    this(maxDuration, maxTxos, minNbCmbn, null);
+  }
+
+  /**
+   * @param minNbCmbn minimum number of combinations to look for (threshold mode), or null to
+   *     compute all combinations
+   * @param maxMemoryBytes max memory allocated to processing of a single tx, or null for no limit
+   */
+  public TxProcessor(Integer maxDuration, Integer maxTxos, Integer minNbCmbn, Long maxMemoryBytes) {
     this.maxDuration = maxDuration;
     this.maxTxos = maxTxos;
+    this.minNbCmbn = minNbCmbn;
+    this.maxMemoryBytes = maxMemoryBytes;
+  }
+
+  /** @param memoryGovernor memory budget shared with other analyses, or null */
+  public void setMemoryGovernor(MemoryGovernor memoryGovernor) {
+    this.memoryGovernor = memoryGovernor;
+  }
+
+  /**
+   * @param maxEstimatedDuration time budget (in seconds) of the search, or null to always compute
+   *     exact results. Txs estimated to run longer are processed in estimated mode.
+   * @param estimatedMinNbCmbn number of combinations looked for in estimated mode
+   */
+  public void setMaxEstimatedDuration(Integer maxEstimatedDuration, int estimatedMinNbCmbn) {
+    this.maxEstimatedDuration = maxEstimatedDuration;
+    this.estimatedMinNbCmbn = estimatedMinNbCmbn;
+  }
+
+  /** @param executor executor of the parallel phases */
+  public void setExecutor(ParallelExecutor executor) {
+    this.executor = executor;
   }
 
   /**
@@ -43,6 +96,95 @@ public class TxProcessor {
    */
   public TxProcessorResult processTx(
       Txos txos, float maxCjIntrafeesRatio, TxosLinkerOptionEnum... linkerOptions) {
+    return processTx(txos, maxCjIntrafeesRatio, (BoltzmannListener) null, linkerOptions);
+  }
+
+  /**
+   * Processes a transaction, notifying a listener of its progress.
+   *
+   * @param listener listener notified of phases and progress, which may cancel the processing
+   * @throws com.samourai.boltzmann.BoltzmannCancelledException if cancelled by the listener
+   * @see #processTx(Txos, float, TxosLinkerOptionEnum...)
+   */
+  public TxProcessorResult processTx(
+      Txos txos,
+      float maxCjIntrafeesRatio,
+      BoltzmannListener listener,
+      TxosLinkerOptionEnum... linkerOptions) {
+    return processTx(
+        txos, maxCjIntrafeesRatio, minNbCmbn, maxEstimatedDuration, listener, linkerOptions);
+  }
+
+  /**
+   * Computes fast bounds of the number of combinations of a transaction, without computing the
+   * linkability matrix.
+   *
+   * <p>The lower bound is given by a partial enumeration of the combinations, which stops after
+   * maxNbCmbn combinations. If the enumeration completes, both bounds are the exact number of
+   * combinations.
+   *
+   * <p>The upper bound counts the pairings of partitions of inputs and outputs into matching
+   * aggregates (see TxosAggregator.computeNbCmbnUpperBound), or of any partitions when there are
+   * too many txos for enumerating them (see computeCmbnsUpperBound). For txs without fees, it is
+   * clamped by the number of combinations of the closest perfect coinjoin, which is the max number
+   * of combinations for the structure of the tx (as assumed by the efficiency).
+   *
+   * @param txos Txos to be processed
+   * @param maxCjIntrafeesRatio max intrafees paid by the taker of a coinjoined transaction
+   * @param maxNbCmbn max number of combinations enumerated for the lower bound
+   * @param linkerOptions options to be applied during processing
+   * @return EntropyBounds
+   */
+  public EntropyBounds computeBounds(
+      Txos txos, float maxCjIntrafeesRatio, int maxNbCmbn, TxosLinkerOptionEnum... linkerOptions) {
+    Set<TxosLinkerOptionEnum> options =
+        new HashSet<TxosLinkerOptionEnum>(Arrays.asList(linkerOptions));
+    // deterministic links are not needed for bounds
+    options.remove(TxosLinkerOptionEnum.PRECHECK);
+    options.add(TxosLinkerOptionEnum.COUNT_ONLY);
+
+    // enumerates up to maxNbCmbn + 1 combinations: the enumeration completed if not reached
+    int minNbCmbn = maxNbCmbn < Integer.MAX_VALUE ? maxNbCmbn + 1 : Integer.MAX_VALUE;
+    TxProcessorResult result =
+        processTx(
+            txos,
+            maxCjIntrafeesRatio,
+            minNbCmbn,
+            null,
+            null,
+            options.toArray(new TxosLinkerOptionEnum[options.size()]));
+    if (Boolean.FALSE.equals(result.getThresholdReached())) {
+      return new EntropyBounds(result.getNbCmbn(), result.getNbCmbn());
+    }
+
+    // txos table includes the fees output when MERGE_FEES
+    int nbIns = result.getTxosTable().getInputs().size();
+    int nbOuts = result.getTxosTable().getOutputs().size();
+    Double upperNbCmbn = result.getUpperNbCmbn();
+    if (upperNbCmbn == null) {
+      upperNbCmbn = computeCmbnsUpperBound(nbIns, nbOuts);
+    }
+    boolean hasIntraFees = result.getIntraFees() != null && result.getIntraFees().hasFees();
+    if (result.getFees() == 0 && !hasIntraFees) {
+      // fees allow more matches than a perfect coinjoin (ie 1, 2 => 1, 1 has 4 combinations)
+      NbTxos nbTxosPrfctCj = getClosestPerfectCoinjoin(nbIns, nbOuts);
+      Double nbCmbnPrfctCj =
+          computeCmbnsPerfectCj(nbTxosPrfctCj.getNbIns(), nbTxosPrfctCj.getNbOuts());
+      if (nbCmbnPrfctCj != null) {
+        upperNbCmbn = Math.min(upperNbCmbn, nbCmbnPrfctCj);
+      }
+    }
+    int lowerNbCmbn = Math.max(result.getNbCmbn(), 1);
+    return new EntropyBounds(lowerNbCmbn, Math.max(upperNbCmbn, lowerNbCmbn));
+  }
+
+  private TxProcessorResult processTx(
+      Txos txos,
+      float maxCjIntrafeesRatio,
+      Integer minNbCmbn,
+      Integer maxEstimatedDuration,
+      BoltzmannListener listener,
+      TxosLinkerOptionEnum... linkerOptions) {
     Set<TxosLinkerOptionEnum> options =
         new HashSet<TxosLinkerOptionEnum>(Arrays.asList(linkerOptions));
 
@@ -60,25 +202,32 @@ public class TxProcessor {
     FilteredTxos filteredOuts = filterTxos(txos.getOutputs(), TxProcessorConst.MARKER_OUTPUT);
 
     // Computes total input & output amounts + fees
-    long sumInputs =
-        Arrays.stream(ListsUtils.toPrimitiveArray(filteredIns.getTxos().values())).sum();
-    long sumOutputs =
-        Arrays.stream(ListsUtils.toPrimitiveArray(filteredOuts.getTxos().values())).sum();
+    long sumInputs = filteredIns.getTxos().sum();
+    long sumOutputs = filteredOuts.getTxos().sum();
     long fees = sumInputs - sumOutputs;
 
     // Sets default intrafees paid by participants (fee_received_by_maker, fees_paid_by_taker)
     IntraFees intraFees = new IntraFees(0, 0);
 
     TxosLinkerResult result;
+    Boolean thresholdReached;
+    RunMetrics metrics = new RunMetrics(listener);
+    metrics.setTxShape(filteredIns.getTxos().size(), filteredOuts.getTxos().size());
+    metrics.start();
 
     // Processes the transaction
-    Txos filteredTxos = new Txos(filteredIns.getTxos(), filteredOuts.getTxos());
+    TxosTable filteredTxos = new TxosTable(filteredIns.getTxos(), filteredOuts.getTxos());
     if (filteredIns.getTxos().size() <= 1 || filteredOuts.getTxos().size() == 1) {
       // Txs having no input (coinbase) or only 1 input/output (null entropy)
       result = TxosLinker.zeroEntropyResult(filteredTxos);
+      thresholdReached = minNbCmbn != null ? result.getNbCmbn() >= minNbCmbn : null;
     } else {
       // Initializes the TxosLinker for this tx
-      TxosLinker linker = new TxosLinker(fees, maxDuration, maxTxos);
+      TxosLinker linker = new TxosLinker(fees, maxDuration, maxTxos, minNbCmbn, maxMemoryBytes);
+      linker.setMemoryGovernor(memoryGovernor);
+      linker.setExecutor(executor);
+      linker.setMetrics(metrics);
+      linker.setMaxEstimatedDuration(maxEstimatedDuration, estimatedMinNbCmbn);
 
       // Computes a list of sets of inputs controlled by a same address
       List<Set<String>> linkedIns = new ArrayList<Set<String>>();
@@ -96,30 +245,7 @@ public class TxProcessor {
 
       // Computes intrafees to be used during processing
       if (maxCjIntrafeesRatio > 0) {
-        // Computes a theoretic max number of participants
-        List<Set<String>> lsFilteredIns = new LinkedList<Set<String>>();
-        for (String txoId : filteredIns.getTxos().keySet()) {
-          Set<String> set = new LinkedHashSet<String>();
-          set.add(txoId);
-          lsFilteredIns.add(set);
-        }
-
-        lsFilteredIns.addAll(linkedIns);
-        Collection<Set<String>> insToMerge = new ArrayList<Set<String>>();
-        insToMerge.addAll(lsFilteredIns);
-        insToMerge.addAll(linkedIns);
-        int maxNbPtcpts = ListsUtils.mergeSets(insToMerge).size();
-
-        // Checks if tx has a coinjoin pattern + gets estimated number of participants and
-        // coinjoined amount
-        CoinjoinPattern cjPattern = checkCoinjoinPattern(filteredOuts.getTxos(), maxNbPtcpts);
-
-        // If coinjoin pattern detected, computes theoretic max intrafees
-        if (cjPattern != null) {
-          intraFees =
-              computeCoinjoinIntrafees(
-                  cjPattern.getNbPtcpts(), cjPattern.getCjAmount(), maxCjIntrafeesRatio);
-        }
+        intraFees = computeIntraFees(filteredIns, filteredOuts, linkedIns, maxCjIntrafeesRatio);
       }
 
       // Computes entropy of the tx and txos linkability matrix
@@ -127,6 +253,7 @@ public class TxProcessor {
       linkedTxos.addAll(linkedIns);
       linkedTxos.addAll(linkedOuts);
       result = linker.process(filteredTxos, linkedTxos, options, intraFees);
+      thresholdReached = result.getThresholdReached();
     }
 
     // compute nb_cmbn_perfect_cj
@@ -143,22 +270,105 @@ public class TxProcessor {
 
     // Post processes results (replaces txo ids by bitcoin addresses)
 
-    Map<String, Long> txoIns =
-        postProcessTxos(result.getTxos().getInputs(), filteredIns.getMapIdAddr());
-    Map<String, Long> txoOuts =
-        postProcessTxos(result.getTxos().getOutputs(), filteredOuts.getMapIdAddr());
+    TxoTable txoIns = postProcessTxos(result.getTxosTable().getInputs(), filteredIns);
+    TxoTable txoOuts = postProcessTxos(result.getTxosTable().getOutputs(), filteredOuts);
     return new TxProcessorResult(
         result.getNbCmbn(),
         result.getMatLnkCombinations(),
-        result.computeMatLnkProbabilities(),
+        null, // probabilities are computed on first access
         result.computeEntropy(),
         result.getDtrmLnksById(),
-        new Txos(txoIns, txoOuts),
+        new TxosTable(txoIns, txoOuts),
         fees,
         intraFees,
         efficiency,
         nbCmbnPrfctCj,
-        nbTxosPrfctCj);
+        nbTxosPrfctCj,
+        thresholdReached,
+        result.getUpperNbCmbn(),
+        metrics);
+  }
+
+  /**
+   * Predicts the cost of processing a transaction with processTx(), without running it.
+   *
+   * @param txos Txos to be processed
+   * @param maxCjIntrafeesRatio max intrafees paid by the taker of a coinjoined transaction
+   * @param linkerOptions options to be applied during processing
+   * @return CostEstimate, or null if the tx exceeds maxTxos and wouldn't be processed
+   */
+  public CostEstimate estimateTx(
+      Txos txos, float maxCjIntrafeesRatio, TxosLinkerOptionEnum... linkerOptions) {
+    Set<TxosLinkerOptionEnum> options =
+        new HashSet<TxosLinkerOptionEnum>(Arrays.asList(linkerOptions));
+
+    FilteredTxos filteredIns = filterTxos(txos.getInputs(), TxProcessorConst.MARKER_INPUT);
+    FilteredTxos filteredOuts = filterTxos(txos.getOutputs(), TxProcessorConst.MARKER_OUTPUT);
+    int nbIns = filteredIns.getTxos().size();
+    int nbOuts = filteredOuts.getTxos().size();
+    if (nbIns <= 1 || nbOuts == 1) {
+      // null entropy, nothing to compute
+      return new CostEstimate(nbIns, nbOuts, 0, 0, 0, 0, 0, 0);
+    }
+    long fees = filteredIns.getTxos().sum() - filteredOuts.getTxos().sum();
+
+    List<Set<String>> linkedTxos = new ArrayList<Set<String>>();
+    List<Set<String>> linkedIns = new ArrayList<Set<String>>();
+    if (options.contains(TxosLinkerOptionEnum.MERGE_INPUTS)) {
+      linkedIns = getLinkedTxos(filteredIns);
+      linkedTxos.addAll(linkedIns);
+    }
+    if (options.contains(TxosLinkerOptionEnum.MERGE_OUTPUTS)) {
+      linkedTxos.addAll(getLinkedTxos(filteredOuts));
+    }
+    IntraFees intraFees = new IntraFees(0, 0);
+    if (maxCjIntrafeesRatio > 0) {
+      intraFees = computeIntraFees(filteredIns, filteredOuts, linkedIns, maxCjIntrafeesRatio);
+    }
+
+    TxosLinker linker = new TxosLinker(fees, maxDuration, maxTxos, minNbCmbn, maxMemoryBytes);
+    linker.setMemoryGovernor(memoryGovernor);
+    linker.setExecutor(executor);
+    TxosTable filteredTxos = new TxosTable(filteredIns.getTxos(), filteredOuts.getTxos());
+    return linker.estimate(filteredTxos, linkedTxos, options, intraFees);
+  }
+
+  /**
+   * Computes intrafees when the tx has a coinjoin pattern
+   *
+   * @param linkedIns sets of inputs controlled by a same address
+   * @return IntraFees
+   */
+  private IntraFees computeIntraFees(
+      FilteredTxos filteredIns,
+      FilteredTxos filteredOuts,
+      List<Set<String>> linkedIns,
+      float maxCjIntrafeesRatio) {
+    // Computes a theoretic max number of participants
+    List<Set<String>> lsFilteredIns = new LinkedList<Set<String>>();
+    for (String txoId : filteredIns.getTxos().getLabels()) {
+      Set<String> set = new LinkedHashSet<String>();
+      set.add(txoId);
+      lsFilteredIns.add(set);
+    }
+
+    lsFilteredIns.addAll(linkedIns);
+    Collection<Set<String>> insToMerge = new ArrayList<Set<String>>();
+    insToMerge.addAll(lsFilteredIns);
+    insToMerge.addAll(linkedIns);
+    int maxNbPtcpts = ListsUtils.mergeSets(insToMerge).size();
+
+    // Checks if tx has a coinjoin pattern + gets estimated number of participants and
+    // coinjoined amount
+    CoinjoinPattern cjPattern =
+        checkCoinjoinPattern(filteredOuts.getTxos().getValues(), maxNbPtcpts);
+
+    // If coinjoin pattern detected, computes theoretic max intrafees
+    if (cjPattern != null) {
+      return computeCoinjoinIntrafees(
+          cjPattern.getNbPtcpts(), cjPattern.getCjAmount(), maxCjIntrafeesRatio);
+    }
+    return new IntraFees(0, 0);
   }
 
   /**
@@ -167,35 +377,27 @@ public class TxProcessor {
    *
    * @param filteredTxos FilteredTxos
    */
-  private List<Set<String>> getLinkedTxos(FilteredTxos filteredTxos) { // TODO test
-    List<Set<String>[]> linkedTxos = new ArrayList<Set<String>[]>();
-
-    for (String id : filteredTxos.getTxos().keySet()) {
-      Set<String> setIns = new LinkedHashSet<String>();
-      setIns.add(id);
-
-      Set<String> setAddr = new LinkedHashSet<String>();
-      setAddr.add(filteredTxos.getMapIdAddr().get(id));
-
-      // Checks if this set intersects with some set previously found
-      for (Set<String>[] entry : linkedTxos) {
-        Set<String> k = entry[0];
-        Set<String> v = entry[1];
-        if (!Sets.intersection(k, setAddr).isEmpty()) {
-          // If an intersection is found, merges the 2 sets and removes previous set
-          // from linked_txos
-          setIns.addAll(v);
-          setAddr.addAll(k);
-          linkedTxos.remove(entry);
-        }
+  protected List<Set<String>> getLinkedTxos(FilteredTxos filteredTxos) {
+    UnionFind<String> linkedTxos = new UnionFind<String>();
+
+    // Links each txo to the first txo found for its address
+    Map<String, String> firstTxoByAddr = new HashMap<String, String>();
+    String[] addrs = filteredTxos.getAddrs();
+    for (int i = 0; i < addrs.length; i++) {
+      String id = filteredTxos.getTxos().getLabel(i);
+      String firstTxo = firstTxoByAddr.get(addrs[i]);
+      if (firstTxo == null) {
+        firstTxoByAddr.put(addrs[i], id);
+        linkedTxos.add(id);
+      } else {
+        linkedTxos.union(firstTxo, id);
       }
-      linkedTxos.add(new Set[] {setAddr, setIns});
     }
 
     List<Set<String>> result = new ArrayList<Set<String>>();
-    for (Set<String>[] sets : linkedTxos) {
-      if (sets[1].size() > 1) {
-        result.add(sets[1]);
+    for (Set<String> set : linkedTxos.getSets()) {
+      if (set.size() > 1) {
+        result.add(set);
       }
     }
     return result;
@@ -210,18 +412,21 @@ public class TxProcessor {
    * @return FilteredTxos
    */
   private FilteredTxos filterTxos(Map<String, Long> txos, String prefix) {
-    Map<String, Long> filteredTxos = new LinkedHashMap<String, Long>();
-    Map<String, String> mapIdAddr = new LinkedHashMap<String, String>();
+    List<String> ids = new ArrayList<String>(txos.size());
+    List<String> addrs = new ArrayList<String>(txos.size());
+    long[] values = new long[txos.size()];
 
     for (Entry<String, Long> entry : txos.entrySet()) {
       if (entry.getValue() > 0) {
-        String txoId = prefix + mapIdAddr.size();
-        filteredTxos.put(txoId, entry.getValue());
-        mapIdAddr.put(txoId, entry.getKey());
+        values[ids.size()] = entry.getValue();
+        ids.add(prefix + ids.size());
+        addrs.add(entry.getKey());
       }
     }
 
-    return new FilteredTxos(filteredTxos, mapIdAddr);
+    TxoTable filteredTxos =
+        new TxoTable(ids.toArray(new String[] {}), Arrays.copyOf(values, ids.size()));
+    return new FilteredTxos(filteredTxos, addrs.toArray(new String[] {}));
   }
 
   /**
@@ -229,19 +434,16 @@ public class TxProcessor {
    * list of txos (tuples (address, amount))
    *
    * @param txos list of txos (tuples (txo_id, amount))
-   * @param mapIdAddr mapping txo_ids to addresses
+   * @param filteredTxos filtered txos mapping txo_ids to addresses
    */
-  public Map<String, Long> postProcessTxos(Map<String, Long> txos, Map<String, String> mapIdAddr) {
-    Map<String, Long> results = new LinkedHashMap<String, Long>();
-    for (Entry<String, Long> entry : txos.entrySet()) {
-      if (entry.getKey().startsWith(TxProcessorConst.MARKER_INPUT)
-          || entry.getKey().startsWith(TxProcessorConst.MARKER_OUTPUT)) {
-        results.put(mapIdAddr.get(entry.getKey()), entry.getValue());
-      } else {
-        results.put(entry.getKey(), entry.getValue()); // PACKS, FEES...
-      }
+  public TxoTable postProcessTxos(TxoTable txos, FilteredTxos filteredTxos) {
+    String[] labels = new String[txos.size()];
+    for (int i = 0; i < txos.size(); i++) {
+      String txoId = txos.getLabel(i);
+      int idx = filteredTxos.getTxos().indexOf(txoId);
+      labels[i] = idx >= 0 ? filteredTxos.getAddrs()[idx] : txoId; // PACKS, FEES...
     }
-    return results;
+    return new TxoTable(labels, txos.getValues());
   }
 
   /**
@@ -254,6 +456,19 @@ public class TxProcessor {
    * @return CoinjoinPattern if coinjoin pattern is found, otherwise null
    */
   protected CoinjoinPattern checkCoinjoinPattern(Map<String, Long> txoOuts, int maxNbEntities) {
+    return checkCoinjoinPattern(ListsUtils.toPrimitiveArray(txoOuts.values()), maxNbEntities);
+  }
+
+  /**
+   * Checks if a transaction looks like a coinjoin Returns a tuple (is_coinjoin, nb_participants,
+   * coinjoined_amount)
+   *
+   * @param txoOuts outputs values
+   * @param maxNbEntities estimated max number of entities participating in the coinjoin (info
+   *     coming from a side channel source or from an analysis of tx structure)
+   * @return CoinjoinPattern if coinjoin pattern is found, otherwise null
+   */
+  protected CoinjoinPattern checkCoinjoinPattern(long[] txoOuts, int maxNbEntities) {
     // Checks that we have more than 1 input entity
     if (maxNbEntities < 2) {
       return null;
@@ -261,15 +476,14 @@ public class TxProcessor {
 
     // Computes a dictionary of #outputs per amount (d[amount] = nb_outputs)
     Map<Long, Integer> nbOutsByAmount = new LinkedHashMap<Long, Integer>();
-    for (Entry<String, Long> entry : txoOuts.entrySet()) {
-      long amont = entry.getValue();
+    for (long amont : txoOuts) {
       int nb = nbOutsByAmount.containsKey(amont) ? nbOutsByAmount.get(amont) : 0;
       nb++;
       nbOutsByAmount.put(amont, nb);
     }
 
     // Computes #outputs
-    int nbTxoOuts = txoOuts.size();
+    int nbTxoOuts = txoOuts.length;
 
     // Tries to detect a coinjoin pattern in outputs:
     //   n outputs with same value, with n > 1
@@ -397,4 +611,46 @@ public class TxProcessor {
 
     return null; // not supported
   }
+
+  /**
+   * Computes an upper bound of the number of combinations for a transaction with nb_i inputs and
+   * nb_o outputs, whatever their amounts.
+   *
+   * <p>A combination pairs a partition of inputs in k sets with a partition of outputs in k sets.
+   * Counting all such pairings gives sum_k(S(nb_i, k) * S(nb_o, k) * k!), where S(n, k) are
+   * Stirling numbers of the second kind.
+   *
+   * @param nbIns number of inputs
+   * @param nbOuts number of outputs
+   * @return the max number of combinations
+   */
+  protected double computeCmbnsUpperBound(int nbIns, int nbOuts) {
+    if (nbIns <= 1 || nbOuts <= 1) {
+      return 1.0;
+    }
+    int maxK = Math.min(nbIns, nbOuts);
+    double[] stirlingIns = computeStirlingNumbers(nbIns, maxK);
+    double[] stirlingOuts = computeStirlingNumbers(nbOuts, maxK);
+    double nbCmbn = 0;
+    double factK = 1;
+    for (int k = 1; k <= maxK; k++) {
+      factK *= k;
+      nbCmbn += stirlingIns[k] * stirlingOuts[k] * factK;
+    }
+    return nbCmbn;
+  }
+
+  /** @return S(n, k) for k in [0, maxK] */
+  private double[] computeStirlingNumbers(int n, int maxK) {
+    // S(i, k) = k * S(i-1, k) + S(i-1, k-1)
+    double[] s = new double[maxK + 1];
+    s[0] = 1;
+    for (int i = 1; i <= n; i++) {
+      for (int k = Math.min(i, maxK); k >= 1; k--) {
+        s[k] = k * s[k] + s[k - 1];
+      }
+      s[0] = 0;
+    }
+    return s;
+  }
 }
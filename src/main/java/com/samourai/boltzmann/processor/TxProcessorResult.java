@@ -1,27 +1,31 @@
 package com.samourai.boltzmann.processor;
 
+import com.samourai.boltzmann.beans.LinkMatrix;
+import com.samourai.boltzmann.beans.ProbabilityMatrix;
 import com.samourai.boltzmann.beans.Txos;
+import com.samourai.boltzmann.beans.TxosTable;
 import com.samourai.boltzmann.linker.IntraFees;
 import com.samourai.boltzmann.linker.TxosLinkerResult;
-import it.unimi.dsi.fastutil.doubles.DoubleBigList;
-import it.unimi.dsi.fastutil.ints.IntBigList;
-import it.unimi.dsi.fastutil.objects.ObjectBigList;
+import com.samourai.boltzmann.utils.RunMetrics;
 import java.util.Set;
 
 public class TxProcessorResult extends TxosLinkerResult {
 
-  private ObjectBigList<DoubleBigList> matLnkProbabilities;
+  // computed from matLnkCombinations on first access when null
+  private ProbabilityMatrix matLnkProbabilities;
   private Double entropy;
   private long fees;
   private IntraFees intraFees;
   private Double efficiency;
   private Double nbCmbnPrfctCj;
   private NbTxos nbTxosPrfctCj;
+  // metrics of the run which computed this result, if any
+  private RunMetrics metrics;
 
   public TxProcessorResult(
       int nbCmbn,
-      ObjectBigList<IntBigList> matLnkCombinations,
-      ObjectBigList<DoubleBigList> matLnkProbabilities,
+      LinkMatrix matLnkCombinations,
+      ProbabilityMatrix matLnkProbabilities,
       Double entropy,
       Set<long[]> dtrmLnksById,
       Txos txos,
@@ -31,6 +35,88 @@ public class TxProcessorResult extends TxosLinkerResult {
       Double nbCmbnPrfctCj,
       NbTxos nbTxosPrfctCj) {
     super(nbCmbn, matLnkCombinations, dtrmLnksById, txos);
+    init(matLnkProbabilities, entropy, fees, intraFees, efficiency, nbCmbnPrfctCj, nbTxosPrfctCj);
+  }
+
+  public TxProcessorResult(
+      int nbCmbn,
+      LinkMatrix matLnkCombinations,
+      ProbabilityMatrix matLnkProbabilities,
+      Double entropy,
+      Set<long[]> dtrmLnksById,
+      TxosTable txos,
+      long fees,
+      IntraFees intraFees,
+      Double efficiency,
+      Double nbCmbnPrfctCj,
+      NbTxos nbTxosPrfctCj,
+      Boolean thresholdReached,
+      RunMetrics metrics) {
+    this(
+        nbCmbn,
+        matLnkCombinations,
+        matLnkProbabilities,
+        entropy,
+        dtrmLnksById,
+        txos,
+        fees,
+        intraFees,
+        efficiency,
+        nbCmbnPrfctCj,
+        nbTxosPrfctCj,
+        thresholdReached,
+        null,
+        metrics);
+  }
+
+  public TxProcessorResult(
+      int nbCmbn,
+      LinkMatrix matLnkCombinations,
+      ProbabilityMatrix matLnkProbabilities,
+      Double entropy,
+      Set<long[]> dtrmLnksById,
+      TxosTable txos,
+      long fees,
+      IntraFees intraFees,
+      Double efficiency,
+      Double nbCmbnPrfctCj,
+      NbTxos nbTxosPrfctCj,
+      Boolean thresholdReached,
+      Double upperNbCmbn,
+      RunMetrics metrics) {
+    super(nbCmbn, matLnkCombinations, dtrmLnksById, txos, thresholdReached, upperNbCmbn);
+    init(matLnkProbabilities, entropy, fees, intraFees, efficiency, nbCmbnPrfctCj, nbTxosPrfctCj);
+    this.metrics = metrics;
+  }
+
+  /** Copies a result without computing its lazy views. */
+  protected TxProcessorResult(TxProcessorResult r) {
+    super(
+        r.getNbCmbn(),
+        r.getMatLnkCombinations(),
+        r.getDtrmLnksById(),
+        r.getTxosTable(),
+        r.getThresholdReached(),
+        r.getUpperNbCmbn());
+    init(
+        r.matLnkProbabilities,
+        r.entropy,
+        r.fees,
+        r.intraFees,
+        r.efficiency,
+        r.nbCmbnPrfctCj,
+        r.nbTxosPrfctCj);
+    this.metrics = r.metrics;
+  }
+
+  private void init(
+      ProbabilityMatrix matLnkProbabilities,
+      Double entropy,
+      long fees,
+      IntraFees intraFees,
+      Double efficiency,
+      Double nbCmbnPrfctCj,
+      NbTxos nbTxosPrfctCj) {
     this.matLnkProbabilities = matLnkProbabilities;
     this.entropy = entropy;
     this.fees = fees;
@@ -40,7 +126,10 @@ public class TxProcessorResult extends TxosLinkerResult {
     this.nbTxosPrfctCj = nbTxosPrfctCj;
   }
 
-  public ObjectBigList<DoubleBigList> getMatLnkProbabilities() {
+  public ProbabilityMatrix getMatLnkProbabilities() {
+    if (matLnkProbabilities == null) {
+      matLnkProbabilities = computeMatLnkProbabilities();
+    }
     return matLnkProbabilities;
   }
 
@@ -68,12 +157,24 @@ public class TxProcessorResult extends TxosLinkerResult {
     return nbTxosPrfctCj;
   }
 
+  public RunMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @return the limit which prevented computing the linkability matrix (only the number of
+   *     combinations was computed), or null
+   */
+  public String getDowngradeReason() {
+    return metrics != null ? metrics.getDowngradeReason() : null;
+  }
+
   public int getNbLinks() {
-    return getTxos().getInputs().size() * getTxos().getOutputs().size();
+    return getTxosTable().getInputs().size() * getTxosTable().getOutputs().size();
   }
 
   public Double getDensity() {
-    return getEntropy() / (getTxos().getInputs().size() + getTxos().getOutputs().size());
+    return getEntropy() / (getTxosTable().getInputs().size() + getTxosTable().getOutputs().size());
   }
 
   public int getNbDL() {
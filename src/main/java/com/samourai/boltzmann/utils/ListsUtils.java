@@ -1,15 +1,9 @@
 package com.samourai.boltzmann.utils;
 
-import it.unimi.dsi.fastutil.BigList;
-import it.unimi.dsi.fastutil.doubles.DoubleBigArrayBigList;
-import it.unimi.dsi.fastutil.doubles.DoubleBigList;
-import it.unimi.dsi.fastutil.ints.IntBigArrayBigList;
-import it.unimi.dsi.fastutil.ints.IntBigList;
 import it.unimi.dsi.fastutil.objects.ObjectBigArrayBigList;
 import it.unimi.dsi.fastutil.objects.ObjectBigList;
 import java.util.*;
 import java.util.Map.Entry;
-import java.util.stream.LongStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,31 +18,26 @@ public class ListsUtils {
    * @return Returns the list with merged sets.
    */
   public static List<Set<String>> mergeSets(Collection<Set<String>> sets) {
-    LinkedList<Set<String>> tmp_sets = new LinkedList<Set<String>>(sets);
-    boolean merged = true;
-    while (merged) {
-      merged = false;
-      LinkedList<Set<String>> res = new LinkedList<Set<String>>();
-      while (!tmp_sets.isEmpty()) {
-        Set<String> current = tmp_sets.poll();
-        LinkedList<Set<String>> rest = tmp_sets;
-        tmp_sets = new LinkedList<Set<String>>();
-        for (Set<String> x : rest) {
-          if (Collections.disjoint(current, x)) {
-            tmp_sets.add(x);
-          } else {
-            merged = true;
-            current.addAll(x);
-          }
+    UnionFind<String> unionFind = new UnionFind<String>();
+    for (Set<String> set : sets) {
+      String first = null;
+      for (String item : set) {
+        if (first == null) {
+          first = item;
+          unionFind.add(item);
+        } else {
+          unionFind.union(first, item);
         }
-        res.add(current);
       }
-      tmp_sets = res;
     }
-    return tmp_sets;
+    return unionFind.getSets();
   }
 
   public static ObjectBigList<long[]> powerSet(Long[] a) {
+    return powerSet(a, new RunMetrics());
+  }
+
+  public static ObjectBigList<long[]> powerSet(Long[] a, RunMetrics metrics) {
     /*int max = 1 << a.length;
     long[][] result = new long[max][];
     Set<Set<Long>> sets = Sets.powerSet(new HashSet<Long>(Arrays.asList(a)));
@@ -75,9 +64,9 @@ public class ListsUtils {
         if ((b & 1) != 0) line[k++] = a[j];
       }
       result.add(line);
-      Utils.logProgress(PROGRESS_ID, i, max);
+      metrics.logProgress(PROGRESS_ID, i, max);
     }
-    Utils.logProgressDone(PROGRESS_ID, max);
+    metrics.logProgressDone(PROGRESS_ID, max);
 
     // consistency check
     long expectedSize = (long) Math.pow(2, a.length);
@@ -119,52 +108,6 @@ public class ListsUtils {
     return arr;
   }
 
-  public static ObjectBigList<IntBigList> newIntMatrix(long lines, long cols, int fillValue) {
-    ObjectBigList<IntBigList> matCmbn = new ObjectBigArrayBigList<IntBigList>(lines);
-    for (long i = 0; i < lines; i++) {
-      IntBigList line = ListsUtils.newIntBigList(cols, fillValue);
-      matCmbn.add(line);
-    }
-    return matCmbn;
-  }
-
-  public static IntBigList newIntBigList(long size, int fillValue) {
-    IntBigList line = new IntBigArrayBigList(size);
-    ListsUtils.fill(line, fillValue, size);
-    return line;
-  }
-
-  public static ObjectBigList<IntBigList> clone(final ObjectBigList<IntBigList> copy) {
-    final ObjectBigArrayBigList<IntBigList> c = new ObjectBigArrayBigList(copy.size64());
-
-    LongStream.range(0, copy.size64())
-        .parallel()
-        .forEachOrdered(
-            i -> {
-              IntBigList copyLine = ((IntBigArrayBigList) copy.get(i)).clone();
-              c.add(copyLine);
-            });
-    return c;
-  }
-
-  public static <T> void fill(BigList<T> bigList, T value, long size) {
-    for (long i = 0; i < size; i++) {
-      bigList.add(value);
-    }
-  }
-
-  public static boolean deepEquals(int[][] value, ObjectBigList<IntBigList> bigList) {
-    if (value.length != bigList.size64()) {
-      return false;
-    }
-    for (int i = 0; i < value.length; i++) {
-      if (!Arrays.equals(value[i], bigList.get(i).toArray(new int[] {}))) {
-        return false;
-      }
-    }
-    return true;
-  }
-
   public static boolean deepEquals(long[][] value, ObjectBigList<long[]> bigList) {
     if (value.length != bigList.size64()) {
       return false;
@@ -176,21 +119,4 @@ public class ListsUtils {
     }
     return true;
   }
-
-  public static ObjectBigList<IntBigList> toBigList(int[][] matLnkInt) {
-    ObjectBigList<IntBigList> matLnk = new ObjectBigArrayBigList<IntBigList>(matLnkInt.length);
-    for (int i = 0; i < matLnkInt.length; i++) {
-      matLnk.add(IntBigArrayBigList.wrap(new int[][] {matLnkInt[i]}));
-    }
-    return matLnk;
-  }
-
-  public static ObjectBigList<DoubleBigList> toBigList(double[][] matLnkInt) {
-    ObjectBigList<DoubleBigList> matLnk =
-        new ObjectBigArrayBigList<DoubleBigList>(matLnkInt.length);
-    for (int i = 0; i < matLnkInt.length; i++) {
-      matLnk.add(DoubleBigArrayBigList.wrap(new double[][] {matLnkInt[i]}));
-    }
-    return matLnk;
-  }
 }
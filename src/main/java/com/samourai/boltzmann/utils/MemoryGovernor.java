@@ -0,0 +1,109 @@
+package com.samourai.boltzmann.utils;
+
+import java.util.*;
+
+/**
+ * Byte budget shared by concurrent analyses of a same JVM. Each phase reserves its predicted memory
+ * before allocating it, and releases it when done. A reservation waits up to maxWaitMillis for
+ * other analyses to release their memory, and fails fast when it can't fit in the whole budget.
+ */
+public class MemoryGovernor {
+
+  private final long maxBytes;
+  private final long maxWaitMillis;
+
+  // guarded by this
+  private long reservedBytes;
+  private final Set<Reservation> reservations =
+      Collections.newSetFromMap(new IdentityHashMap<Reservation, Boolean>());
+
+  /**
+   * @param maxBytes memory budget shared by all analyses (in bytes)
+   * @param maxWaitMillis max duration to wait for memory to be released (in milliseconds)
+   */
+  public MemoryGovernor(long maxBytes, long maxWaitMillis) {
+    this.maxBytes = maxBytes;
+    this.maxWaitMillis = maxWaitMillis;
+  }
+
+  /**
+   * Reserves memory, waiting up to maxWaitMillis for the budget to be available.
+   *
+   * @param name name of the phase, for monitoring
+   * @param bytes predicted memory of the phase
+   * @return the reservation to be released, or null if the budget is exhausted
+   */
+  public synchronized Reservation reserve(String name, long bytes) {
+    if (bytes > maxBytes) {
+      // would never fit
+      return null;
+    }
+    long deadline = System.currentTimeMillis() + maxWaitMillis;
+    while (reservedBytes + bytes > maxBytes) {
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        return null;
+      }
+      try {
+        wait(remaining);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+    }
+    Reservation reservation = new Reservation(name, bytes);
+    reservedBytes += bytes;
+    reservations.add(reservation);
+    return reservation;
+  }
+
+  private synchronized void release(Reservation reservation) {
+    if (reservations.remove(reservation)) {
+      reservedBytes -= reservation.getBytes();
+      notifyAll();
+    }
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public synchronized long getReservedBytes() {
+    return reservedBytes;
+  }
+
+  /** @return snapshot of current reservations */
+  public synchronized List<Reservation> getReservations() {
+    return new ArrayList<Reservation>(reservations);
+  }
+
+  /** Memory reserved by a phase, released by close(). */
+  public class Reservation implements AutoCloseable {
+    private final String name;
+    private final long bytes;
+
+    private Reservation(String name, long bytes) {
+      this.name = name;
+      this.bytes = bytes;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    /** Releases the reservation (no-op if already released). */
+    @Override
+    public void close() {
+      release(this);
+    }
+
+    @Override
+    public String toString() {
+      return name + "=" + bytes;
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package com.samourai.boltzmann.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Runs the parallel phases of the engine on a given ForkJoinPool instead of the JVM-wide common
+ * pool. Parallel streams run in the pool of the thread starting them, so a computation started by
+ * {@link #invoke(Supplier)} keeps all its nested parallel streams on this pool.
+ *
+ * <p>Streams smaller than sequentialThreshold are processed sequentially, as splitting them costs
+ * more than it saves.
+ */
+public class ParallelExecutor implements AutoCloseable {
+  public static final int SEQUENTIAL_THRESHOLD_DEFAULT = 64;
+
+  /** Common pool, default threshold */
+  public static final ParallelExecutor COMMON =
+      new ParallelExecutor(null, SEQUENTIAL_THRESHOLD_DEFAULT);
+
+  // null for the common pool
+  private volatile ForkJoinPool pool;
+  private final boolean ownPool;
+  private final int sequentialThreshold;
+
+  /**
+   * @param pool pool running parallel phases, or null for the common pool
+   * @param sequentialThreshold streams smaller than this size are processed sequentially
+   */
+  public ParallelExecutor(ForkJoinPool pool, int sequentialThreshold) {
+    this.pool = pool;
+    this.ownPool = false;
+    this.sequentialThreshold = sequentialThreshold;
+  }
+
+  /**
+   * Creates a dedicated pool, shut down by {@link #close()}.
+   *
+   * @param parallelism number of threads of the dedicated pool
+   * @param sequentialThreshold streams smaller than this size are processed sequentially
+   */
+  public ParallelExecutor(int parallelism, int sequentialThreshold) {
+    this.pool = new ForkJoinPool(parallelism);
+    this.ownPool = true;
+    this.sequentialThreshold = sequentialThreshold;
+  }
+
+  /** Runs a computation so that its parallel streams use this executor's pool. */
+  public <T> T invoke(Supplier<T> task) {
+    ForkJoinPool currentPool = pool;
+    if (currentPool == null || ForkJoinTask.getPool() == currentPool) {
+      return task.get();
+    }
+    return currentPool.submit(task::get).join();
+  }
+
+  public IntStream range(int startInclusive, int endExclusive) {
+    IntStream stream = IntStream.range(startInclusive, endExclusive);
+    return isParallel(endExclusive - startInclusive) ? stream.parallel() : stream;
+  }
+
+  public LongStream stream(long[] array) {
+    LongStream stream = Arrays.stream(array);
+    return isParallel(array.length) ? stream.parallel() : stream;
+  }
+
+  public <T> Stream<T> stream(Collection<T> collection) {
+    return isParallel(collection.size()) ? collection.parallelStream() : collection.stream();
+  }
+
+  private boolean isParallel(long size) {
+    return size >= sequentialThreshold;
+  }
+
+  public int getParallelism() {
+    return pool != null ? pool.getParallelism() : ForkJoinPool.getCommonPoolParallelism();
+  }
+
+  public int getSequentialThreshold() {
+    return sequentialThreshold;
+  }
+
+  /**
+   * Replaces the dedicated pool by a pool of the given parallelism, for next computations. Running
+   * computations complete on the previous pool, which is then shut down.
+   *
+   * @throws IllegalStateException if this executor doesn't own its pool
+   */
+  public synchronized void setParallelism(int parallelism) {
+    if (!ownPool) {
+      throw new IllegalStateException("parallelism can only be changed for a dedicated pool");
+    }
+    ForkJoinPool previousPool = pool;
+    pool = new ForkJoinPool(parallelism);
+    previousPool.shutdown();
+  }
+
+  /** Shuts down the dedicated pool, if any. */
+  @Override
+  public void close() {
+    if (ownPool) {
+      pool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package com.samourai.boltzmann.utils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Wall time, CPU time, allocated bytes and key cardinalities of a phase of a run.
+ *
+ * <p>CPU time and allocated bytes are read from the counters of the thread running the phase: work
+ * forked by parallel streams to other threads of the pool is not included. They are -1 when the JVM
+ * doesn't support these counters.
+ */
+public class PhaseMetrics {
+  private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+  private final String name;
+  private final long threadId;
+  private final long startNanos;
+  private final long startCpuNanos;
+  private final long startAllocatedBytes;
+
+  private long wallNanos = -1;
+  private long cpuNanos = -1;
+  private long allocatedBytes = -1;
+  private final Map<String, Long> cardinalities =
+      Collections.synchronizedMap(new LinkedHashMap<String, Long>());
+
+  /** Starts a phase on the current thread. */
+  public PhaseMetrics(String name) {
+    this.name = name;
+    this.threadId = Thread.currentThread().getId();
+    this.startNanos = System.nanoTime();
+    this.startCpuNanos = currentThreadCpuNanos();
+    this.startAllocatedBytes = currentThreadAllocatedBytes();
+  }
+
+  /** Ends the phase, on the thread which started it. */
+  public void end() {
+    wallNanos = System.nanoTime() - startNanos;
+    if (Thread.currentThread().getId() != threadId) {
+      // thread counters can't be compared
+      return;
+    }
+    long endCpuNanos = currentThreadCpuNanos();
+    if (startCpuNanos >= 0 && endCpuNanos >= 0) {
+      cpuNanos = endCpuNanos - startCpuNanos;
+    }
+    long endAllocatedBytes = currentThreadAllocatedBytes();
+    if (startAllocatedBytes >= 0 && endAllocatedBytes >= 0) {
+      allocatedBytes = endAllocatedBytes - startAllocatedBytes;
+    }
+  }
+
+  private static long currentThreadCpuNanos() {
+    if (threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled()) {
+      return threadMXBean.getCurrentThreadCpuTime();
+    }
+    return -1;
+  }
+
+  private static long currentThreadAllocatedBytes() {
+    if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean sunThreadMXBean =
+          (com.sun.management.ThreadMXBean) threadMXBean;
+      if (sunThreadMXBean.isThreadAllocatedMemorySupported()
+          && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+        return sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+
+  public void setCardinality(String key, long value) {
+    cardinalities.put(key, value);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** @return wall time (in nanoseconds), or -1 if the phase is still running */
+  public long getWallNanos() {
+    return wallNanos;
+  }
+
+  /** @return CPU time of the thread running the phase (in nanoseconds), or -1 if not available */
+  public long getCpuNanos() {
+    return cpuNanos;
+  }
+
+  /** @return bytes allocated by the thread running the phase, or -1 if not available */
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  /** @return key cardinalities of the phase (aggregates, matches, links...) */
+  public Map<String, Long> getCardinalities() {
+    synchronized (cardinalities) {
+      return new LinkedHashMap<String, Long>(cardinalities);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "["
+        + name
+        + "] "
+        + String.format("%.3f", wallNanos / 1e6)
+        + "ms wall, "
+        + String.format("%.3f", cpuNanos / 1e6)
+        + "ms cpu, "
+        + allocatedBytes
+        + " bytes allocated "
+        + getCardinalities();
+  }
+}
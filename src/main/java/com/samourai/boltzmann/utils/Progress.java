@@ -3,7 +3,7 @@ package com.samourai.boltzmann.utils;
 public class Progress {
   private String name;
   private long start;
-  private long last;
+  private volatile long last;
   private long current;
   private long target;
   private double rate;
@@ -0,0 +1,342 @@
+package com.samourai.boltzmann.utils;
+
+import com.samourai.boltzmann.BoltzmannCancelledException;
+import com.samourai.boltzmann.BoltzmannListener;
+import com.samourai.boltzmann.aggregator.SearchProfile;
+import com.samourai.boltzmann.jfr.JfrEvents;
+import com.samourai.boltzmann.linker.CostEstimate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Progress and memory metrics of a single run. Each run owns its instance, so concurrent runs don't
+ * mix their stats. Safe to update from parallel streams.
+ *
+ * <p>Phases, progress and cancellation are forwarded to the run's {@link BoltzmannListener}, if
+ * any.
+ */
+public class RunMetrics {
+  private static final Logger log = LoggerFactory.getLogger(RunMetrics.class);
+  private static final long BYTE_TO_MB = 1024L * 1024L;
+  private static final int LOG_PROGRESS_FREQUENCY = 30; // log progress every 30s
+
+  /** Min delay between two progress notifications of the listener */
+  public static final long LISTENER_PROGRESS_MILLIS = 1000;
+
+  /** Min delay between two JFR snapshots of the depth-first search */
+  public static final long DFS_SNAPSHOT_MILLIS = 100;
+
+  private final Map<String, Progress> progressLast = new ConcurrentHashMap<String, Progress>();
+  private final Queue<Progress> progressResult = new ConcurrentLinkedQueue<Progress>();
+
+  private final AtomicLong maxMemUsed = new AtomicLong();
+
+  private final BoltzmannListener listener;
+  // phase currently running (updated by the thread running the phases), and completed phases
+  private volatile PhaseMetrics phase;
+  private final Queue<PhaseMetrics> phases = new ConcurrentLinkedQueue<PhaseMetrics>();
+  // JFR event of the current phase, if recorded
+  private volatile Object phaseEvent;
+  // shape of the tx, for JFR events
+  private volatile int nbIns;
+  private volatile int nbOuts;
+  // memory reserved from the MemoryGovernor
+  private final AtomicLong reservedBytes = new AtomicLong();
+  // why the tx was not processed, if rejected by a limit
+  private volatile String rejectReason;
+  // why only the number of combinations was computed, if downgraded by a limit
+  private volatile String downgradeReason;
+  // recorded with the PROFILE option
+  private volatile SearchProfile searchProfile;
+  // recorded when the search exceeded maxEstimatedDuration
+  private volatile CostEstimate costEstimate;
+  // last DFS snapshot of the current phase
+  private long lastSnapshotNanos;
+  private long lastSnapshotIterations;
+  // last progress notification of the listener, and start time of each notified progress
+  private final AtomicLong lastNotified = new AtomicLong();
+  private final Map<String, Long> notifiedStart = new ConcurrentHashMap<String, Long>();
+
+  public RunMetrics() {
+    this(null);
+  }
+
+  /** @param listener listener notified of the run's status, or null */
+  public RunMetrics(BoltzmannListener listener) {
+    this.listener = listener;
+  }
+
+  /** Notifies the listener that the run started, before the first phase. */
+  public void start() {
+    if (listener != null) {
+      listener.onStart(this);
+    }
+  }
+
+  /** Ends the current phase (if any) and starts a new one. */
+  public void startPhase(String newPhase) {
+    endPhase();
+    checkCancelled();
+    phase = new PhaseMetrics(newPhase);
+    phaseEvent = JfrEvents.beginPhase(newPhase, nbIns, nbOuts);
+    lastSnapshotNanos = System.nanoTime();
+    lastSnapshotIterations = 0;
+    if (listener != null) {
+      listener.onPhaseStart(newPhase);
+    }
+  }
+
+  /** Ends the current phase, if any. */
+  public void endPhase() {
+    PhaseMetrics endedPhase = phase;
+    if (endedPhase == null) {
+      return;
+    }
+    phase = null;
+    endedPhase.end();
+    JfrEvents.endPhase(phaseEvent);
+    phaseEvent = null;
+    phases.add(endedPhase);
+    if (listener != null) {
+      listener.onPhaseEnd(endedPhase.getName(), endedPhase.getWallNanos() / 1000000);
+    }
+  }
+
+  /** Sets the shape of the processed tx, reported by JFR events. */
+  public void setTxShape(int nbIns, int nbOuts) {
+    this.nbIns = nbIns;
+    this.nbOuts = nbOuts;
+  }
+
+  /**
+   * Emits a JFR snapshot of the depth-first search of the current phase, at most every
+   * DFS_SNAPSHOT_MILLIS. Called by the search loop (single thread) on its periodic checks.
+   *
+   * @param depth number of tasks in the stack
+   * @param iterations iterations since the start of the search
+   * @param nbDLinks size of dLinks
+   */
+  public void dfsSnapshot(int depth, long iterations, long nbDLinks) {
+    if (!JfrEvents.isDfsSnapshotEnabled()) {
+      return;
+    }
+    long now = System.nanoTime();
+    long elapsedNanos = now - lastSnapshotNanos;
+    if (elapsedNanos < DFS_SNAPSHOT_MILLIS * 1000000) {
+      return;
+    }
+    double iterationRate = (iterations - lastSnapshotIterations) * 1e9 / elapsedNanos;
+    lastSnapshotNanos = now;
+    lastSnapshotIterations = iterations;
+
+    PhaseMetrics currentPhase = phase;
+    JfrEvents.dfsSnapshot(
+        currentPhase != null ? currentPhase.getName() : null,
+        nbIns,
+        nbOuts,
+        depth,
+        iterations,
+        nbDLinks,
+        iterationRate);
+  }
+
+  /** Sets a key cardinality of the current phase (ignored if no phase is running). */
+  public void setCardinality(String key, long value) {
+    PhaseMetrics currentPhase = phase;
+    if (currentPhase != null) {
+      currentPhase.setCardinality(key, value);
+    }
+  }
+
+  /** @throws BoltzmannCancelledException if the listener cancelled the run */
+  public void checkCancelled() {
+    if (listener != null && listener.isCancelled()) {
+      throw new BoltzmannCancelledException(
+          "Cancelled by listener" + (phase != null ? " during " + phase.getName() : ""));
+    }
+  }
+
+  public void logMemory(String msg) {
+    if (log.isDebugEnabled()) {
+      Runtime runtime = Runtime.getRuntime();
+      long freeMemory = runtime.freeMemory() / BYTE_TO_MB;
+      log.debug(freeMemory + "M free - " + (msg != null ? msg : ""));
+
+      // update maxMemUsed
+      long totalMemory = runtime.totalMemory() / BYTE_TO_MB;
+      long used = totalMemory - freeMemory;
+      maxMemUsed.accumulateAndGet(used, Math::max);
+    }
+  }
+
+  public void logProgress(String progressId, long current, long target) {
+    logProgress(progressId, current, target, "");
+  }
+
+  public void logProgress(String progressId, long current, long target, String msg) {
+    logProgress(progressId, current, target, () -> msg);
+  }
+
+  /**
+   * Logs progress, at most every LOG_PROGRESS_FREQUENCY seconds. The message is only built when
+   * progress is actually logged.
+   */
+  public void logProgress(
+      String progressId, long current, long target, Supplier<String> msgSupplier) {
+    checkCancelled();
+    notifyProgress(progressId, current, target);
+
+    Progress progress = progressLast.get(progressId);
+    long now = System.currentTimeMillis();
+    if (progress != null && (now - progress.getLast()) < (LOG_PROGRESS_FREQUENCY * 1000)) {
+      // don't log, too early
+      return;
+    }
+
+    // update last
+    if (progress == null) {
+      Progress newProgress = new Progress(progressId, current, target);
+      progress = progressLast.putIfAbsent(progressId, newProgress);
+      if (progress != null) {
+        // concurrently started
+        return;
+      }
+      progress = newProgress;
+    } else {
+      synchronized (progress) {
+        if ((now - progress.getLast()) < (LOG_PROGRESS_FREQUENCY * 1000)) {
+          // concurrently updated
+          return;
+        }
+        progress.update(current, target);
+      }
+    }
+
+    // log
+    if (log.isDebugEnabled()) {
+      logMemory(progress.getProgress() + " " + msgSupplier.get());
+    }
+  }
+
+  private void notifyProgress(String progressId, long current, long target) {
+    if (listener == null) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    Long start = notifiedStart.putIfAbsent(progressId, now);
+    long last = lastNotified.get();
+    if (start != null && now - last < LISTENER_PROGRESS_MILLIS) {
+      // too early
+      return;
+    }
+    if (!lastNotified.compareAndSet(last, now)) {
+      // concurrently notified
+      return;
+    }
+
+    Long etaMillis = null;
+    if (start != null && current > 0) {
+      etaMillis = (now - start) * Math.max(target - current, 0) / current;
+    }
+    Runtime runtime = Runtime.getRuntime();
+    long usedMemory = runtime.totalMemory() - runtime.freeMemory();
+    listener.onProgress(progressId, current, target, etaMillis, usedMemory);
+  }
+
+  public void logProgressDone(String progressId, long target) {
+    logProgressDone(progressId, target, "");
+  }
+
+  public void logProgressDone(String progressId, long target, String msg) {
+    notifiedStart.remove(progressId);
+    Progress progress = progressLast.remove(progressId);
+    String str;
+    if (progress != null) {
+      synchronized (progress) {
+        str = progress.done(target, msg);
+      }
+      progressResult.add(progress);
+    } else {
+      str = "[" + progressId + "] (no iteration) " + msg;
+    }
+    if (log.isDebugEnabled()) {
+      logMemory(str);
+    }
+  }
+
+  public void addReservedBytes(long bytes) {
+    reservedBytes.addAndGet(bytes);
+  }
+
+  /** @return memory currently reserved by the run from the MemoryGovernor */
+  public long getReservedBytes() {
+    return reservedBytes.get();
+  }
+
+  /** Records that the tx was not processed because of a limit (maxTxos, memory...). */
+  public void reject(String reason) {
+    this.rejectReason = reason;
+  }
+
+  /** @return the limit which prevented processing the tx, or null if processed */
+  public String getRejectReason() {
+    return rejectReason;
+  }
+
+  /**
+   * Records that the linkability matrix was requested but only the number of combinations was
+   * computed, because of a limit (memory...).
+   */
+  public void downgrade(String reason) {
+    this.downgradeReason = reason;
+  }
+
+  /**
+   * @return the limit which downgraded the run to the number of combinations only, or null if not
+   *     downgraded
+   */
+  public String getDowngradeReason() {
+    return downgradeReason;
+  }
+
+  /** @return profile of the search tree, when processed with the PROFILE option */
+  public SearchProfile getSearchProfile() {
+    return searchProfile;
+  }
+
+  public void setSearchProfile(SearchProfile searchProfile) {
+    this.searchProfile = searchProfile;
+  }
+
+  /**
+   * @return estimated cost of the search when it exceeded maxEstimatedDuration (only a lower bound
+   *     of the number of combinations was computed), or null
+   */
+  public CostEstimate getCostEstimate() {
+    return costEstimate;
+  }
+
+  public void setCostEstimate(CostEstimate costEstimate) {
+    this.costEstimate = costEstimate;
+  }
+
+  /** @return completed phases, in order of completion */
+  public List<PhaseMetrics> getPhases() {
+    return new ArrayList<PhaseMetrics>(phases);
+  }
+
+  /** @return completed progresses, in order of completion */
+  public List<Progress> getProgressResult() {
+    return new ArrayList<Progress>(progressResult);
+  }
+
+  /** @return max memory used during the run (in MB), sampled when debug logging is enabled */
+  public long getMaxMemUsed() {
+    return maxMemUsed.get();
+  }
+}
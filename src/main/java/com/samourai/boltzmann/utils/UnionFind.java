@@ -0,0 +1,89 @@
+package com.samourai.boltzmann.utils;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.*;
+
+/**
+ * Disjoint sets of interned elements (union by size, path halving). Merging n elements is
+ * near-linear, whatever the number of sets and the order of unions.
+ */
+public class UnionFind<T> {
+
+  // interned elements => id, in order of first appearance
+  private Map<T, Integer> ids = new LinkedHashMap<T, Integer>();
+  private IntArrayList parents = new IntArrayList();
+  private IntArrayList sizes = new IntArrayList();
+
+  public UnionFind() {}
+
+  /**
+   * Interns an element as a new singleton set, if not already known.
+   *
+   * @return id of the element
+   */
+  public int add(T element) {
+    Integer id = ids.get(element);
+    if (id == null) {
+      id = ids.size();
+      ids.put(element, id);
+      parents.add(id.intValue());
+      sizes.add(1);
+    }
+    return id;
+  }
+
+  /** Merges the sets containing both elements. Unknown elements are added. */
+  public void union(T a, T b) {
+    int rootA = find(add(a));
+    int rootB = find(add(b));
+    if (rootA == rootB) {
+      return;
+    }
+    if (sizes.getInt(rootA) < sizes.getInt(rootB)) {
+      int tmp = rootA;
+      rootA = rootB;
+      rootB = tmp;
+    }
+    parents.set(rootB, rootA);
+    sizes.set(rootA, sizes.getInt(rootA) + sizes.getInt(rootB));
+  }
+
+  private int find(int id) {
+    while (parents.getInt(id) != id) {
+      // path halving
+      int grandParent = parents.getInt(parents.getInt(id));
+      parents.set(id, grandParent);
+      id = grandParent;
+    }
+    return id;
+  }
+
+  /** @return true if both elements are known and belong to the same set */
+  public boolean connected(T a, T b) {
+    Integer idA = ids.get(a);
+    Integer idB = ids.get(b);
+    return idA != null && idB != null && find(idA) == find(idB);
+  }
+
+  /**
+   * Returns the disjoint sets. Sets are ordered by their first element, and elements by order of
+   * appearance.
+   */
+  public List<Set<T>> getSets() {
+    Map<Integer, Set<T>> setsByRoot = new LinkedHashMap<Integer, Set<T>>();
+    for (Map.Entry<T, Integer> entry : ids.entrySet()) {
+      int root = find(entry.getValue());
+      Set<T> set = setsByRoot.get(root);
+      if (set == null) {
+        set = new LinkedHashSet<T>();
+        setsByRoot.put(root, set);
+      }
+      set.add(entry.getKey());
+    }
+    return new ArrayList<Set<T>>(setsByRoot.values());
+  }
+
+  public int size() {
+    return ids.size();
+  }
+}
@@ -0,0 +1,76 @@
+package com.samourai.boltzmann;
+
+import com.samourai.boltzmann.beans.BoltzmannResult;
+import com.samourai.boltzmann.utils.PhaseMetrics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BoltzmannListenerTest {
+  private Boltzmann boltzmann = new Boltzmann();
+
+  @Test
+  public void testProcess_phases() {
+    final List<String> started = Collections.synchronizedList(new ArrayList<String>());
+    final List<String> ended = Collections.synchronizedList(new ArrayList<String>());
+    BoltzmannListener listener =
+        new BoltzmannListener() {
+          @Override
+          public void onPhaseStart(String phase) {
+            started.add(phase);
+          }
+
+          @Override
+          public void onPhaseEnd(String phase, long durationMillis) {
+            ended.add(phase);
+          }
+        };
+
+    BoltzmannResult result = boltzmann.process(TxosFixtures.perfectCoinjoin(3), listener);
+
+    Assert.assertEquals("prepareData", started.get(0));
+    Assert.assertEquals("matchAggByVal", started.get(1));
+    int computeIdx = started.indexOf("computeLinkMatrix");
+    Assert.assertTrue(computeIdx > started.indexOf("computeInAggCmbn"));
+    Assert.assertEquals("finalize", started.get(computeIdx + 1));
+    Assert.assertEquals(started, ended);
+
+    // phase metrics
+    List<PhaseMetrics> phases = result.getMetrics().getPhases();
+    Assert.assertEquals(ended.size(), phases.size());
+    PhaseMetrics finalize = phases.get(computeIdx + 1);
+    Assert.assertEquals("finalize", finalize.getName());
+    Assert.assertTrue(finalize.getWallNanos() > 0);
+    Assert.assertEquals(result.getNbCmbn(), (long) finalize.getCardinalities().get("nbCmbn"));
+  }
+
+  @Test
+  public void testProcess_cancel() {
+    final long[] cancelTime = new long[1];
+    BoltzmannListener listener =
+        new BoltzmannListener() {
+          @Override
+          public void onPhaseStart(String phase) {
+            if ("computeLinkMatrix".equals(phase)) {
+              cancelTime[0] = System.currentTimeMillis();
+            }
+          }
+
+          @Override
+          public boolean isCancelled() {
+            return cancelTime[0] > 0;
+          }
+        };
+
+    try {
+      boltzmann.process(TxosFixtures.perfectCoinjoin(7), listener);
+      Assert.fail("not cancelled");
+    } catch (BoltzmannCancelledException e) {
+      // search aborted well before its completion
+      long elapsed = System.currentTimeMillis() - cancelTime[0];
+      Assert.assertTrue("cancelled after " + elapsed + "ms", elapsed < 1000);
+    }
+  }
+}
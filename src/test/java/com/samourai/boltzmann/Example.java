@@ -29,5 +29,7 @@ public class Example {
 
     // get results
     // result.getXXX
+    // or print them all
+    result.print();
   }
 }
@@ -0,0 +1,23 @@
+package com.samourai.boltzmann;
+
+import com.samourai.boltzmann.beans.Txos;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Transactions shared by tests. */
+public class TxosFixtures {
+
+  /**
+   * @return perfect coinjoin of nbTxos inputs and nbTxos outputs of same value, without fees (1496
+   *     combinations for 5x5)
+   */
+  public static Txos perfectCoinjoin(int nbTxos) {
+    Map<String, Long> inputs = new LinkedHashMap<String, Long>();
+    Map<String, Long> outputs = new LinkedHashMap<String, Long>();
+    for (int i = 0; i < nbTxos; i++) {
+      inputs.put("in" + i, 5L);
+      outputs.put("out" + i, 5L);
+    }
+    return new Txos(inputs, outputs);
+  }
+}
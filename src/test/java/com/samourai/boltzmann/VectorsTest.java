@@ -1,15 +1,23 @@
 package com.samourai.boltzmann;
 
 import com.google.common.collect.Maps;
+import com.google.common.math.DoubleMath;
 import com.samourai.boltzmann.beans.BoltzmannResult;
+import com.samourai.boltzmann.beans.BoltzmannSettings;
+import com.samourai.boltzmann.beans.LinkMatrix;
+import com.samourai.boltzmann.beans.ProbabilityMatrix;
 import com.samourai.boltzmann.beans.Txos;
+import com.samourai.boltzmann.linker.CostEstimate;
 import com.samourai.boltzmann.linker.IntraFees;
 import com.samourai.boltzmann.linker.TxosLinkerOptionEnum;
+import com.samourai.boltzmann.processor.EntropyBounds;
 import com.samourai.boltzmann.processor.NbTxos;
+import com.samourai.boltzmann.processor.TxProcessor;
 import com.samourai.boltzmann.processor.TxProcessorResult;
-import com.samourai.boltzmann.utils.ListsUtils;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import org.junit.Assert;
 import org.junit.Ignore;
@@ -59,8 +67,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -75,8 +83,8 @@ public class VectorsTest {
     expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -114,8 +122,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -130,8 +138,8 @@ public class VectorsTest {
     expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -178,8 +186,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -194,8 +202,8 @@ public class VectorsTest {
     expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -294,8 +302,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -349,8 +357,8 @@ public class VectorsTest {
     expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -392,8 +400,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -408,8 +416,8 @@ public class VectorsTest {
     expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -421,6 +429,48 @@ public class VectorsTest {
     processTest(inputs, outputs, 0.005f, expected, expectedReadableDtrmLnks);
   }
 
+  @Test
+  public void testProcess_testCaseATransposed() {
+    // testCaseA with inputs and outputs swapped: outputs are decomposed instead of inputs
+    Map<String, Long> inputs = new LinkedHashMap<String, Long>();
+    inputs.put("A", 8L);
+    inputs.put("B", 2L);
+    inputs.put("C", 3L);
+    inputs.put("D", 7L);
+
+    Map<String, Long> outputs = new LinkedHashMap<String, Long>();
+    outputs.put("a", 10L);
+    outputs.put("b", 10L);
+
+    int nbCmbn = 3;
+    int[][] matLnkCombinations = new int[][] {{2, 2, 2, 2}, {2, 2, 2, 2}};
+    double[][] matLnkProbabilities =
+        new double[][] {
+          {0.6666666666666666, 0.6666666666666666, 0.6666666666666666, 0.6666666666666666},
+          {0.6666666666666666, 0.6666666666666666, 0.6666666666666666, 0.6666666666666666}
+        };
+    double entropy = 1.5849625007211563;
+    String[][] expectedReadableDtrmLnks = new String[][] {};
+    long fees = 0;
+    Double efficiency = 0.42857142857142854;
+
+    IntraFees intraFees = new IntraFees(0, 0);
+    TxProcessorResult expected =
+        new TxProcessorResult(
+            nbCmbn,
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
+            entropy,
+            null,
+            new Txos(inputs, outputs),
+            fees,
+            intraFees,
+            efficiency,
+            7d,
+            new NbTxos(2, 4));
+    processTest(inputs, outputs, 0, expected, expectedReadableDtrmLnks);
+  }
+
   @Test
   public void testProcess_testCaseB() {
     Map<String, Long> inputs = new LinkedHashMap<String, Long>();
@@ -446,8 +496,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -487,8 +537,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -530,8 +580,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -571,8 +621,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -618,8 +668,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -656,8 +706,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -694,8 +744,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -736,8 +786,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -778,8 +828,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -824,8 +874,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -909,8 +959,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -1010,8 +1060,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -1129,8 +1179,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -1269,8 +1319,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -1319,8 +1369,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -1371,8 +1421,8 @@ public class VectorsTest {
     TxProcessorResult expected =
         new TxProcessorResult(
             nbCmbn,
-            ListsUtils.toBigList(matLnkCombinations),
-            ListsUtils.toBigList(matLnkProbabilities),
+            LinkMatrix.of(matLnkCombinations),
+            ProbabilityMatrix.of(matLnkProbabilities),
             entropy,
             null,
             new Txos(inputs, outputs),
@@ -1384,6 +1434,88 @@ public class VectorsTest {
     processTest(inputs, outputs, 0, expected, expectedReadableDtrmLnks);
   }
 
+  @Test
+  public void testCountOnly() {
+    for (Vector vector : representativeVectors()) {
+      // same number of combinations without linkability matrix
+      BoltzmannResult result =
+          boltzmann.process(
+              vector.txos,
+              vector.maxCjIntrafeesRatio,
+              TxosLinkerOptionEnum.PRECHECK,
+              TxosLinkerOptionEnum.COUNT_ONLY);
+      Assert.assertEquals(vector.name, vector.nbCmbn, result.getNbCmbn());
+      Assert.assertEquals(vector.name, DoubleMath.log2(vector.nbCmbn), result.getEntropy(), 0);
+      Assert.assertNull(vector.name, result.getMatLnkCombinations());
+    }
+  }
+
+  @Test
+  public void testThreshold() {
+    for (Vector vector : representativeVectors()) {
+      thresholdTest(vector, vector.nbCmbn, true);
+      thresholdTest(vector, vector.nbCmbn + 1, false);
+      if (vector.nbCmbn > 2) {
+        thresholdTest(vector, 2, true);
+      }
+    }
+  }
+
+  @Test
+  public void testBounds() {
+    TxProcessor txProcessor =
+        new TxProcessor(BoltzmannSettings.MAX_DURATION_DEFAULT, BoltzmannSettings.MAX_TXOS_DEFAULT);
+    for (Vector vector : representativeVectors()) {
+      // enumeration completes: exact bounds
+      EntropyBounds bounds =
+          txProcessor.computeBounds(
+              vector.txos,
+              vector.maxCjIntrafeesRatio,
+              Boltzmann.BOUNDS_MAX_NB_CMBN,
+              TxosLinkerOptionEnum.PRECHECK,
+              TxosLinkerOptionEnum.LINKABILITY);
+      Assert.assertTrue(vector.name, bounds.isExact());
+      Assert.assertEquals(vector.name, vector.nbCmbn, bounds.getLowerNbCmbn());
+
+      // enumeration stops after 1 combination
+      bounds =
+          txProcessor.computeBounds(
+              vector.txos,
+              vector.maxCjIntrafeesRatio,
+              1,
+              TxosLinkerOptionEnum.PRECHECK,
+              TxosLinkerOptionEnum.LINKABILITY);
+      Assert.assertTrue(vector.name, bounds.getLowerNbCmbn() <= vector.nbCmbn);
+      Assert.assertTrue(vector.name, bounds.getUpperNbCmbn() >= vector.nbCmbn);
+    }
+  }
+
+  @Test
+  public void testEstimate() {
+    TxProcessor txProcessor =
+        new TxProcessor(BoltzmannSettings.MAX_DURATION_DEFAULT, BoltzmannSettings.MAX_TXOS_DEFAULT);
+    for (Vector vector : representativeVectors()) {
+      CostEstimate costEstimate =
+          txProcessor.estimateTx(
+              vector.txos,
+              vector.maxCjIntrafeesRatio,
+              TxosLinkerOptionEnum.PRECHECK,
+              TxosLinkerOptionEnum.LINKABILITY);
+      // sampled paths are seeded: same estimate for the same tx
+      CostEstimate costEstimate2 =
+          txProcessor.estimateTx(
+              vector.txos,
+              vector.maxCjIntrafeesRatio,
+              TxosLinkerOptionEnum.PRECHECK,
+              TxosLinkerOptionEnum.LINKABILITY);
+      Assert.assertEquals(vector.name, costEstimate.getNbTasks(), costEstimate2.getNbTasks(), 0);
+
+      // sampled search tree is close to the actual one
+      double ratio = costEstimate.getNbCmbn() / vector.nbCmbn;
+      Assert.assertTrue(vector.name + ": " + ratio, ratio > 0.5 && ratio < 2);
+    }
+  }
+
   private void processTest(
       Map<String, Long> inputs,
       Map<String, Long> outputs,
@@ -1425,4 +1557,73 @@ public class VectorsTest {
         expected.getNbTxosPrfctCj().getNbOuts(), result.getNbTxosPrfctCj().getNbOuts());
     Assert.assertEquals(expected.getEntropy(), result.getEntropy());
   }
+
+  private void thresholdTest(Vector vector, int minNbCmbn, boolean expectedReached) {
+    int expectedNbCmbn = minNbCmbn - (expectedReached ? 0 : 1);
+    TxProcessor txProcessor =
+        new TxProcessor(
+            BoltzmannSettings.MAX_DURATION_DEFAULT, BoltzmannSettings.MAX_TXOS_DEFAULT, minNbCmbn);
+    TxProcessorResult result =
+        txProcessor.processTx(
+            vector.txos,
+            vector.maxCjIntrafeesRatio,
+            TxosLinkerOptionEnum.PRECHECK,
+            TxosLinkerOptionEnum.LINKABILITY);
+    Assert.assertEquals(vector.name, expectedReached, result.getThresholdReached());
+    // stops as soon as the threshold is reached
+    Assert.assertEquals(vector.name, expectedNbCmbn, result.getNbCmbn());
+    Assert.assertNull(vector.name, result.getMatLnkCombinations());
+  }
+
+  /**
+   * @return vectors covering deterministic links, fees, intrafees and transposition, for the tests
+   *     of the alternative modes (count only, threshold, bounds...)
+   */
+  private static List<Vector> representativeVectors() {
+    List<Vector> vectors = new ArrayList<Vector>();
+    vectors.add(
+        new Vector(
+            "8c5feb90",
+            new long[] {4900000000L, 100000000L},
+            new long[] {4900000000L, 100000000L},
+            0,
+            2));
+    vectors.add(
+        new Vector(
+            "8e563173",
+            new long[] {10000000L, 1380000L},
+            new long[] {100000L, 9850000L, 100000L, 1270000L},
+            0.005f,
+            3));
+    vectors.add(new Vector("testCaseA", new long[] {10, 10}, new long[] {8, 2, 3, 7}, 0, 3));
+    vectors.add(
+        new Vector("testCaseATransposed", new long[] {8, 2, 3, 7}, new long[] {10, 10}, 0, 3));
+    vectors.add(new Vector("testCaseD", new long[] {10, 10, 2}, new long[] {8, 2, 2, 8, 2}, 0, 28));
+    vectors.add(
+        new Vector("testCaseP3WithFees", new long[] {5, 5, 5}, new long[] {5, 3, 2}, 0, 28));
+    vectors.add(new Vector("testCaseP4", new long[] {5, 5, 5, 5}, new long[] {5, 5, 5, 5}, 0, 131));
+    return vectors;
+  }
+
+  private static class Vector {
+    private final String name;
+    private final Txos txos;
+    private final float maxCjIntrafeesRatio;
+    private final int nbCmbn;
+
+    Vector(String name, long[] ins, long[] outs, float maxCjIntrafeesRatio, int nbCmbn) {
+      Map<String, Long> inputs = new LinkedHashMap<String, Long>();
+      for (int i = 0; i < ins.length; i++) {
+        inputs.put("in" + i, ins[i]);
+      }
+      Map<String, Long> outputs = new LinkedHashMap<String, Long>();
+      for (int i = 0; i < outs.length; i++) {
+        outputs.put("out" + i, outs[i]);
+      }
+      this.name = name;
+      this.txos = new Txos(inputs, outputs);
+      this.maxCjIntrafeesRatio = maxCjIntrafeesRatio;
+      this.nbCmbn = nbCmbn;
+    }
+  }
 }
@@ -0,0 +1,39 @@
+package com.samourai.boltzmann.beans;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LinkMatrixTest {
+
+  @Test
+  public void testDenseSameAsBig() {
+    LinkMatrix dense = new DenseLinkMatrix(3, 2);
+    LinkMatrix big = new BigLinkMatrix(3, 2);
+    for (LinkMatrix matrix : new LinkMatrix[] {dense, big}) {
+      matrix.fill(1);
+      matrix.set(0, 1, 5);
+      matrix.add(2, 0, 3);
+      matrix.addAll(LinkMatrix.of(new int[][] {{1, 1}, {0, 2}, {0, 0}}));
+    }
+
+    LinkMatrix expected = LinkMatrix.of(new int[][] {{2, 6}, {1, 3}, {4, 1}});
+    Assert.assertEquals(expected, dense);
+    Assert.assertEquals(expected, big);
+    Assert.assertEquals(big, dense);
+    Assert.assertEquals(expected.hashCode(), big.hashCode());
+    Assert.assertEquals("[[2, 6], [1, 3], [4, 1]]", big.toString());
+
+    LinkMatrix expectedT = LinkMatrix.of(new int[][] {{2, 1, 4}, {6, 3, 1}});
+    Assert.assertEquals(expectedT, dense.transpose());
+    Assert.assertEquals(expectedT, big.transpose());
+  }
+
+  @Test
+  public void testCopy() {
+    LinkMatrix matrix = LinkMatrix.of(new int[][] {{1, 2}, {3, 4}});
+    LinkMatrix copy = matrix.copy();
+    copy.add(0, 0, 10);
+    Assert.assertEquals(1, matrix.get(0, 0));
+    Assert.assertEquals(11, copy.get(0, 0));
+  }
+}
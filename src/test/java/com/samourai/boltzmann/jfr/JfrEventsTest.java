@@ -0,0 +1,44 @@
+package com.samourai.boltzmann.jfr;
+
+import com.samourai.boltzmann.Boltzmann;
+import com.samourai.boltzmann.TxosFixtures;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JfrEventsTest {
+
+  @Test
+  public void testPhaseEvents() throws Exception {
+    File file = File.createTempFile("boltzmann", ".jfr");
+    try {
+      try (Recording recording = new Recording()) {
+        recording.enable("com.samourai.boltzmann.Phase");
+        recording.enable("com.samourai.boltzmann.DfsSnapshot");
+        recording.start();
+        new Boltzmann().process(TxosFixtures.perfectCoinjoin(5));
+        recording.stop();
+        recording.dump(file.toPath());
+      }
+
+      List<String> phases = new ArrayList<String>();
+      for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+        if (event.getEventType().getName().equals("com.samourai.boltzmann.Phase")) {
+          phases.add(event.getString("phase"));
+          Assert.assertEquals(5, event.getInt("nbIns"));
+          Assert.assertEquals(5, event.getInt("nbOuts"));
+        }
+      }
+      Assert.assertTrue(phases.toString(), phases.contains("prepareData"));
+      Assert.assertTrue(phases.toString(), phases.contains("computeLinkMatrix"));
+      Assert.assertTrue(phases.toString(), phases.contains("finalize"));
+    } finally {
+      file.delete();
+    }
+  }
+}
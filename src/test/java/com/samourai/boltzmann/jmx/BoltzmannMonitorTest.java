@@ -0,0 +1,90 @@
+package com.samourai.boltzmann.jmx;
+
+import com.samourai.boltzmann.Boltzmann;
+import com.samourai.boltzmann.BoltzmannCancelledException;
+import com.samourai.boltzmann.TxosFixtures;
+import com.samourai.boltzmann.beans.BoltzmannSettings;
+import com.samourai.boltzmann.utils.ParallelExecutor;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.management.ObjectName;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BoltzmannMonitorTest {
+
+  @Test
+  public void testMonitor() throws Exception {
+    try (ParallelExecutor executor = new ParallelExecutor(2, 64)) {
+      BoltzmannMonitor monitor = new BoltzmannMonitor(executor, null);
+      BoltzmannSettings settings = new BoltzmannSettings();
+      settings.setExecutor(executor);
+      settings.setMonitor(monitor);
+
+      // completed
+      new Boltzmann(settings).process(TxosFixtures.perfectCoinjoin(3));
+      Assert.assertEquals(1, monitor.getCompletedCount());
+      Assert.assertEquals(0, monitor.getActiveCount());
+      Assert.assertTrue(monitor.getLatencyP99Millis() >= monitor.getLatencyP50Millis());
+
+      // rejected by maxTxos
+      settings.setMaxTxos(2);
+      new Boltzmann(settings).process(TxosFixtures.perfectCoinjoin(3));
+      Assert.assertEquals(1, monitor.getRejectedCount());
+      Assert.assertEquals(1, monitor.getCompletedCount());
+
+      // parallelism
+      monitor.setParallelism(3);
+      Assert.assertEquals(3, monitor.getParallelism());
+
+      // JMX
+      monitor.register("test");
+      try {
+        Object completedCount =
+            ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(
+                    new ObjectName("com.samourai.boltzmann:type=BoltzmannMonitor,name=test"),
+                    "CompletedCount");
+        Assert.assertEquals(1L, completedCount);
+      } finally {
+        monitor.unregister();
+      }
+    }
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    BoltzmannMonitor monitor = new BoltzmannMonitor(null, null);
+    BoltzmannSettings settings = new BoltzmannSettings();
+    settings.setMonitor(monitor);
+    final Boltzmann boltzmann = new Boltzmann(settings);
+
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    Thread thread =
+        new Thread(
+            () -> {
+              try {
+                boltzmann.process(TxosFixtures.perfectCoinjoin(7));
+              } catch (Throwable e) {
+                error.set(e);
+              }
+            });
+    thread.start();
+
+    // waits for the analysis to start
+    List<MonitoredRun> runs;
+    while ((runs = monitor.getActiveRuns()).isEmpty() && thread.isAlive()) {
+      Thread.sleep(1);
+    }
+    Assert.assertEquals(1, runs.size());
+    Assert.assertEquals(1, monitor.getActiveAnalyses().length);
+    Assert.assertTrue(monitor.cancel(runs.get(0).getId()));
+
+    thread.join(5000);
+    Assert.assertTrue(error.get() instanceof BoltzmannCancelledException);
+    Assert.assertEquals(1, monitor.getCancelledCount());
+    Assert.assertEquals(0, monitor.getActiveCount());
+    Assert.assertFalse(monitor.cancel(runs.get(0).getId()));
+  }
+}
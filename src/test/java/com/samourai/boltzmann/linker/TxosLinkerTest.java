@@ -1,9 +1,17 @@
 package com.samourai.boltzmann.linker;
 
+import com.samourai.boltzmann.TxosFixtures;
+import com.samourai.boltzmann.aggregator.SearchProfile;
+import com.samourai.boltzmann.aggregator.TxosAggregates;
+import com.samourai.boltzmann.aggregator.TxosAggregatesData;
+import com.samourai.boltzmann.aggregator.TxosAggregatesMatches;
+import com.samourai.boltzmann.aggregator.TxosAggregator;
+import com.samourai.boltzmann.beans.LinkMatrix;
+import com.samourai.boltzmann.beans.TxoTable;
 import com.samourai.boltzmann.beans.Txos;
-import com.samourai.boltzmann.utils.ListsUtils;
-import it.unimi.dsi.fastutil.ints.IntBigList;
-import it.unimi.dsi.fastutil.objects.ObjectBigList;
+import com.samourai.boltzmann.beans.TxosTable;
+import com.samourai.boltzmann.utils.RunMetrics;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.util.*;
 import java.util.Map.Entry;
 import org.junit.Assert;
@@ -130,10 +138,16 @@ public class TxosLinkerTest {
       Pack pack,
       Map<String, Long> expectedTxos,
       int expectedPackIdx) {
-    Map<String, Long> unpackedTxos = new HashMap<String, Long>();
-    int packIdx = txosLinker.unpackTxos(currentTxos, pack, unpackedTxos);
-    Assert.assertEquals(expectedTxos, unpackedTxos);
-    Assert.assertEquals(expectedPackIdx, packIdx);
+    TxoTable txos = TxoTable.of(currentTxos);
+    IntArrayList srcIds = new IntArrayList();
+    TxoTable unpackedTxos =
+        txosLinker.unpackTxos(txos, Collections.singletonMap(pack.getLbl(), pack), srcIds);
+    Assert.assertEquals(expectedTxos, unpackedTxos.toMap());
+    Assert.assertEquals(expectedPackIdx, txos.indexOf(pack.getLbl()));
+    Assert.assertEquals(unpackedTxos.size(), srcIds.size());
+    for (int i = 0; i < pack.getPackedTxos().size(); i++) {
+      Assert.assertEquals(expectedPackIdx, srcIds.getInt(expectedPackIdx + i));
+    }
   }
 
   @Test
@@ -285,14 +299,254 @@ public class TxosLinkerTest {
     unpackLinkMatrix(matLnk, txos, pack, expectedMatLnk, expectedTxos);
   }
 
+  @Test
+  public void testUnpackLinkMatrix_oneOutputPackSurroundedByOtherOutputs() {
+    Txos txos = new Txos();
+    txos.getInputs().put("I0", 300L);
+    txos.getInputs().put("I1", 200L);
+
+    txos.getOutputs().put("O3", 222L);
+    txos.getOutputs().put("PACK_O1", 250L);
+    txos.getOutputs().put("O4", 28L);
+
+    List<Entry<String, Long>> entries = new ArrayList<Entry<String, Long>>();
+    entries.add(new AbstractMap.SimpleEntry<String, Long>("O0", 150L));
+    entries.add(new AbstractMap.SimpleEntry<String, Long>("O2", 100L));
+
+    Pack pack = new Pack("PACK_O1", PackType.OUTPUTS, null, entries);
+
+    Txos expectedTxos = new Txos();
+    expectedTxos.getInputs().put("I0", 300L);
+    expectedTxos.getInputs().put("I1", 200L);
+
+    expectedTxos.getOutputs().put("O3", 222L);
+    expectedTxos.getOutputs().put("O0", 150L);
+    expectedTxos.getOutputs().put("O2", 100L);
+    expectedTxos.getOutputs().put("O4", 28L);
+
+    int[][] matLnk = new int[][] {new int[] {3, 4}, new int[] {1, 2}, new int[] {5, 6}};
+
+    int[][] expectedMatLnk =
+        new int[][] {new int[] {3, 4}, new int[] {1, 2}, new int[] {1, 2}, new int[] {5, 6}};
+
+    unpackLinkMatrix(matLnk, txos, pack, expectedMatLnk, expectedTxos);
+  }
+
+  @Test
+  public void testPackLinkedTxos_inputsAndOutputs() {
+    TxosLinker linker = new TxosLinker(0, 300, 12);
+    Txos txos = new Txos();
+    txos.getInputs().put("I0", 300L);
+    txos.getInputs().put("I1", 200L);
+    txos.getInputs().put("I2", 100L);
+
+    txos.getOutputs().put("O0", 150L);
+    txos.getOutputs().put("O1", 250L);
+    txos.getOutputs().put("O2", 100L);
+    txos.getOutputs().put("O3", 100L);
+
+    List<Set<String>> linkedTxos = new ArrayList<Set<String>>();
+    linkedTxos.add(new LinkedHashSet<String>(Arrays.asList("I0", "I2")));
+    linkedTxos.add(new LinkedHashSet<String>(Arrays.asList("O0", "O2")));
+    TxosTable packedTxos = linker.packLinkedTxos(linkedTxos, TxosTable.of(txos));
+
+    Map<String, Long> expectedIns = new LinkedHashMap<String, Long>();
+    expectedIns.put("I1", 200L);
+    expectedIns.put("PACK_I1", 400L);
+    Map<String, Long> expectedOuts = new LinkedHashMap<String, Long>();
+    expectedOuts.put("O1", 250L);
+    expectedOuts.put("O3", 100L);
+    expectedOuts.put("PACK_O2", 250L);
+    Assert.assertEquals(expectedIns, packedTxos.getInputs().toMap());
+    Assert.assertEquals(expectedOuts, packedTxos.getOutputs().toMap());
+
+    // unpacks a matrix computed for packed txos
+    int[][] matLnk = new int[][] {new int[] {1, 2}, new int[] {3, 4}, new int[] {5, 6}};
+    UnpackLinkMatrixResult result = linker.unpackLinkMatrix(LinkMatrix.of(matLnk), packedTxos);
+
+    int[][] expectedMatLnk =
+        new int[][] {
+          new int[] {1, 2, 2}, new int[] {3, 4, 4}, new int[] {5, 6, 6}, new int[] {5, 6, 6}
+        };
+    Assert.assertEquals(
+        Arrays.asList("I1", "I0", "I2"), Arrays.asList(result.getTxos().getInputs().getLabels()));
+    Assert.assertEquals(
+        Arrays.asList("O1", "O3", "O0", "O2"),
+        Arrays.asList(result.getTxos().getOutputs().getLabels()));
+    Assert.assertEquals(LinkMatrix.of(expectedMatLnk), result.getMatLnk());
+  }
+
+  @Test
+  public void testUnpackLinkMatrix_severalPacks() {
+    TxosLinker linker = new TxosLinker(0, 300, 12);
+    Txos txos = new Txos();
+    txos.getInputs().put("I0", 300L);
+    txos.getInputs().put("I1", 200L);
+    txos.getInputs().put("I2", 100L);
+    txos.getInputs().put("I3", 50L);
+    txos.getInputs().put("I4", 10L);
+
+    txos.getOutputs().put("O0", 400L);
+    txos.getOutputs().put("O1", 250L);
+
+    List<Set<String>> linkedTxos = new ArrayList<Set<String>>();
+    linkedTxos.add(new LinkedHashSet<String>(Arrays.asList("I0", "I3")));
+    linkedTxos.add(new LinkedHashSet<String>(Arrays.asList("I1", "I4")));
+    TxosTable packedTxos = linker.packLinkedTxos(linkedTxos, TxosTable.of(txos));
+    Assert.assertEquals(
+        Arrays.asList("I2", "PACK_I1", "PACK_I2"),
+        Arrays.asList(packedTxos.getInputs().getLabels()));
+
+    // unpacks all packs at once
+    int[][] matLnk = new int[][] {new int[] {1, 2, 3}, new int[] {4, 5, 6}};
+    UnpackLinkMatrixResult result = linker.unpackLinkMatrix(LinkMatrix.of(matLnk), packedTxos);
+
+    int[][] expectedMatLnk = new int[][] {new int[] {1, 2, 2, 3, 3}, new int[] {4, 5, 5, 6, 6}};
+    Assert.assertEquals(
+        Arrays.asList("I2", "I0", "I3", "I1", "I4"),
+        Arrays.asList(result.getTxos().getInputs().getLabels()));
+    Assert.assertArrayEquals(
+        new long[] {100L, 300L, 50L, 200L, 10L}, result.getTxos().getInputs().getValues());
+    Assert.assertEquals(LinkMatrix.of(expectedMatLnk), result.getMatLnk());
+  }
+
+  @Test
+  public void testPackData_sameAsPrepareData() {
+    TxosLinker linker = new TxosLinker(0, 300, 12);
+    TxosAggregator aggregator = new TxosAggregator();
+    Txos txos = new Txos();
+    txos.getInputs().put("I0", 10L);
+    txos.getInputs().put("I1", 10L);
+    txos.getInputs().put("I2", 3L);
+    txos.getInputs().put("I3", 2L);
+
+    txos.getOutputs().put("O0", 8L);
+    txos.getOutputs().put("O1", 2L);
+    txos.getOutputs().put("O2", 3L);
+    txos.getOutputs().put("O3", 7L);
+    txos.getOutputs().put("O4", 5L);
+
+    TxosAggregates allAgg = linker.prepareData(TxosTable.of(txos));
+    TxosAggregatesMatches aggMatches = aggregator.matchAggByVal(allAgg, 0, null);
+
+    List<Set<String>> linkedTxos = new ArrayList<Set<String>>();
+    linkedTxos.add(new LinkedHashSet<String>(Arrays.asList("O4", "I2", "I3")));
+    linkedTxos.add(new LinkedHashSet<String>(Arrays.asList("O0", "O1")));
+    TxosTable packedTxos = linker.packLinkedTxos(linkedTxos, TxosTable.of(txos));
+    PackDataResult result = linker.packData(allAgg, aggMatches, packedTxos, linker.getPacks());
+
+    // same result as computing everything again
+    TxosAggregates expectedAgg = linker.prepareData(packedTxos);
+    TxosAggregatesMatches expectedMatches = aggregator.matchAggByVal(expectedAgg, 0, null);
+    assertAggregatesEquals(expectedAgg.getInAgg(), result.getAllAgg().getInAgg());
+    assertAggregatesEquals(expectedAgg.getOutAgg(), result.getAllAgg().getOutAgg());
+    Assert.assertEquals(
+        expectedMatches.getAllMatchInAgg(), result.getAggMatches().getAllMatchInAgg());
+    Assert.assertEquals(
+        expectedMatches.getMatchInAggToVal(), result.getAggMatches().getMatchInAggToVal());
+    Assert.assertEquals(
+        expectedMatches.getValToMatchOutAgg(), result.getAggMatches().getValToMatchOutAgg());
+  }
+
+  @Test
+  public void testProcess_maxMemoryBytes() {
+    TxosTable txos = TxosTable.of(TxosFixtures.perfectCoinjoin(5));
+    Set<TxosLinkerOptionEnum> options =
+        new HashSet<TxosLinkerOptionEnum>(Arrays.asList(TxosLinkerOptionEnum.LINKABILITY));
+
+    // no limit
+    TxosLinkerResult result = new TxosLinker(0, 300, 12).process(txos, null, options, null);
+    Assert.assertEquals(1496, result.getNbCmbn());
+    Assert.assertNotNull(result.getMatLnkCombinations());
+
+    // links don't fit in memory: computes the number of combinations only
+    RunMetrics metrics = new RunMetrics();
+    TxosLinker txosLinker = new TxosLinker(0, 300, 12, null, 10000L);
+    txosLinker.setMetrics(metrics);
+    result = txosLinker.process(txos, null, options, null);
+    Assert.assertEquals(1496, result.getNbCmbn());
+    Assert.assertNull(result.getMatLnkCombinations());
+    Assert.assertEquals("memory: computeLinkMatrix", metrics.getDowngradeReason());
+
+    // aggregates don't fit in memory: not processed
+    result = new TxosLinker(0, 300, 12, null, 100L).process(txos, null, options, null);
+    Assert.assertEquals(0, result.getNbCmbn());
+    Assert.assertEquals(5, result.getTxosTable().getInputs().size());
+  }
+
+  @Test
+  public void testProcess_maxTxos() {
+    // too many txos for computing their aggregates: rejected before preparing the data
+    Map<String, Long> ins = new LinkedHashMap<String, Long>();
+    Map<String, Long> outs = new LinkedHashMap<String, Long>();
+    for (int i = 0; i < 40; i++) {
+      ins.put("I" + i, 1000L + i);
+      outs.put("O" + i, 1000L + i);
+    }
+    TxosTable txos = TxosTable.of(new Txos(ins, outs));
+    Set<TxosLinkerOptionEnum> options =
+        new HashSet<TxosLinkerOptionEnum>(
+            Arrays.asList(TxosLinkerOptionEnum.PRECHECK, TxosLinkerOptionEnum.LINKABILITY));
+
+    RunMetrics metrics = new RunMetrics();
+    TxosLinker txosLinker = new TxosLinker(0, 300, 12);
+    txosLinker.setMetrics(metrics);
+    TxosLinkerResult result = txosLinker.process(txos, null, options, null);
+    Assert.assertEquals(0, result.getNbCmbn());
+    Assert.assertEquals("maxTxos", metrics.getRejectReason());
+    Assert.assertNull(txosLinker.estimate(txos, null, options, null));
+  }
+
+  @Test
+  public void testProcess_profile() {
+    TxosTable txos = TxosTable.of(TxosFixtures.perfectCoinjoin(5));
+    Set<TxosLinkerOptionEnum> options =
+        new HashSet<TxosLinkerOptionEnum>(
+            Arrays.asList(TxosLinkerOptionEnum.LINKABILITY, TxosLinkerOptionEnum.PROFILE));
+
+    RunMetrics metrics = new RunMetrics();
+    TxosLinker txosLinker = new TxosLinker(0, 300, 12);
+    txosLinker.setMetrics(metrics);
+    TxosLinkerResult result = txosLinker.process(txos, null, options, null);
+    Assert.assertEquals(1496, result.getNbCmbn());
+
+    SearchProfile profile = metrics.getSearchProfile();
+    Assert.assertNotNull(profile);
+    Assert.assertTrue(profile.getNbTasks() > 0);
+    Assert.assertTrue(profile.getNbDeadTasks() <= profile.getNbTasks());
+
+    // one duration per child of the root task
+    double[] branchingByDepth = profile.getBranchingByDepth();
+    Assert.assertEquals(profile.getRootNanos().size(), (int) branchingByDepth[1]);
+
+    // each pushed task is counted once
+    long nbNdOut = 0;
+    for (long count : profile.getNdOutHistogram()) {
+      nbNdOut += count;
+    }
+    Assert.assertEquals(profile.getNbTasks(), nbNdOut);
+  }
+
+  private void assertAggregatesEquals(TxosAggregatesData expected, TxosAggregatesData actual) {
+    Assert.assertEquals(
+        Arrays.asList(expected.getTxos().getLabels()), Arrays.asList(actual.getTxos().getLabels()));
+    Assert.assertArrayEquals(expected.getTxos().getValues(), actual.getTxos().getValues());
+    Assert.assertArrayEquals(expected.getAllAggVal(), actual.getAllAggVal());
+    Assert.assertEquals(expected.getAllAggIndexes().size64(), actual.getAllAggIndexes().size64());
+    for (long i = 0; i < expected.getAllAggIndexes().size64(); i++) {
+      Assert.assertArrayEquals(
+          expected.getAllAggIndexes().get(i), actual.getAllAggIndexes().get(i));
+    }
+  }
+
   private void unpackLinkMatrix(
       int[][] matLnkInt, Txos txos, Pack pack, int[][] expectedMatLnk, Txos expectedTxos) {
 
-    ObjectBigList<IntBigList> matLnk = ListsUtils.toBigList(matLnkInt);
-    UnpackLinkMatrixResult result = txosLinker.unpackLinkMatrix(matLnk, txos, pack);
+    LinkMatrix matLnk = LinkMatrix.of(matLnkInt);
+    UnpackLinkMatrixResult result = txosLinker.unpackLinkMatrix(matLnk, TxosTable.of(txos), pack);
 
-    Assert.assertEquals(expectedTxos.getInputs(), result.getTxos().getInputs());
-    Assert.assertEquals(expectedTxos.getOutputs(), result.getTxos().getOutputs());
-    Assert.assertTrue(ListsUtils.deepEquals(expectedMatLnk, result.getMatLnk()));
+    Assert.assertEquals(expectedTxos.getInputs(), result.getTxos().getInputs().toMap());
+    Assert.assertEquals(expectedTxos.getOutputs(), result.getTxos().getOutputs().toMap());
+    Assert.assertEquals(LinkMatrix.of(expectedMatLnk), result.getMatLnk());
   }
 }
@@ -1,11 +1,19 @@
 package com.samourai.boltzmann.processor;
 
+import com.samourai.boltzmann.TxosFixtures;
 import com.samourai.boltzmann.beans.BoltzmannSettings;
+import com.samourai.boltzmann.beans.TxoTable;
 import com.samourai.boltzmann.beans.Txos;
 import com.samourai.boltzmann.linker.IntraFees;
 import com.samourai.boltzmann.linker.TxosLinkerOptionEnum;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -32,6 +40,83 @@ public class TxProcessorTest {
     Assert.assertEquals(expected.getCjAmount(), result.getCjAmount());
   }
 
+  @Test
+  public void testComputeCmbnsUpperBound() {
+    Assert.assertEquals(1, txProcessor.computeCmbnsUpperBound(1, 5), 0);
+    // same as a perfect coinjoin
+    Assert.assertEquals(3, txProcessor.computeCmbnsUpperBound(2, 2), 0);
+    // 1 + S(3,2)*S(3,2)*2! + S(3,3)*S(3,3)*3!
+    Assert.assertEquals(25, txProcessor.computeCmbnsUpperBound(3, 3), 0);
+    Assert.assertEquals(
+        txProcessor.computeCmbnsUpperBound(3, 5), txProcessor.computeCmbnsUpperBound(5, 3), 0);
+  }
+
+  @Test
+  public void testComputeBounds() {
+    // 10, 10 => 8, 2, 3, 7: only {8, 2} and {3, 7} match an input
+    Map<String, Long> ins = new LinkedHashMap<String, Long>();
+    ins.put("a", 10L);
+    ins.put("b", 10L);
+    Map<String, Long> outs = new LinkedHashMap<String, Long>();
+    outs.put("A", 8L);
+    outs.put("B", 2L);
+    outs.put("C", 3L);
+    outs.put("D", 7L);
+    Txos txos = new Txos(ins, outs);
+    EntropyBounds bounds = txProcessor.computeBounds(txos, 0, 1, TxosLinkerOptionEnum.LINKABILITY);
+    Assert.assertEquals(2, bounds.getLowerNbCmbn());
+    // bound from matching aggregates, instead of computeCmbnsUpperBound(2, 4)=15
+    Assert.assertEquals(3, bounds.getUpperNbCmbn(), 0);
+
+    // no overflow of the threshold
+    bounds =
+        txProcessor.computeBounds(txos, 0, Integer.MAX_VALUE, TxosLinkerOptionEnum.LINKABILITY);
+    Assert.assertTrue(bounds.isExact());
+    Assert.assertEquals(3, bounds.getLowerNbCmbn());
+
+    // perfect coinjoin 5x5: clamped by the number of combinations of the perfect coinjoin
+    bounds =
+        txProcessor.computeBounds(
+            TxosFixtures.perfectCoinjoin(5), 0, 10, TxosLinkerOptionEnum.LINKABILITY);
+    Assert.assertFalse(bounds.isExact());
+    Assert.assertEquals(1496, bounds.getUpperNbCmbn(), 0);
+  }
+
+  @Test
+  public void testMaxEstimatedDuration() {
+    // perfect coinjoin 5x5 (1496 combinations), exceeding a null time budget
+    Txos txos = TxosFixtures.perfectCoinjoin(5);
+    TxProcessor processor = new TxProcessor(600, 12);
+    processor.setMaxEstimatedDuration(0, 10);
+    TxProcessorResult result = processor.processTx(txos, 0, TxosLinkerOptionEnum.LINKABILITY);
+    Assert.assertNotNull(result.getMetrics().getCostEstimate());
+    Assert.assertTrue(result.getThresholdReached());
+    Assert.assertTrue(result.getNbCmbn() >= 10 && result.getNbCmbn() < 1496);
+
+    // within the time budget: exact result
+    processor.setMaxEstimatedDuration(600, 10);
+    result = processor.processTx(txos, 0, TxosLinkerOptionEnum.LINKABILITY);
+    Assert.assertNull(result.getMetrics().getCostEstimate());
+    Assert.assertEquals(1496, result.getNbCmbn());
+  }
+
+  @Test
+  public void testGetLinkedTxos() {
+    Map<String, Long> txos = new LinkedHashMap<String, Long>();
+    String[] addrs = new String[] {"addr1", "addr2", "addr1", "addr3", "addr2", "addr1"};
+    for (int i = 0; i < addrs.length; i++) {
+      txos.put("I" + i, 1000L + i);
+    }
+
+    List<Set<String>> linkedTxos =
+        txProcessor.getLinkedTxos(new FilteredTxos(TxoTable.of(txos), addrs));
+
+    List<Set<String>> expected = new ArrayList<Set<String>>();
+    expected.add(new HashSet<String>(Arrays.asList("I0", "I2", "I5")));
+    expected.add(new HashSet<String>(Arrays.asList("I1", "I4")));
+    Assert.assertEquals(expected, linkedTxos);
+  }
+
   @Test
   public void testComputeCoinjoinIntrafees() {
     // 8e56317360a548e8ef28ec475878ef70d1371bee3526c017ac22ad61ae5740b8
@@ -78,6 +78,42 @@ public class ListsUtilsTest {
     processTest(toMerge, expected);
   }
 
+  @Test
+  public void testMergeSetChained() {
+    String[][] toMerge;
+    String[][] expected;
+
+    // sets linked through a later set
+    toMerge =
+        new String[][] {
+          new String[] {"A", "B"},
+          new String[] {"C", "D"},
+          new String[] {"E"},
+          new String[] {"F", "D"},
+          new String[] {"B", "F"}
+        };
+    expected =
+        new String[][] {
+          new String[] {"A", "B", "C", "D", "F"},
+          new String[] {"E"}
+        };
+    processTest(toMerge, expected);
+
+    // long chain
+    int len = 1000;
+    toMerge = new String[len][];
+    for (int i = 0; i < len; i++) {
+      toMerge[i] = new String[] {"T" + (len - i), "T" + (len - i - 1)};
+    }
+    List<Set<String>> sets = new LinkedList<Set<String>>();
+    for (int i = 0; i < toMerge.length; i++) {
+      sets.add(new HashSet<String>(Arrays.asList(toMerge[i])));
+    }
+    List<Set<String>> mergedSets = ListsUtils.mergeSets(sets);
+    Assert.assertEquals(1, mergedSets.size());
+    Assert.assertEquals(len + 1, mergedSets.get(0).size());
+  }
+
   private void processTest(String[][] toMerge, String[][] expected) {
     List<Set<String>> sets = new LinkedList<Set<String>>();
     for (int i = 0; i < toMerge.length; i++) {
@@ -0,0 +1,56 @@
+package com.samourai.boltzmann.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MemoryGovernorTest {
+
+  @Test
+  public void testReserve() throws Exception {
+    MemoryGovernor governor = new MemoryGovernor(100, 0);
+
+    MemoryGovernor.Reservation r1 = governor.reserve("phase1", 60);
+    Assert.assertNotNull(r1);
+    Assert.assertEquals(60, governor.getReservedBytes());
+    Assert.assertEquals(1, governor.getReservations().size());
+
+    // budget exhausted
+    Assert.assertNull(governor.reserve("phase2", 50));
+    // never fits
+    Assert.assertNull(governor.reserve("phase3", 101));
+
+    MemoryGovernor.Reservation r2 = governor.reserve("phase2", 40);
+    Assert.assertNotNull(r2);
+    Assert.assertEquals(100, governor.getReservedBytes());
+
+    r1.close();
+    r1.close(); // no-op
+    Assert.assertEquals(40, governor.getReservedBytes());
+    Assert.assertEquals("phase2", governor.getReservations().get(0).getName());
+    r2.close();
+    Assert.assertEquals(0, governor.getReservedBytes());
+    Assert.assertTrue(governor.getReservations().isEmpty());
+  }
+
+  @Test
+  public void testReserve_waitsForRelease() throws Exception {
+    final MemoryGovernor governor = new MemoryGovernor(100, 10000);
+    final MemoryGovernor.Reservation r1 = governor.reserve("phase1", 80);
+
+    Thread releaser =
+        new Thread(
+            () -> {
+              try {
+                Thread.sleep(100);
+              } catch (InterruptedException e) {
+              }
+              r1.close();
+            });
+    releaser.start();
+
+    MemoryGovernor.Reservation r2 = governor.reserve("phase2", 50);
+    Assert.assertNotNull(r2);
+    Assert.assertEquals(50, governor.getReservedBytes());
+    releaser.join();
+  }
+}
@@ -0,0 +1,34 @@
+package com.samourai.boltzmann.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParallelExecutorTest {
+
+  @Test
+  public void testSequentialThreshold() {
+    ParallelExecutor executor = new ParallelExecutor(null, 10);
+    Assert.assertFalse(executor.range(0, 9).isParallel());
+    Assert.assertTrue(executor.range(0, 10).isParallel());
+    Assert.assertFalse(executor.stream(new long[9]).isParallel());
+    Assert.assertTrue(executor.stream(Arrays.asList(new Integer[10])).isParallel());
+  }
+
+  @Test
+  public void testInvoke_dedicatedPool() {
+    try (ParallelExecutor executor = new ParallelExecutor(2, 1)) {
+      Assert.assertEquals(2, executor.getParallelism());
+      long nbCommon =
+          executor.invoke(
+              () ->
+                  executor
+                      .range(0, 1000)
+                      .filter(i -> ForkJoinTask.getPool() == ForkJoinPool.commonPool())
+                      .count());
+      Assert.assertEquals(0, nbCommon);
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package com.samourai.boltzmann.utils;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RunMetricsTest {
+
+  @Test
+  public void testProgress_isolatedRuns() {
+    RunMetrics metrics1 = new RunMetrics();
+    RunMetrics metrics2 = new RunMetrics();
+
+    IntStream.range(0, 10000).parallel().forEach(i -> metrics1.logProgress("phase", i, 10000));
+    metrics1.logProgressDone("phase", 10000, "done");
+
+    Assert.assertEquals(1, metrics1.getProgressResult().size());
+    Progress progress = metrics1.getProgressResult().get(0);
+    Assert.assertEquals("phase", progress.getName());
+    Assert.assertEquals(10000, progress.getTarget());
+    Assert.assertEquals("done", progress.getMsg());
+
+    // other run is not affected
+    Assert.assertTrue(metrics2.getProgressResult().isEmpty());
+  }
+
+  @Test
+  public void testProgressDone_noIteration() {
+    RunMetrics metrics = new RunMetrics();
+    metrics.logProgressDone("phase", 0);
+    Assert.assertTrue(metrics.getProgressResult().isEmpty());
+  }
+
+  @Test
+  public void testPhases() {
+    RunMetrics metrics = new RunMetrics();
+    metrics.startPhase("phase1");
+    metrics.setCardinality("nbItems", 3);
+    long[] allocated = new long[100000];
+    metrics.startPhase("phase2");
+    metrics.endPhase();
+    metrics.setCardinality("ignored", 1); // no phase running
+
+    List<PhaseMetrics> phases = metrics.getPhases();
+    Assert.assertEquals(2, phases.size());
+    PhaseMetrics phase1 = phases.get(0);
+    Assert.assertEquals("phase1", phase1.getName());
+    Assert.assertTrue(phase1.getWallNanos() > 0);
+    if (phase1.getAllocatedBytes() >= 0) {
+      // allocation counters supported
+      Assert.assertTrue(phase1.getAllocatedBytes() >= allocated.length * 8);
+    }
+    Assert.assertEquals(3L, (long) phase1.getCardinalities().get("nbItems"));
+    Assert.assertTrue(phases.get(1).getCardinalities().isEmpty());
+  }
+}